@@ -0,0 +1,116 @@
+package com.example.demo.config;
+
+import com.example.demo.model.Epg;
+import com.example.demo.model.LiveStream;
+import com.example.demo.model.Series;
+import com.example.demo.model.Vod;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Crée au démarrage les index déclarés sur les modèles (@Indexed, @CompoundIndex) des catalogues et de l'EPG.
+ *
+ * Les index uniques des catalogues (ownerId + identifiant fournisseur) ne peuvent être créés que sur une
+ * collection sans doublon : les copies laissées par les anciennes synchronisations sont
+ * d'abord supprimées, en gardant un document par clé.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class MongoIndexConfig {
+
+    // Collections de catalogue et leur clé métier
+    private static final Map<Class<?>, String> CATALOG_KEYS = Map.of(
+            LiveStream.class, "streamId",
+            Vod.class, "vodId",
+            Series.class, "seriesId");
+
+    // Collections dont les index déclarés sont créés au démarrage
+    private static final List<Class<?>> INDEXED_TYPES = List.of(LiveStream.class, Vod.class, Series.class, Epg.class);
+
+    // Index EPG antérieurs au cloisonnement par utilisateur, remplacés par leur version préfixée par ownerId
+    private static final List<String> OBSOLETE_EPG_INDEXES = List.of("streamId_start_title", "streamId_end");
+
+    private static final int DELETE_BATCH_SIZE = 10_000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+
+        for (Class<?> type : INDEXED_TYPES) {
+            try {
+                String keyField = CATALOG_KEYS.get(type);
+                long removed = keyField != null ? removeDuplicates(type, keyField) : 0;
+                if (type == Epg.class) {
+                    removed += removeUnownedEpg();
+                }
+                IndexOperations indexOps = mongoTemplate.indexOps(type);
+                if (type == Epg.class) {
+                    dropObsoleteIndexes(indexOps);
+                }
+                int created = 0;
+                for (IndexDefinition index : resolver.resolveIndexFor(type)) {
+                    indexOps.ensureIndex(index);
+                    created++;
+                }
+                System.out.println("🗂 Index " + mongoTemplate.getCollectionName(type) + ": " + created
+                        + " vérifiés" + (removed > 0 ? ", " + removed + " documents obsolètes supprimés" : ""));
+            } catch (Exception e) {
+                System.err.println("❌ Erreur création des index " + mongoTemplate.getCollectionName(type) + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * EPG écrit avant le cloisonnement par utilisateur : sans ownerId il n'est plus lu, il serait conservé indéfiniment
+     */
+    private long removeUnownedEpg() {
+        return mongoTemplate.remove(Query.query(Criteria.where("ownerId").exists(false)), Epg.class).getDeletedCount();
+    }
+
+    private void dropObsoleteIndexes(IndexOperations indexOps) {
+        indexOps.getIndexInfo().stream()
+                .filter(index -> OBSOLETE_EPG_INDEXES.contains(index.getName()))
+                .forEach(index -> indexOps.dropIndex(index.getName()));
+    }
+
+    /**
+     * Supprime les doublons (ownerId, clé) en conservant le premier document de chaque groupe
+     */
+    private long removeDuplicates(Class<?> type, String keyField) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("ownerId", keyField).push("_id").as("ids").count().as("count"),
+                Aggregation.match(Criteria.where("count").gt(1)))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        List<Object> duplicateIds = new ArrayList<>();
+        for (Document group : mongoTemplate.aggregate(aggregation, type, Document.class)) {
+            List<?> ids = group.getList("ids", Object.class);
+            duplicateIds.addAll(ids.subList(1, ids.size()));
+        }
+
+        long removed = 0;
+        for (int i = 0; i < duplicateIds.size(); i += DELETE_BATCH_SIZE) {
+            List<Object> batch = duplicateIds.subList(i, Math.min(i + DELETE_BATCH_SIZE, duplicateIds.size()));
+            removed += mongoTemplate.remove(Query.query(Criteria.where("_id").in(batch)), type).getDeletedCount();
+        }
+        return removed;
+    }
+}
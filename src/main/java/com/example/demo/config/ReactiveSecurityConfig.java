@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import com.example.demo.security.JwtReactiveAuthenticationFilter;
+import com.example.demo.security.JwtUtil;
+import com.example.demo.service.CompteService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+/**
+ * Sécurité de la pile WebFlux (profil "reactive", serveur Netty) : mêmes règles que {@link SecurityConfig}
+ */
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfig {
+
+    private final JwtUtil jwtUtil;
+    private final CompteService compteService;
+
+    public ReactiveSecurityConfig(JwtUtil jwtUtil, @Lazy CompteService compteService) {
+        this.jwtUtil = jwtUtil;
+        this.compteService = compteService;
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .authorizeExchange(exchanges -> exchanges
+                        .pathMatchers("/api/auth/**").permitAll()
+                        .anyExchange().authenticated()
+                )
+                .addFilterAt(new JwtReactiveAuthenticationFilter(jwtUtil, compteService),
+                        SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+}
@@ -59,6 +59,42 @@ public class UserXtreamConfig {
                 "&password=" + password + "&action=get_epg";
     }
 
+    /**
+     * Génère l'URL player_api.php sans action (user_info / server_info, réponse légère)
+     */
+    public String getAuthenticationUrl() {
+        return baseUrl + "/player_api.php?username=" + username + "&password=" + password;
+    }
+
+    /**
+     * Génère l'URL player_api.php pour une action Xtream ({@link XtreamConfig.Actions})
+     */
+    public String getPlayerApiUrl(String action) {
+        return baseUrl + "/player_api.php?username=" + username +
+                "&password=" + password + "&action=" + action;
+    }
+
+    /**
+     * Génère l'URL d'une action de catalogue limitée à une catégorie
+     */
+    public String getCategoryUrl(String action, Integer categoryId) {
+        return getPlayerApiUrl(action) + "&category_id=" + categoryId;
+    }
+
+    /**
+     * Génère l'URL de l'EPG complet d'un stream (get_simple_data_table)
+     */
+    public String getSimpleDataTableUrl(Integer streamId) {
+        return getPlayerApiUrl(XtreamConfig.Actions.GET_SIMPLE_DATA_TABLE) + "&stream_id=" + streamId;
+    }
+
+    /**
+     * Génère l'URL du guide XMLTV complet (xmltv.php)
+     */
+    public String getXmltvUrl() {
+        return baseUrl + "/xmltv.php?username=" + username + "&password=" + password;
+    }
+
     /**
      * Génère l'URL M3U
      */
@@ -1,30 +1,103 @@
 package com.example.demo.config;
 
+import com.example.demo.service.xtream.ConnectionPoolRegistry;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Configuration WebClient optimisée pour les requêtes Xtream
+ * Configuration WebClient optimisée pour les requêtes Xtream.
+ *
+ * Les WebClient partagent deux ConnectionProvider gérés (API/EPG et M3U) : Reactor Netty y
+ * tient un pool par hôte fournisseur, borné (connexions, file d'attente d'acquisition),
+ * avec réutilisation keep-alive et éviction des connexions inactives. Les résolutions DNS
+ * sont mises en cache pour ne pas interroger le résolveur à chaque nouvelle connexion.
  */
 @Configuration
 public class WebClientConfig {
 
+    @Value("${xtream.http.pool.max-connections:16}")
+    private int maxConnections;
+
+    @Value("${xtream.http.pool.pending-acquire-max-count:1000}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${xtream.http.pool.pending-acquire-timeout:45s}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${xtream.http.pool.max-idle-time:45s}")
+    private Duration maxIdleTime;
+
+    @Value("${xtream.http.pool.max-life-time:10m}")
+    private Duration maxLifeTime;
+
+    @Value("${xtream.http.pool.m3u-max-connections:4}")
+    private int m3uMaxConnections;
+
+    @Value("${xtream.http.dns.cache-ttl:5m}")
+    private Duration dnsCacheTtl;
+
+    /**
+     * Pool par hôte pour les appels player_api.php et EPG
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider xtreamConnectionProvider(ConnectionPoolRegistry connectionPoolRegistry) {
+        return pooledProvider("xtream", maxConnections, connectionPoolRegistry);
+    }
+
+    /**
+     * Pool séparé pour les téléchargements M3U : un transfert long ne monopolise pas les connexions de l'API
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider m3uConnectionProvider(ConnectionPoolRegistry connectionPoolRegistry) {
+        return pooledProvider("m3u", m3uMaxConnections, connectionPoolRegistry);
+    }
+
+    private ConnectionProvider pooledProvider(String name, int connectionsPerHost, ConnectionPoolRegistry registry) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(connectionsPerHost) // par hôte : un pool par adresse distante
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(Duration.ofSeconds(30))
+                .lifo() // réutilise la connexion la plus récente, les autres expirent naturellement
+                .metrics(true, () -> registry)
+                .build();
+    }
+
+    /**
+     * HttpClient de base : pool partagé, keep-alive et cache DNS
+     */
+    private HttpClient pooledHttpClient(ConnectionProvider provider) {
+        return HttpClient.create(provider)
+                .keepAlive(true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .resolver(spec -> spec
+                        .cacheMaxTimeToLive(dnsCacheTtl)
+                        .cacheNegativeTimeToLive(Duration.ofSeconds(10)));
+    }
+
     /**
-     * WebClient configuré avec timeouts optimisés
+     * WebClient configuré avec timeouts optimisés.
+     * Les catalogues Xtream sont décodés élément par élément (bodyToFlux) :
+     * la limite s'applique à un élément du tableau JSON, pas à la réponse entière.
      */
     @Bean
-    public WebClient webClient() {
-        HttpClient httpClient = HttpClient.create()
+    public WebClient webClient(@Qualifier("xtreamConnectionProvider") ConnectionProvider provider) {
+        HttpClient httpClient = pooledHttpClient(provider)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 30_000)
                 .responseTimeout(Duration.ofSeconds(60))
                 .doOnConnected(conn ->
@@ -36,17 +109,18 @@ public class WebClientConfig {
                 .exchangeStrategies(ExchangeStrategies.builder()
                         .codecs(configurer -> configurer
                                 .defaultCodecs()
-                                .maxInMemorySize(50 * 1024 * 1024)) // 50MB
+                                .maxInMemorySize(2 * 1024 * 1024)) // 2MB par élément
                         .build())
                 .build();
     }
 
     /**
-     * WebClient spécialement configuré pour les TRÈS gros fichiers M3U (jusqu'à 200MB)
+     * WebClient spécialement configuré pour les TRÈS gros fichiers M3U.
+     * Les corps M3U sont lus en flux (écriture disque ou tokenizer), jamais agrégés en mémoire.
      */
     @Bean("m3uWebClient")
-    public WebClient m3uWebClient() {
-        HttpClient httpClient = HttpClient.create()
+    public WebClient m3uWebClient(@Qualifier("m3uConnectionProvider") ConnectionProvider provider) {
+        HttpClient httpClient = pooledHttpClient(provider)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 60_000) // 1 minute
                 .responseTimeout(Duration.ofMinutes(10)) // 10 minutes pour très gros fichiers
                 .doOnConnected(conn ->
@@ -58,7 +132,7 @@ public class WebClientConfig {
                 .exchangeStrategies(ExchangeStrategies.builder()
                         .codecs(configurer -> configurer
                                 .defaultCodecs()
-                                .maxInMemorySize(200 * 1024 * 1024)) // 200MB pour très gros M3U
+                                .maxInMemorySize(2 * 1024 * 1024)) // 2MB : seules les réponses d'erreur sont agrégées
                         .build())
                 .build();
     }
@@ -67,8 +141,8 @@ public class WebClientConfig {
      * WebClient pour les requêtes EPG (plus tolérant aux timeouts)
      */
     @Bean("epgWebClient")
-    public WebClient epgWebClient() {
-        HttpClient httpClient = HttpClient.create()
+    public WebClient epgWebClient(@Qualifier("xtreamConnectionProvider") ConnectionProvider provider) {
+        HttpClient httpClient = pooledHttpClient(provider)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 20_000)
                 .responseTimeout(Duration.ofSeconds(45))
                 .doOnConnected(conn ->
@@ -89,8 +163,8 @@ public class WebClientConfig {
      * WebClient ultra-light pour les APIs Xtream classiques
      */
     @Bean("xtreamWebClient")
-    public WebClient xtreamWebClient() {
-        HttpClient httpClient = HttpClient.create()
+    public WebClient xtreamWebClient(@Qualifier("xtreamConnectionProvider") ConnectionProvider provider) {
+        HttpClient httpClient = pooledHttpClient(provider)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 15_000)
                 .responseTimeout(Duration.ofSeconds(30))
                 .doOnConnected(conn ->
@@ -21,6 +21,16 @@ public class XtreamConfig {
     // Retry configuration
     public static final int MAX_RETRY_ATTEMPTS = 3;
     public static final int RETRY_DELAY_MS = 1000;
+    public static final int MAX_RETRY_DELAY_MS = 10_000;
+
+    // Circuit breaker par fournisseur (baseUrl)
+    public static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    public static final int CIRCUIT_OPEN_DURATION_MS = 30_000;
+
+    // EPG multi-jours (get_simple_data_table) : fenêtre conservée, marge avant rafraîchissement
+    public static final int EPG_TABLE_HORIZON_DAYS = 3;
+    public static final int EPG_TABLE_PAST_HOURS = 6;
+    public static final int EPG_TABLE_REFRESH_MARGIN_HOURS = 24;
 
     /**
      * Actions disponibles dans l'API Xtream
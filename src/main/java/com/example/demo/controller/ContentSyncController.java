@@ -1,12 +1,24 @@
 package com.example.demo.controller;
 
 import com.example.demo.service.IntegratedContentSyncService;
+import com.example.demo.service.M3UFallbackService;
+import com.example.demo.service.M3UStreamingIngestionService;
+import com.example.demo.service.UserContextService;
 import com.example.demo.security.JwtUtil;
+import com.example.demo.service.xtream.ConnectionPoolRegistry;
+import com.example.demo.service.xtream.ProviderCircuitBreaker;
+import com.example.demo.service.xtream.ProviderRateLimiter;
+import com.example.demo.service.xtream.XtreamClient;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.HashMap;
 import java.util.Map;
 
 @RestController
@@ -16,144 +28,240 @@ import java.util.Map;
 public class ContentSyncController {
 
     private final IntegratedContentSyncService syncService;
+    private final M3UStreamingIngestionService streamingIngestionService;
+    private final M3UFallbackService m3uFallbackService;
+    private final ConnectionPoolRegistry connectionPoolRegistry;
+    private final ProviderCircuitBreaker providerCircuitBreaker;
+    private final ProviderRateLimiter providerRateLimiter;
+    private final XtreamClient xtreamClient;
+    private final UserContextService userContextService;
     private final JwtUtil jwtUtil;
 
     /**
      * Synchronise tout le contenu (Live, VOD, Series, EPG)
      */
     @PostMapping("/all")
-    public ResponseEntity<?> syncAllContent(@RequestHeader("Authorization") String authHeader) {
-        try {
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
-
-            // Vérifier si l'utilisateur peut synchroniser
-            if (!syncService.canUserSync(userId)) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+    public Mono<ResponseEntity<?>> syncAllContent(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(userId -> {
+                    // Vérifier si l'utilisateur peut synchroniser
+                    if (!syncService.canUserSync(userId)) {
+                        return Mono.<ResponseEntity<?>>just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                                .body(Map.of(
+                                        "success", false,
+                                        "message", "Configuration Xtream manquante. Veuillez configurer vos credentials."
+                                )));
+                    }
+
+                    return syncService.syncAllContentForUser(userId)
+                            .<ResponseEntity<?>>map(result -> ResponseEntity.ok(Map.of(
+                                    "success", true,
+                                    "message", "✅ Synchronisation complète terminée",
+                                    "statistics", result.getStatistics()
+                            )));
+                })
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                         .body(Map.of(
                                 "success", false,
-                                "message", "Configuration Xtream manquante. Veuillez configurer vos credentials."
-                        ));
-            }
-
-            IntegratedContentSyncService.ContentSyncResult result = syncService.syncAllContentForUser(userId);
-
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "✅ Synchronisation complète terminée",
-                    "statistics", result.getStatistics()
-            ));
+                                "message", "❌ Erreur: " + e.getMessage()
+                        ))));
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of(
-                            "success", false,
-                            "message", "❌ Erreur: " + e.getMessage()
-                    ));
-        }
+    /**
+     * Synchronise uniquement les catégories (chargement paresseux du contenu par catégorie)
+     */
+    @PostMapping("/categories")
+    public Mono<ResponseEntity<?>> syncCategories(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(syncService::syncCategoriesForUser)
+                .<ResponseEntity<?>>map(categories -> {
+                    Map<String, Object> response = new HashMap<>(categories);
+                    response.put("success", true);
+                    response.put("message", "✅ Catégories synchronisées");
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of(
+                                "success", false,
+                                "message", "❌ Erreur: " + e.getMessage()
+                        ))));
     }
 
     /**
      * Synchronise uniquement les Live Streams
      */
     @PostMapping("/live-streams")
-    public ResponseEntity<?> syncLiveStreamsOnly(@RequestHeader("Authorization") String authHeader) {
-        try {
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
-
-            IntegratedContentSyncService.ContentSyncResult result = syncService.syncLiveStreamsOnly(userId);
-
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "✅ Live Streams synchronisés",
-                    "count", result.getLiveStreams().size()
-            ));
-
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of(
-                            "success", false,
-                            "message", "❌ Erreur: " + e.getMessage()
-                    ));
-        }
+    public Mono<ResponseEntity<?>> syncLiveStreamsOnly(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(syncService::syncLiveStreamsOnly)
+                .<ResponseEntity<?>>map(result -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "message", "✅ Live Streams synchronisés",
+                        "count", result.getLiveStreams().size()
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of(
+                                "success", false,
+                                "message", "❌ Erreur: " + e.getMessage()
+                        ))));
     }
 
     /**
      * Synchronise uniquement les VOD
      */
     @PostMapping("/vod")
-    public ResponseEntity<?> syncVodOnly(@RequestHeader("Authorization") String authHeader) {
-        try {
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
-
-            IntegratedContentSyncService.ContentSyncResult result = syncService.syncVodOnly(userId);
+    public Mono<ResponseEntity<?>> syncVodOnly(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(syncService::syncVodOnly)
+                .<ResponseEntity<?>>map(result -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "message", "✅ VOD synchronisés",
+                        "count", result.getVodContent().size()
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of(
+                                "success", false,
+                                "message", "❌ Erreur: " + e.getMessage()
+                        ))));
+    }
 
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "✅ VOD synchronisés",
-                    "count", result.getVodContent().size()
-            ));
+    /**
+     * Synchronise uniquement les Séries
+     */
+    @PostMapping("/series")
+    public Mono<ResponseEntity<?>> syncSeriesOnly(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(syncService::syncSeriesOnly)
+                .<ResponseEntity<?>>map(result -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "message", "✅ Séries synchronisées",
+                        "count", result.getSeries().size()
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of(
+                                "success", false,
+                                "message", "❌ Erreur: " + e.getMessage()
+                        ))));
+    }
 
+    /**
+     * Ingestion M3U en flux continu (réseau → parsing → écritures Mongo bulk, mémoire constante)
+     */
+    @PostMapping("/m3u/stream")
+    public Mono<ResponseEntity<?>> streamM3U(@RequestHeader("Authorization") String authHeader) {
+        String userId;
+        try {
+            userId = jwtUtil.extractUserId(authHeader.substring(7));
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of(
                             "success", false,
                             "message", "❌ Erreur: " + e.getMessage()
-                    ));
+                    )));
         }
+
+        return streamingIngestionService.ingestForUser(userId)
+                .<ResponseEntity<?>>map(result -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "message", "✅ Ingestion M3U en flux terminée",
+                        "statistics", result.getStatistics()
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of(
+                                "success", false,
+                                "message", "❌ Erreur: " + e.getMessage()
+                        ))));
     }
 
     /**
-     * Synchronise uniquement les Séries
+     * Statistiques du M3U du fournisseur (types, groupes, couverture des attributs, erreurs),
+     * calculées en flux sans synchroniser ni stocker le contenu
      */
-    @PostMapping("/series")
-    public ResponseEntity<?> syncSeriesOnly(@RequestHeader("Authorization") String authHeader) {
-        try {
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
+    @GetMapping("/m3u/stats")
+    public Mono<ResponseEntity<?>> getM3UStats(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(m3uFallbackService::getM3UParsingStatsForUser)
+                .<ResponseEntity<?>>map(stats -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "statistics", stats.getStatistics()
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of(
+                                "success", false,
+                                "message", "❌ Erreur: " + e.getMessage()
+                        ))));
+    }
 
-            IntegratedContentSyncService.ContentSyncResult result = syncService.syncSeriesOnly(userId);
+    /**
+     * Même statistiques en Server-Sent Events : une photo régulière pendant le téléchargement,
+     * la dernière porte completed = true
+     */
+    @GetMapping(value = "/m3u/stats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<Map<String, Object>> streamM3UStats(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMapMany(m3uFallbackService::streamM3UParsingStatsForUser)
+                .map(M3UFallbackService.M3UParsingStats::getStatistics)
+                .onErrorResume(e -> Flux.just(Map.<String, Object>of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                )));
+    }
 
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "✅ Séries synchronisées",
-                    "count", result.getSeries().size()
-            ));
+    /**
+     * Ingère le guide XMLTV complet du fournisseur (une seule requête pour toutes les chaînes)
+     */
+    @PostMapping("/epg/xmltv")
+    public Mono<ResponseEntity<?>> syncXmltv(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(syncService::syncXmltvForUser)
+                .<ResponseEntity<?>>map(result -> {
+                    Map<String, Object> response = new HashMap<>(result.getStatistics());
+                    response.put("success", true);
+                    response.put("message", "✅ Guide XMLTV ingéré");
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of(
+                                "success", false,
+                                "message", "❌ Erreur: " + e.getMessage()
+                        ))));
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of(
-                            "success", false,
-                            "message", "❌ Erreur: " + e.getMessage()
-                    ));
-        }
+    /**
+     * Progression de la dernière synchronisation EPG en lot
+     */
+    @GetMapping("/epg/progress")
+    public Mono<ResponseEntity<?>> getEpgSyncProgress(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .<ResponseEntity<?>>map(userId -> {
+                    Map<String, Object> response = new HashMap<>(syncService.getEpgSyncProgress(userId));
+                    response.put("success", true);
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of(
+                                "success", false,
+                                "message", "❌ Erreur: " + e.getMessage()
+                        ))));
     }
 
     /**
      * Synchronise l'EPG pour un stream spécifique
      */
     @PostMapping("/epg/{streamId}")
-    public ResponseEntity<?> syncEpgForStream(
+    public Mono<ResponseEntity<?>> syncEpgForStream(
             @RequestHeader("Authorization") String authHeader,
             @PathVariable Integer streamId) {
 
-        try {
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
-
-            Map<String, Object> result = syncService.syncEpgForSingleStream(userId, streamId);
-
-            return ResponseEntity.ok(result);
-
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of(
-                            "success", false,
-                            "message", "❌ Erreur: " + e.getMessage()
-                    ));
-        }
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(userId -> syncService.syncEpgForSingleStream(userId, streamId))
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of(
+                                "success", false,
+                                "message", "❌ Erreur: " + e.getMessage()
+                        ))));
     }
 
     /**
@@ -178,6 +286,49 @@ public class ContentSyncController {
         }
     }
 
+    /**
+     * État des pools de connexions vers le fournisseur de l'utilisateur (actives, inactives, en attente)
+     * avec son circuit breaker et son limiteur de débit ; appels regroupés (single-flight) et cache de
+     * réponses en compteurs globaux. Les fournisseurs des autres utilisateurs ne sont pas exposés.
+     */
+    @GetMapping("/connection-pools")
+    public Mono<ResponseEntity<?>> getConnectionPools(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(userContextService::getUserXtreamConfigAsync)
+                .<ResponseEntity<?>>map(config -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "pools", connectionPoolRegistry.snapshot(config.getBaseUrl()),
+                        "circuit_breakers", providerCircuitBreaker.snapshot(config.getBaseUrl()),
+                        "rate_limiters", providerRateLimiter.snapshot(config.getBaseUrl()),
+                        "single_flight", xtreamClient.getSingleFlightStats(),
+                        "response_cache", xtreamClient.getCacheStats()
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
+    }
+
+    /**
+     * Vide le cache des réponses Xtream de l'utilisateur : la prochaine lecture repart chez le fournisseur
+     */
+    @DeleteMapping("/cache")
+    public Mono<ResponseEntity<?>> evictCache(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(userContextService::getUserXtreamConfigAsync)
+                .<ResponseEntity<?>>map(config -> {
+                    xtreamClient.evictCache(config);
+                    return ResponseEntity.ok(Map.of(
+                            "success", true,
+                            "message", "✅ Cache Xtream vidé"
+                    ));
+                })
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
+    }
+
     /**
      * Vérifie si l'utilisateur peut synchroniser
      */
@@ -15,7 +15,9 @@ import com.example.demo.security.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -28,28 +30,50 @@ public class EpgController {
     private final JwtUtil jwtUtil;
 
     @GetMapping("/sync/{streamId}")
-    public ResponseEntity<?> syncEpg(
+    public Mono<ResponseEntity<?>> syncEpg(
             @RequestHeader("Authorization") String authHeader,
             @PathVariable Integer streamId) {
 
-        try {
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
-
-            EpgService.EpgSyncResult result = epgService.syncEpgForStreamForUser(userId, streamId);
-
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", result.getMessage(),
-                    "streamId", result.getStreamId(),
-                    "entriesCount", result.getEntriesCount()
-            ));
-
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "success", false,
-                    "message", "❌ Erreur: " + e.getMessage()
-            ));
-        }
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(userId -> epgService.syncEpgForStreamForUser(userId, streamId))
+                .<ResponseEntity<?>>map(result -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "message", result.getMessage(),
+                        "streamId", result.getStreamId(),
+                        "entriesCount", result.getEntriesCount()
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
+    }
+
+    /**
+     * EPG multi-jours (get_simple_data_table) ; sans corps, pour tous les live streams de l'utilisateur.
+     * Les streams dont le guide stocké est encore suffisant ne sont pas re-téléchargés.
+     */
+    @PostMapping("/sync-table")
+    public Mono<ResponseEntity<?>> syncEpgTables(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestBody(required = false) List<Integer> streamIds) {
+
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(userId -> epgService.syncEpgTablesForUser(userId, streamIds))
+                .<ResponseEntity<?>>map(results -> {
+                    long refreshed = results.stream().filter(r -> r.getEntriesCount() > 0).count();
+                    long failed = results.stream().filter(r -> r.getMessage().startsWith("❌")).count();
+                    return ResponseEntity.ok(Map.of(
+                            "success", true,
+                            "message", "✅ EPG multi-jours synchronisé",
+                            "streams", results.size(),
+                            "refreshed", refreshed,
+                            "errors", failed,
+                            "entriesCount", results.stream().mapToInt(EpgSyncResult::getEntriesCount).sum()
+                    ));
+                })
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
     }
 }
@@ -7,12 +7,14 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import com.example.demo.security.JwtUtil;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 
 @RestController
@@ -28,54 +30,88 @@ public class LiveStreamController {
      * Synchronise les live streams pour l'utilisateur connecté
      */
     @GetMapping("/sync")
-    public ResponseEntity<?> syncLiveStreams(@RequestHeader("Authorization") String authHeader) {
-        try {
-            // Extraire userId du token
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
-
-            // Synchroniser les streams
-            List<Map<String, Object>> streams = liveStreamService.syncAndSaveLiveStreamsForUser(userId);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "✅ Live Streams synchronisés");
-            response.put("count", streams.size());
-            response.put("streams", streams);
-
-            return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "success", false,
-                    "message", "❌ Erreur: " + e.getMessage()
-            ));
-        }
+    public Mono<ResponseEntity<?>> syncLiveStreams(@RequestHeader("Authorization") String authHeader) {
+        // Extraire userId du token puis synchroniser les streams
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(liveStreamService::syncAndSaveLiveStreamsForUser)
+                .<ResponseEntity<?>>map(streams -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("message", "✅ Live Streams synchronisés");
+                    response.put("count", streams.size());
+                    response.put("streams", streams);
+
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
     }
 
     /**
      * Récupère les live streams sans sauvegarder
      */
     @GetMapping("/fetch")
-    public ResponseEntity<?> fetchLiveStreams(@RequestHeader("Authorization") String authHeader) {
-        try {
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
+    public Mono<ResponseEntity<?>> fetchLiveStreams(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(liveStreamService::fetchLiveStreamsForUser)
+                .<ResponseEntity<?>>map(streams -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "count", streams.size(),
+                        "streams", streams
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
+    }
 
-            List<Map<String, Object>> streams = liveStreamService.fetchLiveStreamsForUser(userId);
+    /**
+     * Catégories uniquement : le contenu de chaque catégorie est chargé à la demande
+     */
+    @GetMapping("/categories")
+    public Mono<ResponseEntity<?>> getLiveCategories(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(liveStreamService::fetchLiveCategoriesForUser)
+                .<ResponseEntity<?>>map(categories -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "count", categories.size(),
+                        "categories", categories
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
+    }
 
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "count", streams.size(),
-                    "streams", streams
-            ));
+    /**
+     * Live streams d'une catégorie, chargés au premier accès puis servis depuis le cache
+     */
+    @GetMapping("/categories/{categoryId}")
+    public Mono<ResponseEntity<?>> getLiveStreamsByCategory(@RequestHeader("Authorization") String authHeader,
+                                                   @PathVariable Integer categoryId) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(userId -> liveStreamService.fetchLiveStreamsByCategoryForUser(userId, categoryId))
+                .<ResponseEntity<?>>map(streams -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "category_id", categoryId,
+                        "count", streams.size(),
+                        "streams", streams
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "success", false,
-                    "message", "❌ Erreur: " + e.getMessage()
-            ));
-        }
+    /**
+     * Catalogue des live streams en flux NDJSON, un élément par ligne
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> streamLiveStreams(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMapMany(liveStreamService::streamLiveStreamsForUser);
     }
 
     /**
@@ -0,0 +1,64 @@
+package com.example.demo.controller;
+
+import com.example.demo.security.JwtUtil;
+import com.example.demo.service.IntegratedContentSyncService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Map;
+
+/**
+ * Import d'un fichier M3U sur la pile servlet (MultipartFile) ; voir {@link ReactiveM3UImportController} pour WebFlux
+ */
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", maxAge = 3600)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class M3UImportController {
+
+    private final IntegratedContentSyncService syncService;
+    private final JwtUtil jwtUtil;
+
+    /**
+     * Importe un fichier M3U envoyé par l'utilisateur (sans fournisseur Xtream)
+     */
+    @PostMapping(value = "/m3u/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importM3UFile(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam("file") MultipartFile file) {
+
+        try {
+            String token = authHeader.substring(7);
+            String userId = jwtUtil.extractUserId(token);
+
+            if (file.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of(
+                                "success", false,
+                                "message", "Fichier M3U vide"
+                        ));
+            }
+
+            IntegratedContentSyncService.ContentSyncResult result = syncService.importM3UFileForUser(userId, file);
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "message", "✅ Fichier M3U importé",
+                    "statistics", result.getStatistics()
+            ));
+
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of(
+                            "success", false,
+                            "message", "❌ Erreur: " + e.getMessage()
+                    ));
+        }
+    }
+}
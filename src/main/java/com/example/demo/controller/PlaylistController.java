@@ -4,6 +4,7 @@ import com.example.demo.dto.AddPlaylistRequest;
 import com.example.demo.model.Compte;
 import com.example.demo.service.CompteService;
 import com.example.demo.security.JwtUtil;
+import com.example.demo.service.xtream.XtreamConnectionWarmer;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -20,6 +21,7 @@ public class PlaylistController {
 
     private final CompteService compteService;
     private final JwtUtil jwtUtil;
+    private final XtreamConnectionWarmer connectionWarmer;
 
     /**
      * ➕ Ajouter une playlist
@@ -42,6 +44,9 @@ public class PlaylistController {
                     request.getDateExpiration()
             );
 
+            // Ouvre les connexions vers le fournisseur avant la première synchronisation
+            connectionWarmer.prewarm(request.getXtreamBaseUrl(), request.getXtreamUsername(), request.getXtreamPassword());
+
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Playlist ajoutée avec succès",
@@ -107,6 +112,8 @@ public class PlaylistController {
                     request.getDateExpiration()
             );
 
+            connectionWarmer.prewarm(request.getXtreamBaseUrl(), request.getXtreamUsername(), request.getXtreamPassword());
+
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Playlist mise à jour avec succès"
@@ -0,0 +1,57 @@
+package com.example.demo.controller;
+
+import com.example.demo.security.JwtUtil;
+import com.example.demo.service.IntegratedContentSyncService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Import d'un fichier M3U sur la pile WebFlux (profil "reactive") : MultipartFile n'y est pas résolu,
+ * le fichier arrive en FilePart et est écrit sur disque sans bloquer la boucle Netty
+ */
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", maxAge = 3600)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveM3UImportController {
+
+    private final IntegratedContentSyncService syncService;
+    private final JwtUtil jwtUtil;
+
+    /**
+     * Importe un fichier M3U envoyé par l'utilisateur (sans fournisseur Xtream)
+     */
+    @PostMapping(value = "/m3u/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<ResponseEntity<?>> importM3UFile(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestPart("file") Mono<FilePart> file) {
+
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .zipWith(file)
+                .flatMap(request -> syncService.importM3UFilePartForUser(request.getT1(), request.getT2())
+                        .<ResponseEntity<?>>map(result -> ResponseEntity.ok(Map.of(
+                                "success", true,
+                                "message", "✅ Fichier M3U importé",
+                                "statistics", result.getStatistics()
+                        )))
+                        .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                                .body(Map.of(
+                                        "success", false,
+                                        "message", "Fichier M3U vide"
+                                )))))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of(
+                                "success", false,
+                                "message", "❌ Erreur: " + e.getMessage()
+                        ))));
+    }
+}
@@ -11,8 +11,11 @@ import java.util.Map;
 import com.example.demo.service.SeriesService;
 import com.example.demo.security.JwtUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.Map;
@@ -27,26 +30,66 @@ public class SeriesController {
     private final JwtUtil jwtUtil;
 
     @GetMapping("/sync")
-    public ResponseEntity<?> syncSeries(@RequestHeader("Authorization") String authHeader) {
-        try {
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
+    public Mono<ResponseEntity<?>> syncSeries(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(seriesService::syncAndSaveSeriesStreamsForUser)
+                .<ResponseEntity<?>>map(series -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "message", "✅ Séries synchronisées",
+                        "count", series.size(),
+                        "series", series
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
+    }
 
-            List<Map<String, Object>> series = seriesService.syncAndSaveSeriesStreamsForUser(userId);
+    /**
+     * Catégories uniquement : le contenu de chaque catégorie est chargé à la demande
+     */
+    @GetMapping("/categories")
+    public Mono<ResponseEntity<?>> getSeriesCategories(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(seriesService::fetchSeriesCategoriesForUser)
+                .<ResponseEntity<?>>map(categories -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "count", categories.size(),
+                        "categories", categories
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
+    }
 
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "✅ Séries synchronisées",
-                    "count", series.size(),
-                    "series", series
-            ));
+    /**
+     * Séries d'une catégorie, chargés au premier accès puis servis depuis le cache
+     */
+    @GetMapping("/categories/{categoryId}")
+    public Mono<ResponseEntity<?>> getSeriesByCategory(@RequestHeader("Authorization") String authHeader,
+                                                   @PathVariable Integer categoryId) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(userId -> seriesService.fetchSeriesByCategoryForUser(userId, categoryId))
+                .<ResponseEntity<?>>map(series -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "category_id", categoryId,
+                        "count", series.size(),
+                        "series", series
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "success", false,
-                    "message", "❌ Erreur: " + e.getMessage()
-            ));
-        }
+    /**
+     * Catalogue des séries en flux NDJSON, un élément par ligne
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> streamSeries(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMapMany(seriesService::streamSeriesForUser);
     }
 
     @GetMapping("/search")
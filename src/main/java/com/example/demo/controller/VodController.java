@@ -11,8 +11,11 @@ import java.util.Map;
 import com.example.demo.service.VodService;
 import com.example.demo.security.JwtUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.Map;
@@ -27,26 +30,66 @@ public class VodController {
     private final JwtUtil jwtUtil;
 
     @GetMapping("/sync")
-    public ResponseEntity<?> syncVod(@RequestHeader("Authorization") String authHeader) {
-        try {
-            String token = authHeader.substring(7);
-            String userId = jwtUtil.extractUserId(token);
+    public Mono<ResponseEntity<?>> syncVod(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(vodService::syncAndSaveVodStreamsForUser)
+                .<ResponseEntity<?>>map(vods -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "message", "✅ VOD synchronisés",
+                        "count", vods.size(),
+                        "vods", vods
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
+    }
 
-            List<Map<String, Object>> vods = vodService.syncAndSaveVodStreamsForUser(userId);
+    /**
+     * Catégories uniquement : le contenu de chaque catégorie est chargé à la demande
+     */
+    @GetMapping("/categories")
+    public Mono<ResponseEntity<?>> getVodCategories(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(vodService::fetchVodCategoriesForUser)
+                .<ResponseEntity<?>>map(categories -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "count", categories.size(),
+                        "categories", categories
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
+    }
 
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "✅ VOD synchronisés",
-                    "count", vods.size(),
-                    "vods", vods
-            ));
+    /**
+     * VOD d'une catégorie, chargés au premier accès puis servis depuis le cache
+     */
+    @GetMapping("/categories/{categoryId}")
+    public Mono<ResponseEntity<?>> getVodStreamsByCategory(@RequestHeader("Authorization") String authHeader,
+                                                   @PathVariable Integer categoryId) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMap(userId -> vodService.fetchVodStreamsByCategoryForUser(userId, categoryId))
+                .<ResponseEntity<?>>map(vods -> ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "category_id", categoryId,
+                        "count", vods.size(),
+                        "vods", vods
+                )))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
+                        "success", false,
+                        "message", "❌ Erreur: " + e.getMessage()
+                ))));
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "success", false,
-                    "message", "❌ Erreur: " + e.getMessage()
-            ));
-        }
+    /**
+     * Catalogue des VOD en flux NDJSON, un élément par ligne
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> streamVod(@RequestHeader("Authorization") String authHeader) {
+        return Mono.fromCallable(() -> jwtUtil.extractUserId(authHeader.substring(7)))
+                .flatMapMany(vodService::streamVodStreamsForUser);
     }
 
     @GetMapping("/search")
@@ -0,0 +1,31 @@
+package com.example.demo.dto;
+
+import com.example.demo.utils.LenientIntegerDeserializer;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Catégorie renvoyée par get_live_categories, get_vod_categories et get_series_categories
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record XtreamCategory(
+        @JsonProperty("category_id") @JsonDeserialize(using = LenientIntegerDeserializer.class) Integer categoryId,
+        @JsonProperty("category_name") String categoryName,
+        @JsonProperty("parent_id") @JsonDeserialize(using = LenientIntegerDeserializer.class) Integer parentId
+) {
+
+    /**
+     * Map compacte renvoyée par les endpoints de catégories
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>(4);
+        map.put("category_id", categoryId);
+        map.put("category_name", categoryName);
+        map.put("parent_id", parentId);
+        return map;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Programme EPG renvoyé par l'API Xtream, limité aux champs sauvegardés
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record XtreamEpgListing(
+        @JsonProperty("title") String title,
+        @JsonProperty("start") String start,
+        @JsonProperty("end") String end,
+        @JsonProperty("description") @JsonAlias("desc") String description
+) {
+}
@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+import com.example.demo.utils.LenientIntegerDeserializer;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Élément de get_vod_streams, limité aux champs utilisés par la synchronisation
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record XtreamVod(
+        @JsonProperty("stream_id") @JsonDeserialize(using = LenientIntegerDeserializer.class) Integer streamId,
+        @JsonProperty("name") String name,
+        @JsonProperty("category_id") @JsonDeserialize(using = LenientIntegerDeserializer.class) Integer categoryId,
+        @JsonProperty("category_name") String categoryName,
+        @JsonProperty("stream_icon") String streamIcon,
+        @JsonProperty("container_extension") String containerExtension
+) {
+}
@@ -0,0 +1,26 @@
+package com.example.demo.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Empreinte du dernier catalogue synchronisé pour un utilisateur et un type de contenu
+ */
+@Document(collection = "catalog_fingerprints")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogFingerprint {
+    @Id
+    private String id; // ownerId + ":" + type
+    private String ownerId;
+    private TypeContenu type;
+    private Long fingerprint;
+    private Integer itemCount;
+    private String m3uDigest; // digest du M3U dont est issu le catalogue écrit, null s'il vient de l'API
+    private LocalDateTime updatedAt;
+}
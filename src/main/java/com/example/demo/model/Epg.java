@@ -2,9 +2,17 @@ package com.example.demo.model;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "epg")
+@CompoundIndexes({
+        // Programmes d'un stream d'un utilisateur (lecture, remplacement) et détection des doublons (début, titre)
+        @CompoundIndex(name = "owner_streamId_start_title", def = "{'ownerId': 1, 'streamId': 1, 'start': 1, 'title': 1}"),
+        // Dernier programme connu d'un stream (échéance du guide)
+        @CompoundIndex(name = "owner_streamId_end", def = "{'ownerId': 1, 'streamId': 1, 'end': -1}")
+})
 @Data
 @Builder
 @AllArgsConstructor
@@ -12,6 +20,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 public class Epg {
     @Id
     private String id;
+    private String ownerId;     // Utilisateur propriétaire : les stream_id se recoupent d'un fournisseur à l'autre
     private Integer streamId;
     private String title;
     private String start;
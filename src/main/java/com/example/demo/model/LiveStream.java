@@ -4,9 +4,20 @@ package com.example.demo.model;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "live_streams")
+@CompoundIndexes({
+        // Clé métier d'un catalogue : un seul document par streamId et par utilisateur
+        @CompoundIndex(name = "owner_streamId_unique", def = "{'ownerId': 1, 'streamId': 1}", unique = true),
+        // Catalogue d'un utilisateur parcouru par catégorie, trié par nom
+        @CompoundIndex(name = "owner_category_name", def = "{'ownerId': 1, 'categoryId': 1, 'name': 1}"),
+        // Recherche par nom de catégorie
+        @CompoundIndex(name = "categoryName_name", def = "{'categoryName': 1, 'name': 1}")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -15,10 +26,16 @@ public class LiveStream {
 
     @Id
     private String id;
+    @Indexed
     private Integer streamId;
-    private String name;
+    @Indexed
+    private String name;   // Recherche par nom (regex) : parcours d'index plutôt que de collection
     private Integer categoryId;
     private String categoryName;
     private String streamUrl;
     private String streamIcon;
+    private String epgChannelId; // Chaîne du guide XMLTV (epg_channel_id de l'API, tvg-id du M3U)
+
+    private String ownerId;     // Utilisateur propriétaire du catalogue
+    private Long fingerprint;   // Empreinte des champs synchronisés
 }
@@ -2,9 +2,20 @@ package com.example.demo.model;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "series")
+@CompoundIndexes({
+        // Clé métier d'un catalogue : un seul document par seriesId et par utilisateur
+        @CompoundIndex(name = "owner_seriesId_unique", def = "{'ownerId': 1, 'seriesId': 1}", unique = true),
+        // Catalogue d'un utilisateur parcouru par catégorie, trié par nom
+        @CompoundIndex(name = "owner_category_name", def = "{'ownerId': 1, 'categoryId': 1, 'name': 1}"),
+        // Recherche par nom de catégorie
+        @CompoundIndex(name = "categoryName_name", def = "{'categoryName': 1, 'name': 1}")
+})
 @Data
 @Builder
 @AllArgsConstructor
@@ -13,10 +24,15 @@ public class Series {
     @Id
     private String id;
 
+    @Indexed
     private Integer seriesId;
+    @Indexed
     private String name;
     private Integer categoryId;
     private String categoryName;
     private String streamUrl;
     private String streamIcon;
+
+    private String ownerId;     // Utilisateur propriétaire du catalogue
+    private Long fingerprint;   // Empreinte des champs synchronisés
 }
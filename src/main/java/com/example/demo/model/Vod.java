@@ -2,9 +2,20 @@ package com.example.demo.model;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "vods")
+@CompoundIndexes({
+        // Clé métier d'un catalogue : un seul document par vodId et par utilisateur
+        @CompoundIndex(name = "owner_vodId_unique", def = "{'ownerId': 1, 'vodId': 1}", unique = true),
+        // Catalogue d'un utilisateur parcouru par catégorie, trié par nom
+        @CompoundIndex(name = "owner_category_name", def = "{'ownerId': 1, 'categoryId': 1, 'name': 1}"),
+        // Recherche par nom de catégorie
+        @CompoundIndex(name = "categoryName_name", def = "{'categoryName': 1, 'name': 1}")
+})
 @Data
 @Builder
 @AllArgsConstructor
@@ -12,10 +23,15 @@ import org.springframework.data.mongodb.core.mapping.Document;
 public class Vod {
     @Id
     private String id;
+    @Indexed
     private Integer vodId;
+    @Indexed
     private String name;
     private Integer categoryId;
     private String categoryName;
     private String streamUrl;
     private String streamIcon;
+
+    private String ownerId;     // Utilisateur propriétaire du catalogue
+    private Long fingerprint;   // Empreinte des champs synchronisés
 }
@@ -4,18 +4,27 @@ import com.example.demo.model.Epg;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface EpgRepository extends MongoRepository<Epg, String> {
 
+    // Toutes les requêtes sont limitées à un utilisateur : les stream_id se recoupent entre fournisseurs
+
     // Pour éviter les doublons EPG
-    Optional<Epg> findByStreamIdAndStartAndTitle(Integer streamId, String start, String title);
+    Optional<Epg> findByOwnerIdAndStreamIdAndStartAndTitle(String ownerId, Integer streamId, String start, String title);
 
     // Récupère tous les EPG d'un stream
-    List<Epg> findByStreamId(Integer streamId);
+    List<Epg> findByOwnerIdAndStreamId(String ownerId, Integer streamId);
+
+    // Dernier programme connu d'un stream (les dates "yyyy-MM-dd HH:mm:ss" se trient comme des chaînes)
+    Optional<Epg> findFirstByOwnerIdAndStreamIdOrderByEndDesc(String ownerId, Integer streamId);
 
     // Supprime les anciens EPG d'un stream avant mise à jour
-    void deleteByStreamId(Integer streamId);
-}
\ No newline at end of file
+    void deleteByOwnerIdAndStreamId(String ownerId, Integer streamId);
+
+    // Supprime les EPG de plusieurs streams (remplacement par le guide XMLTV)
+    void deleteByOwnerIdAndStreamIdIn(String ownerId, Collection<Integer> streamIds);
+}
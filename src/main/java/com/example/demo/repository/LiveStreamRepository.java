@@ -3,6 +3,7 @@ package com.example.demo.repository;
 
 import com.example.demo.model.LiveStream;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -25,4 +26,17 @@ public interface LiveStreamRepository extends MongoRepository<LiveStream, String
 
     // Supprime par streamId
     void deleteByStreamId(Integer streamId);
+
+    // Catalogue d'un utilisateur
+    List<LiveStream> findByOwnerId(String ownerId);
+
+    long countByOwnerId(String ownerId);
+
+    // Clés et empreintes seulement, pour calculer le delta d'une synchronisation
+    @Query(value = "{ 'ownerId': ?0 }", fields = "{ 'streamId': 1, 'fingerprint': 1 }")
+    List<LiveStream> findFingerprintsByOwnerId(String ownerId);
+
+    // Chaînes rattachables au guide XMLTV (projection : streamId et epgChannelId seulement)
+    @Query(value = "{ 'ownerId': ?0, 'epgChannelId': { $nin: [null, ''] } }", fields = "{ 'streamId': 1, 'epgChannelId': 1 }")
+    List<LiveStream> findEpgChannelsByOwnerId(String ownerId);
 }
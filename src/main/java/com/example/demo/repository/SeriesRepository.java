@@ -2,6 +2,7 @@ package com.example.demo.repository;
 
 import com.example.demo.model.Series;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,4 +18,13 @@ public interface SeriesRepository extends MongoRepository<Series, String> {
     List<Series> findByNameContainingIgnoreCase(String name);
 
     List<Series> findByCategoryName(String categoryName);
-}
\ No newline at end of file
+
+    // Catalogue d'un utilisateur
+    List<Series> findByOwnerId(String ownerId);
+
+    long countByOwnerId(String ownerId);
+
+    // Clés et empreintes seulement, pour calculer le delta d'une synchronisation
+    @Query(value = "{ 'ownerId': ?0 }", fields = "{ 'seriesId': 1, 'fingerprint': 1 }")
+    List<Series> findFingerprintsByOwnerId(String ownerId);
+}
@@ -2,6 +2,7 @@ package com.example.demo.repository;
 
 import com.example.demo.model.Vod;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,4 +18,13 @@ public interface VodRepository extends MongoRepository<Vod, String> {
     List<Vod> findByNameContainingIgnoreCase(String name);
 
     List<Vod> findByCategoryName(String categoryName);
+
+    // Catalogue d'un utilisateur
+    List<Vod> findByOwnerId(String ownerId);
+
+    long countByOwnerId(String ownerId);
+
+    // Clés et empreintes seulement, pour calculer le delta d'une synchronisation
+    @Query(value = "{ 'ownerId': ?0 }", fields = "{ 'vodId': 1, 'fingerprint': 1 }")
+    List<Vod> findFingerprintsByOwnerId(String ownerId);
 }
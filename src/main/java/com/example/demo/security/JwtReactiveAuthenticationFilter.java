@@ -0,0 +1,142 @@
+package com.example.demo.security;
+
+import com.example.demo.model.Compte;
+import com.example.demo.service.CompteService;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Optional;
+
+/**
+ * Équivalent WebFlux de {@link JwtAuthenticationFilter} : mêmes règles, mêmes réponses d'erreur.
+ * La recherche du compte (Mongo bloquant) s'exécute sur boundedElastic, jamais sur la boucle Netty.
+ */
+public class JwtReactiveAuthenticationFilter implements WebFilter {
+
+    private final JwtUtil jwtUtil;
+    private final CompteService compteService;
+
+    public JwtReactiveAuthenticationFilter(JwtUtil jwtUtil, CompteService compteService) {
+        this.jwtUtil = jwtUtil;
+        this.compteService = compteService;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+
+        // Ne pas appliquer le filtre aux endpoints publics
+        if (isPublic(path)) {
+            return chain.filter(exchange);
+        }
+
+        // Si pas de header ou ne commence pas par "Bearer ", continuer sans authentification
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return chain.filter(exchange);
+        }
+
+        String jwt = authHeader.substring(7);
+
+        return Mono.fromCallable(() -> authenticate(jwt))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    System.err.println("❌ Erreur lors de l'authentification JWT: " + e.getMessage());
+                    return Mono.just(Outcome.rejected(HttpStatus.UNAUTHORIZED, "Erreur d'authentification"));
+                })
+                .flatMap(outcome -> {
+                    if (outcome.rejection != null) {
+                        return reject(exchange.getResponse(), outcome.rejection, outcome.message);
+                    }
+                    if (outcome.authentication == null) {
+                        return chain.filter(exchange);
+                    }
+                    return chain.filter(exchange)
+                            .contextWrite(ReactiveSecurityContextHolder.withAuthentication(outcome.authentication));
+                });
+    }
+
+    /**
+     * Valide le token et charge le compte (bloquant)
+     */
+    private Outcome authenticate(String jwt) {
+        if (!jwtUtil.validateToken(jwt)) {
+            return Outcome.rejected(HttpStatus.UNAUTHORIZED, "Token invalide ou expiré");
+        }
+
+        String email = jwtUtil.extractEmail(jwt);
+        if (email == null) {
+            return Outcome.anonymous();
+        }
+
+        Optional<Compte> compteOpt = compteService.trouverParEmail(email);
+        if (compteOpt.isEmpty()) {
+            return Outcome.anonymous();
+        }
+
+        // Vérifie si le compte est actif
+        if (!compteOpt.get().isActive()) {
+            return Outcome.rejected(HttpStatus.FORBIDDEN, "Compte désactivé");
+        }
+
+        return Outcome.authenticated(new UsernamePasswordAuthenticationToken(
+                email,
+                null,
+                new ArrayList<>() // Pas de rôles pour l'instant
+        ));
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, HttpStatus status, String message) {
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        byte[] body = ("{\"error\": \"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+        DataBuffer buffer = response.bufferFactory().wrap(body);
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    private boolean isPublic(String path) {
+        return path.startsWith("/api/auth/") ||
+                path.startsWith("/actuator/") ||
+                path.startsWith("/v3/api-docs") ||
+                path.startsWith("/swagger-ui");
+    }
+
+    /**
+     * Résultat de l'authentification : compte authentifié, requête anonyme ou rejet
+     */
+    private static class Outcome {
+        final UsernamePasswordAuthenticationToken authentication;
+        final HttpStatus rejection;
+        final String message;
+
+        private Outcome(UsernamePasswordAuthenticationToken authentication, HttpStatus rejection, String message) {
+            this.authentication = authentication;
+            this.rejection = rejection;
+            this.message = message;
+        }
+
+        static Outcome authenticated(UsernamePasswordAuthenticationToken authentication) {
+            return new Outcome(authentication, null, null);
+        }
+
+        static Outcome anonymous() {
+            return new Outcome(null, null, null);
+        }
+
+        static Outcome rejected(HttpStatus status, String message) {
+            return new Outcome(null, status, message);
+        }
+    }
+}
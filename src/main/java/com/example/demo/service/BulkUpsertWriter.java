@@ -0,0 +1,143 @@
+package com.example.demo.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Écriture de catalogues par upserts bulk non ordonnés, clé métier (ownerId + identifiant fournisseur) :
+ * un aller-retour Mongo par lot au lieu d'un find + save par élément.
+ *
+ * La taille des lots s'adapte à la latence observée, par collection : elle double tant qu'un lot
+ * s'écrit bien sous la latence cible et diminue de moitié dès qu'il la dépasse.
+ */
+@Service
+@RequiredArgsConstructor
+public class BulkUpsertWriter {
+
+    private static final int INITIAL_BATCH_SIZE = 500;
+    private static final int MIN_BATCH_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 5000;
+    private static final long TARGET_BATCH_LATENCY_MS = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    // Taille de lot courante par collection
+    private final Map<String, AtomicInteger> batchSizes = new ConcurrentHashMap<>();
+
+    /**
+     * Upsert des documents, identifiés par les champs clés donnés (noms des propriétés Mongo).
+     * Tous les champs mappés sont écrits ($set), sauf l'_id : un document existant garde le sien,
+     * un nouveau document en reçoit un. Bloquant.
+     *
+     * @return nombre de documents insérés ou modifiés
+     */
+    public <T> int upsertAll(Class<T> type, List<T> documents, String... keyFields) {
+        if (documents.isEmpty()) {
+            return 0;
+        }
+
+        String collection = mongoTemplate.getCollectionName(type);
+        AtomicInteger batchSize = batchSizes.computeIfAbsent(collection, c -> new AtomicInteger(INITIAL_BATCH_SIZE));
+        List<String> fieldNames = fieldNamesOf(type);
+        int written = 0;
+        int batches = 0;
+
+        for (int from = 0; from < documents.size(); ) {
+            int to = Math.min(from + batchSize.get(), documents.size());
+            BulkOperations ops = mongoTemplate.bulkOps(BulkMode.UNORDERED, type);
+            for (T document : documents.subList(from, to)) {
+                Document fields = new Document();
+                mongoTemplate.getConverter().write(document, fields);
+                fields.remove("_id");
+                ops.upsert(keyQuery(fields, keyFields), updateOf(fields, fieldNames));
+            }
+
+            long start = System.nanoTime();
+            BulkWriteResult result = ops.execute();
+            adapt(batchSize, to - from, (System.nanoTime() - start) / 1_000_000);
+
+            written += result.getUpserts().size() + result.getModifiedCount();
+            batches++;
+            from = to;
+        }
+
+        System.out.println("💾 Bulk upsert " + collection + ": " + documents.size() + " documents en " + batches
+                + " lots, " + written + " écrits (lot suivant: " + batchSize.get() + ")");
+        return written;
+    }
+
+    /**
+     * Ajuste la taille de lot : x2 si le lot plein s'écrit en moins de la moitié de la cible, /2 au-delà de la cible
+     */
+    private static void adapt(AtomicInteger batchSize, int size, long elapsedMs) {
+        int current = batchSize.get();
+        if (elapsedMs > TARGET_BATCH_LATENCY_MS) {
+            batchSize.compareAndSet(current, Math.max(MIN_BATCH_SIZE, current / 2));
+        } else if (size == current && elapsedMs < TARGET_BATCH_LATENCY_MS / 2) {
+            batchSize.compareAndSet(current, Math.min(MAX_BATCH_SIZE, current * 2));
+        }
+    }
+
+    /**
+     * $set des champs présents ; les champs mappés absents (valeur null) sont retirés ($unset),
+     * comme le ferait un save qui remplace le document
+     */
+    private static Update updateOf(Document fields, List<String> fieldNames) {
+        Document unset = new Document();
+        for (String fieldName : fieldNames) {
+            if (!fields.containsKey(fieldName)) {
+                unset.put(fieldName, "");
+            }
+        }
+
+        Document update = new Document("$set", fields);
+        if (!unset.isEmpty()) {
+            update.put("$unset", unset);
+        }
+        return Update.fromDocument(update);
+    }
+
+    private List<String> fieldNamesOf(Class<?> type) {
+        List<String> fieldNames = new ArrayList<>();
+        mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(type)
+                .doWithProperties((PropertyHandler<MongoPersistentProperty>) property -> {
+                    if (!property.isIdProperty()) {
+                        fieldNames.add(property.getFieldName());
+                    }
+                });
+        return fieldNames;
+    }
+
+    private static Query keyQuery(Document fields, String... keyFields) {
+        Criteria criteria = Criteria.where(keyFields[0]).is(fields.get(keyFields[0]));
+        for (int i = 1; i < keyFields.length; i++) {
+            criteria = criteria.and(keyFields[i]).is(fields.get(keyFields[i]));
+        }
+        return Query.query(criteria);
+    }
+
+    /**
+     * Tailles de lot courantes par collection
+     */
+    public Map<String, Integer> getBatchSizes() {
+        Map<String, Integer> sizes = new ConcurrentHashMap<>();
+        batchSizes.forEach((collection, size) -> sizes.put(collection, size.get()));
+        return sizes;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.service;
+
+import com.example.demo.model.CatalogFingerprint;
+import com.example.demo.model.TypeContenu;
+import com.example.demo.repository.CatalogFingerprintRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mémorise l'empreinte du dernier catalogue synchronisé (live, VOD, séries) par utilisateur,
+ * pour terminer une synchronisation sans écriture quand rien n'a changé
+ */
+@Service
+@RequiredArgsConstructor
+public class CatalogFingerprintService {
+
+    private final CatalogFingerprintRepository catalogFingerprintRepository;
+
+    /**
+     * Vrai si le catalogue reçu est identique au dernier catalogue enregistré
+     */
+    public boolean isUnchanged(String ownerId, TypeContenu type, long fingerprint, int itemCount) {
+        return catalogFingerprintRepository.findById(idOf(ownerId, type))
+                .map(stored -> stored.getFingerprint() != null
+                        && stored.getFingerprint() == fingerprint
+                        && stored.getItemCount() != null
+                        && stored.getItemCount() == itemCount)
+                .orElse(false);
+    }
+
+    /**
+     * Enregistre l'empreinte du catalogue qui vient d'être persisté.
+     * Le digest M3U précédent est oublié : le nouveau catalogue n'est pas forcément issu de ce M3U.
+     */
+    public void record(String ownerId, TypeContenu type, long fingerprint, int itemCount) {
+        catalogFingerprintRepository.save(CatalogFingerprint.builder()
+                .id(idOf(ownerId, type))
+                .ownerId(ownerId)
+                .type(type)
+                .fingerprint(fingerprint)
+                .itemCount(itemCount)
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Digest du M3U dont est issu le dernier catalogue écrit pour l'utilisateur, null si inconnu
+     */
+    public String getM3uDigest(String ownerId, TypeContenu type) {
+        return catalogFingerprintRepository.findById(idOf(ownerId, type))
+                .map(CatalogFingerprint::getM3uDigest)
+                .orElse(null);
+    }
+
+    /**
+     * Mémorise le digest du M3U après l'écriture réussie du catalogue qui en est issu
+     */
+    public void recordM3uDigest(String ownerId, TypeContenu type, String digest) {
+        CatalogFingerprint stored = catalogFingerprintRepository.findById(idOf(ownerId, type))
+                .orElseGet(() -> CatalogFingerprint.builder()
+                        .id(idOf(ownerId, type))
+                        .ownerId(ownerId)
+                        .type(type)
+                        .build());
+        stored.setM3uDigest(digest);
+        stored.setUpdatedAt(LocalDateTime.now());
+        catalogFingerprintRepository.save(stored);
+    }
+
+    private String idOf(String ownerId, TypeContenu type) {
+        return ownerId + ":" + type.name();
+    }
+}
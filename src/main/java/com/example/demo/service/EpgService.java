@@ -1,174 +1,378 @@
 package com.example.demo.service;
 
 import com.example.demo.config.UserXtreamConfig;
+import com.example.demo.config.XtreamConfig;
+import com.example.demo.dto.XtreamEpgListing;
 import com.example.demo.model.Epg;
+import com.example.demo.model.LiveStream;
 import com.example.demo.repository.EpgRepository;
+import com.example.demo.repository.LiveStreamRepository;
+import com.example.demo.service.xtream.XtreamClient;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.net.URI;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
 public class EpgService {
 
+    // Streams synchronisés simultanément par défaut ; le limiteur par hôte plafonne le débit réel
+    private static final int DEFAULT_EPG_SYNC_CONCURRENCY = 8;
+
+    // Durée pendant laquelle la progression d'une synchronisation terminée reste consultable
+    private static final Duration PROGRESS_RETENTION = Duration.ofHours(1);
+
     private final EpgRepository epgRepository;
-    private final WebClient webClient;
+    private final LiveStreamRepository liveStreamRepository;
+    private final XtreamClient xtreamClient;
     private final UserContextService userContextService;
+    private final Environment environment;
+
+    // Dernière synchronisation EPG par utilisateur (en cours ou terminée depuis moins de PROGRESS_RETENTION)
+    private final Map<String, EpgSyncProgress> progressByUser = new ConcurrentHashMap<>();
 
     /**
      * Récupère l'EPG pour un stream spécifique pour un utilisateur
      */
-    public List<Map<String, Object>> fetchEpgForStreamForUser(String userId, Integer streamId) {
-        UserXtreamConfig config = userContextService.getUserXtreamConfigOrThrow(userId);
-        return fetchEpgForStream(config, streamId);
+    public Mono<List<Map<String, Object>>> fetchEpgForStreamForUser(String userId, Integer streamId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> fetchEpgForStream(config, streamId, false));
     }
 
     /**
-     * Récupère l'EPG pour un stream spécifique
+     * Récupère l'EPG pour un stream spécifique ; fresh : sans lecture du cache de réponses (synchronisation)
      */
-    private List<Map<String, Object>> fetchEpgForStream(UserXtreamConfig config, Integer streamId) {
-        try {
-            List<Map<String, Object>> response = webClient.get()
-                    .uri(config.getEpgUrl(streamId))
-                    .retrieve()
-                    .bodyToMono(List.class)
-                    .block();
-
-            System.out.println("✅ Récupéré EPG pour stream " + streamId + ": " +
-                    (response != null ? response.size() : 0) + " programmes");
-            return response != null ? response : new ArrayList<>();
-
-        } catch (Exception e) {
-            System.err.println("❌ Erreur fetch EPG pour stream " + streamId + ": " + e.getMessage());
-            return new ArrayList<>();
-        }
+    private Mono<List<Map<String, Object>>> fetchEpgForStream(UserXtreamConfig config, Integer streamId, boolean fresh) {
+        return xtreamClient.getShortEpg(config, streamId, fresh)
+                .map(this::toMap)
+                .collectList()
+                .doOnNext(response -> System.out.println("✅ Récupéré EPG pour stream " + streamId + ": " +
+                        response.size() + " programmes"))
+                .onErrorResume(e -> {
+                    System.err.println("❌ Erreur fetch EPG pour stream " + streamId + ": " + e.getMessage());
+                    return Mono.just(new ArrayList<>());
+                });
     }
 
     /**
      * Récupère l'EPG complet pour un utilisateur
      */
-    public List<Map<String, Object>> fetchFullEpgForUser(String userId) {
-        UserXtreamConfig config = userContextService.getUserXtreamConfigOrThrow(userId);
-        return fetchFullEpg(config);
+    public Mono<List<Map<String, Object>>> fetchFullEpgForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(this::fetchFullEpg);
     }
 
     /**
      * Récupère l'EPG complet pour toutes les chaînes
      */
-    private List<Map<String, Object>> fetchFullEpg(UserXtreamConfig config) {
-        try {
-            List<Map<String, Object>> response = webClient.get()
-                    .uri(config.getFullEpgUrl())
-                    .retrieve()
-                    .bodyToMono(List.class)
-                    .block();
-
-            System.out.println("✅ Récupéré EPG complet: " +
-                    (response != null ? response.size() : 0) + " programmes");
-            return response != null ? response : new ArrayList<>();
+    private Mono<List<Map<String, Object>>> fetchFullEpg(UserXtreamConfig config) {
+        return xtreamClient.getEpg(config)
+                .map(this::toMap)
+                .collectList()
+                .doOnNext(response -> System.out.println("✅ Récupéré EPG complet: " +
+                        response.size() + " programmes"))
+                .onErrorResume(e -> {
+                    System.err.println("❌ Erreur fetch EPG complet: " + e.getMessage());
+                    return Mono.just(new ArrayList<>());
+                });
+    }
 
-        } catch (Exception e) {
-            System.err.println("❌ Erreur fetch EPG complet: " + e.getMessage());
-            return new ArrayList<>();
-        }
+    private Map<String, Object> toMap(XtreamEpgListing listing) {
+        Map<String, Object> map = new HashMap<>(8);
+        map.put("title", listing.title());
+        map.put("start", listing.start());
+        map.put("end", listing.end());
+        map.put("description", listing.description());
+        return map;
     }
 
     /**
-     * Sauvegarde l'EPG pour un stream avec validation et parsing amélioré
+     * Sauvegarde l'EPG pour un stream : fusion par clé (début, titre) avec l'EPG déjà stocké,
+     * une synchronisation répétée ne crée donc pas de doublons
      */
-    public void saveEpgForStream(Integer streamId, List<Map<String, Object>> epgList) {
+    public void saveEpgForStream(String userId, Integer streamId, List<Map<String, Object>> epgList) {
         if (epgList == null || epgList.isEmpty()) {
             return;
         }
 
-        int savedCount = 0;
+        List<XtreamEpgListing> listings = new ArrayList<>(epgList.size());
         int errorCount = 0;
 
         for (Map<String, Object> e : epgList) {
             try {
-                // Validation des données essentielles
-                String title = (String) e.get("title");
-                String start = (String) e.get("start");
-                String end = (String) e.get("end");
-
-                if (title == null || title.trim().isEmpty()) {
-                    continue; // Ignore les entrées sans titre
-                }
-
-                Epg epg = Epg.builder()
-                        .streamId(streamId)
-                        .title(title.trim())
-                        .start(start)
-                        .end(end)
-                        .description(getStringSafely(e, "description", "desc"))
-                        .build();
-
-                epgRepository.save(epg);
-                savedCount++;
-
+                listings.add(new XtreamEpgListing(
+                        (String) e.get("title"),
+                        (String) e.get("start"),
+                        (String) e.get("end"),
+                        getStringSafely(e, "description", "desc")));
             } catch (Exception ex) {
                 errorCount++;
                 System.err.println("❌ Erreur sauvegarde EPG: " + ex.getMessage());
             }
         }
 
-        System.out.println("📺 EPG Stream " + streamId + ": " + savedCount + " sauvegardés, " + errorCount + " erreurs");
+        int saved = mergeEpgForStream(userId, streamId, listings);
+        System.out.println("📺 EPG Stream " + streamId + ": " + saved + " programmes fusionnés, " + errorCount + " erreurs");
     }
 
     /**
      * Synchronise l'EPG pour un stream pour un utilisateur
      */
-    public EpgSyncResult syncEpgForStreamForUser(String userId, Integer streamId) {
-        try {
-            List<Map<String, Object>> epgList = fetchEpgForStreamForUser(userId, streamId);
+    public Mono<EpgSyncResult> syncEpgForStreamForUser(String userId, Integer streamId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> syncEpgForStream(userId, config, streamId))
+                .onErrorResume(e -> Mono.just(new EpgSyncResult(streamId, 0, "❌ Erreur: " + e.getMessage())));
+    }
 
-            if (epgList.isEmpty()) {
-                return new EpgSyncResult(streamId, 0, "Aucune donnée EPG disponible");
-            }
+    /**
+     * Télécharge puis sauvegarde l'EPG d'un stream ; la sauvegarde Mongo s'exécute sur boundedElastic
+     */
+    private Mono<EpgSyncResult> syncEpgForStream(String userId, UserXtreamConfig config, Integer streamId) {
+        return fetchEpgForStream(config, streamId, true)
+                .flatMap(epgList -> {
+                    if (epgList.isEmpty()) {
+                        return Mono.just(new EpgSyncResult(streamId, 0, "Aucune donnée EPG disponible"));
+                    }
+
+                    return Mono.fromCallable(() -> {
+                        saveEpgForStream(userId, streamId, epgList);
+                        return new EpgSyncResult(streamId, epgList.size(), "✅ EPG synchronisé avec succès");
+                    }).subscribeOn(Schedulers.boundedElastic());
+                })
+                .onErrorResume(e -> Mono.just(new EpgSyncResult(streamId, 0, "❌ Erreur: " + e.getMessage())));
+    }
 
-            saveEpgForStream(streamId, epgList);
+    /**
+     * Synchronise l'EPG pour plusieurs streams en lot pour un utilisateur.
+     * Les streams sont traités en parallèle (concurrence configurée par fournisseur) ; chaque résultat
+     * est sauvegardé dès son arrivée et la progression est consultable via {@link #getSyncProgress(String)}.
+     */
+    public Mono<List<EpgSyncResult>> syncEpgForMultipleStreamsForUser(String userId, List<Integer> streamIds) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> {
+                    int concurrency = concurrencyFor(config);
+                    EpgSyncProgress progress = new EpgSyncProgress(streamIds.size(), concurrency);
+                    progressByUser.values().removeIf(previous -> previous.isFinishedBefore(
+                            System.currentTimeMillis() - PROGRESS_RETENTION.toMillis()));
+                    progressByUser.put(userId, progress);
+                    System.out.println("📺 Synchronisation EPG pour " + streamIds.size() + " streams (" + concurrency + " en parallèle)...");
+
+                    // Le débit vers le fournisseur est réglé par son limiteur (token bucket), pas par une pause
+                    return Flux.fromIterable(streamIds)
+                            .flatMap(streamId -> syncEpgForStream(userId, config, streamId)
+                                    .doOnNext(result -> {
+                                        int done = progress.record(result);
+                                        if (done % 100 == 0) {
+                                            System.out.println("📊 Progression EPG: " + done + "/" + streamIds.size());
+                                        }
+                                    }), concurrency)
+                            .collectList()
+                            .doFinally(signal -> {
+                                progress.finish();
+                                System.out.println("📺 EPG terminé: " + progress);
+                            });
+                });
+    }
 
-            return new EpgSyncResult(streamId, epgList.size(), "✅ EPG synchronisé avec succès");
+    /**
+     * Progression de la dernière synchronisation EPG d'un utilisateur
+     */
+    public Optional<EpgSyncProgress> getSyncProgress(String userId) {
+        long threshold = System.currentTimeMillis() - PROGRESS_RETENTION.toMillis();
+        EpgSyncProgress progress = progressByUser.computeIfPresent(userId,
+                (id, current) -> current.isFinishedBefore(threshold) ? null : current);
+        return Optional.ofNullable(progress);
+    }
+
+    /**
+     * Requêtes EPG en vol pour un fournisseur : xtream.epg.sync.concurrency.<hôte>,
+     * sinon xtream.epg.sync.concurrency
+     */
+    private int concurrencyFor(UserXtreamConfig config) {
+        int fallback = environment.getProperty("xtream.epg.sync.concurrency", Integer.class, DEFAULT_EPG_SYNC_CONCURRENCY);
+        String host = hostOf(config.getBaseUrl());
+        int concurrency = host.isEmpty()
+                ? fallback
+                : environment.getProperty("xtream.epg.sync.concurrency." + host, Integer.class, fallback);
+        return Math.max(1, concurrency);
+    }
 
+    private static String hostOf(String baseUrl) {
+        try {
+            String host = URI.create(baseUrl.trim()).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
         } catch (Exception e) {
-            return new EpgSyncResult(streamId, 0, "❌ Erreur: " + e.getMessage());
+            return "";
         }
     }
 
     /**
-     * Synchronise l'EPG pour plusieurs streams en lot pour un utilisateur
+     * Synchronise l'EPG multi-jours (get_simple_data_table) de plusieurs streams pour un utilisateur.
+     * Sans liste fournie, tous les live streams de l'utilisateur sont traités. Un stream n'est
+     * re-téléchargé que si son guide stocké s'arrête dans moins de EPG_TABLE_REFRESH_MARGIN_HOURS,
+     * avec la concurrence configurée pour le fournisseur.
+     */
+    public Mono<List<EpgSyncResult>> syncEpgTablesForUser(String userId, List<Integer> streamIds) {
+        Mono<List<Integer>> targets = streamIds != null && !streamIds.isEmpty()
+                ? Mono.just(streamIds)
+                : Mono.fromCallable(() -> liveStreamRepository.findByOwnerId(userId).stream()
+                        .map(LiveStream::getStreamId)
+                        .filter(Objects::nonNull)
+                        .distinct()
+                        .toList())
+                .subscribeOn(Schedulers.boundedElastic());
+
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .zipWith(targets)
+                .flatMap(tuple -> {
+                    List<Integer> ids = tuple.getT2();
+                    LocalDateTime now = LocalDateTime.now();
+                    AtomicInteger done = new AtomicInteger();
+                    System.out.println("📺 EPG multi-jours pour " + ids.size() + " streams...");
+
+                    return Flux.fromIterable(ids)
+                            .flatMap(streamId -> syncEpgTableForStream(userId, tuple.getT1(), streamId, now)
+                                    .doOnNext(result -> {
+                                        if (done.incrementAndGet() % 50 == 0) {
+                                            System.out.println("📊 Progression EPG multi-jours: " + done.get() + "/" + ids.size());
+                                        }
+                                    }), concurrencyFor(tuple.getT1()))
+                            .collectList();
+                });
+    }
+
+    /**
+     * EPG multi-jours d'un stream : téléchargé seulement si le guide stocké arrive à échéance,
+     * restreint à la fenêtre [maintenant - EPG_TABLE_PAST_HOURS, maintenant + EPG_TABLE_HORIZON_DAYS]
+     * puis fusionné avec l'existant
      */
-    public List<EpgSyncResult> syncEpgForMultipleStreamsForUser(String userId, List<Integer> streamIds) {
-        List<EpgSyncResult> results = new ArrayList<>();
+    private Mono<EpgSyncResult> syncEpgTableForStream(String userId, UserXtreamConfig config, Integer streamId, LocalDateTime now) {
+        LocalDateTime from = now.minusHours(XtreamConfig.EPG_TABLE_PAST_HOURS);
+        LocalDateTime to = now.plusDays(XtreamConfig.EPG_TABLE_HORIZON_DAYS);
+
+        return Mono.fromCallable(() -> guideCovers(userId, streamId, now.plusHours(XtreamConfig.EPG_TABLE_REFRESH_MARGIN_HOURS)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(covered -> covered
+                        ? Mono.just(new EpgSyncResult(streamId, 0, "Guide à jour, aucun appel fournisseur"))
+                        : xtreamClient.getSimpleDataTable(config, streamId, true)
+                                .filter(listing -> inWindow(listing, from, to))
+                                .collectList()
+                                .flatMap(listings -> Mono.fromCallable(() -> mergeEpgForStream(userId, streamId, listings))
+                                        .subscribeOn(Schedulers.boundedElastic()))
+                                .map(count -> new EpgSyncResult(streamId, count, count > 0
+                                        ? "✅ EPG multi-jours fusionné"
+                                        : "Aucune donnée EPG disponible")))
+                .onErrorResume(e -> Mono.just(new EpgSyncResult(streamId, 0, "❌ Erreur: " + e.getMessage())));
+    }
 
-        System.out.println("📺 Synchronisation EPG pour " + streamIds.size() + " streams...");
+    /**
+     * Vrai si le dernier programme stocké du stream se termine après l'échéance donnée
+     */
+    private boolean guideCovers(String userId, Integer streamId, LocalDateTime deadline) {
+        return epgRepository.findFirstByOwnerIdAndStreamIdOrderByEndDesc(userId, streamId)
+                .map(epg -> parseDateTime(epg.getEnd()))
+                .map(end -> end.isAfter(deadline))
+                .orElse(false);
+    }
 
-        for (int i = 0; i < streamIds.size(); i++) {
-            Integer streamId = streamIds.get(i);
+    private boolean inWindow(XtreamEpgListing listing, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = parseDateTime(listing.start());
+        LocalDateTime end = parseDateTime(listing.end());
+        return start != null && end != null && end.isAfter(from) && start.isBefore(to);
+    }
 
-            try {
-                EpgSyncResult result = syncEpgForStreamForUser(userId, streamId);
-                results.add(result);
+    /**
+     * Fusion idempotente d'un tableau EPG avec l'existant, clé (début, titre) :
+     * les programmes inconnus sont ajoutés, ceux dont la fin ou la description a changé sont mis à jour,
+     * ceux de la plage couverte qui ont disparu (grille modifiée) ou en double sont supprimés.
+     * Les programmes hors de la plage couverte sont conservés. Les entrées sans titre ou sans début sont
+     * ignorées. Retourne le nombre de programmes reçus.
+     */
+    int mergeEpgForStream(String userId, Integer streamId, List<XtreamEpgListing> listings) {
+        List<XtreamEpgListing> valid = listings.stream()
+                .filter(listing -> listing.title() != null && !listing.title().trim().isEmpty())
+                .filter(listing -> listing.start() != null && !listing.start().isEmpty())
+                .toList();
+        if (valid.isEmpty()) {
+            return 0;
+        }
 
-                // Progression tous les 20 streams
-                if ((i + 1) % 20 == 0) {
-                    System.out.println("📊 Progression EPG: " + (i + 1) + "/" + streamIds.size());
-                }
+        // Plage couverte : du premier début à la dernière fin (ou au dernier début si aucune fin n'est connue)
+        String rangeStart = valid.stream().map(XtreamEpgListing::start).min(String::compareTo).orElseThrow();
+        String rangeEnd = valid.stream()
+                .map(listing -> listing.end() != null && listing.end().compareTo(listing.start()) > 0
+                        ? listing.end()
+                        : listing.start())
+                .max(String::compareTo).orElseThrow();
+
+        Map<String, Epg> existing = new HashMap<>();
+        List<Epg> toDelete = new ArrayList<>();
+        for (Epg epg : epgRepository.findByOwnerIdAndStreamId(userId, streamId)) {
+            if (existing.putIfAbsent(epgKey(epg.getStart(), epg.getTitle()), epg) != null) {
+                toDelete.add(epg);
+            }
+        }
 
-                // Pause pour éviter de surcharger l'API
-                Thread.sleep(100);
+        List<Epg> toSave = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (XtreamEpgListing listing : valid) {
+            String title = listing.title().trim();
+            String key = epgKey(listing.start(), title);
+            if (!seen.add(key)) {
+                continue;
+            }
+
+            String description = listing.description() != null ? listing.description().trim() : "";
+            Epg current = existing.remove(key);
+            if (current == null) {
+                toSave.add(Epg.builder()
+                        .ownerId(userId)
+                        .streamId(streamId)
+                        .title(title)
+                        .start(listing.start())
+                        .end(listing.end())
+                        .description(description)
+                        .build());
+            } else if (!Objects.equals(current.getEnd(), listing.end()) || !Objects.equals(current.getDescription(), description)) {
+                current.setEnd(listing.end());
+                current.setDescription(description);
+                toSave.add(current);
+            }
+        }
 
-            } catch (Exception e) {
-                results.add(new EpgSyncResult(streamId, 0, "❌ Erreur: " + e.getMessage()));
+        for (Epg epg : existing.values()) {
+            String start = epg.getStart();
+            if (start == null || (start.compareTo(rangeStart) >= 0 && start.compareTo(rangeEnd) < 0)) {
+                toDelete.add(epg);
             }
         }
 
-        return results;
+        if (!toDelete.isEmpty()) {
+            epgRepository.deleteAll(toDelete);
+        }
+        if (!toSave.isEmpty()) {
+            epgRepository.saveAll(toSave);
+        }
+
+        System.out.println("📺 EPG multi-jours stream " + streamId + ": " + toSave.size() + " écrits, " +
+                toDelete.size() + " supprimés, " + (seen.size() - toSave.size()) + " inchangés");
+        return seen.size();
+    }
+
+    private static String epgKey(String start, String title) {
+        return start + "|" + (title != null ? title.trim() : "");
     }
 
     /**
@@ -302,6 +506,64 @@ public class EpgService {
         }
     }
 
+    /**
+     * Progression d'une synchronisation EPG en lot (mise à jour depuis plusieurs threads)
+     */
+    public static class EpgSyncProgress {
+        private final int total;
+        private final int concurrency;
+        private final long startedAt = System.currentTimeMillis();
+        private final AtomicInteger done = new AtomicInteger();
+        private final AtomicInteger withData = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+        private final AtomicInteger entries = new AtomicInteger();
+        private volatile long finishedAt;
+
+        EpgSyncProgress(int total, int concurrency) {
+            this.total = total;
+            this.concurrency = concurrency;
+        }
+
+        int record(EpgSyncResult result) {
+            if (result.getMessage() != null && result.getMessage().startsWith("❌")) {
+                errors.incrementAndGet();
+            } else if (result.getEntriesCount() > 0) {
+                withData.incrementAndGet();
+                entries.addAndGet(result.getEntriesCount());
+            }
+            return done.incrementAndGet();
+        }
+
+        void finish() {
+            finishedAt = System.currentTimeMillis();
+        }
+
+        public boolean isRunning() { return finishedAt == 0; }
+
+        boolean isFinishedBefore(long timestamp) {
+            return !isRunning() && finishedAt < timestamp;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("running", isRunning());
+            map.put("total", total);
+            map.put("done", done.get());
+            map.put("with_data", withData.get());
+            map.put("errors", errors.get());
+            map.put("entries", entries.get());
+            map.put("concurrency", concurrency);
+            map.put("elapsed_ms", (isRunning() ? System.currentTimeMillis() : finishedAt) - startedAt);
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("EpgSyncProgress{%d/%d streams, %d avec EPG, %d erreurs, %d programmes}",
+                    done.get(), total, withData.get(), errors.get(), entries.get());
+        }
+    }
+
     /**
      * Classe pour encapsuler les résultats de synchronisation EPG
      */
@@ -1,9 +1,17 @@
 package com.example.demo.service;
 
+import com.example.demo.service.m3u.M3UCatalog;
+import com.example.demo.service.m3u.M3UIngestionService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -20,152 +28,219 @@ public class IntegratedContentSyncService {
     private final SeriesService seriesService;
     private final EpgService epgService;
     private final UserContextService userContextService;
+    private final M3UIngestionService m3uIngestionService;
+    private final XmltvIngestionService xmltvIngestionService;
 
     /**
-     * Synchronise TOUT le contenu pour un utilisateur spécifique
+     * Synchronise TOUT le contenu pour un utilisateur spécifique.
+     * Les étapes s'enchaînent sans bloquer de thread pendant les appels Xtream.
      */
-    @Transactional
-    public ContentSyncResult syncAllContentForUser(String userId) {
-        ContentSyncResult result = new ContentSyncResult();
-
-        try {
-            // Vérifier que l'utilisateur a une config Xtream valide
-            if (!userContextService.hasValidXtreamConfig(userId)) {
-                throw new RuntimeException("Configuration Xtream non trouvée ou invalide pour cet utilisateur");
-            }
-
-            System.out.println("🚀 Début de la synchronisation complète pour l'utilisateur " + userId);
-
-            // 1. Synchroniser les Live Streams
-            result.addLiveStreams(syncLiveStreamsForUser(userId));
-
-            // 2. Synchroniser les VOD
-            result.addVodContent(syncVodForUser(userId));
-
-            // 3. Synchroniser les Séries
-            result.addSeries(syncSeriesForUser(userId));
-
-            // 4. Synchroniser les EPG pour les live streams (optionnel)
-            if (!result.getLiveStreams().isEmpty()) {
-                syncEpgForUserStreams(userId, result.getLiveStreams());
-            }
-
-            System.out.println("✅ Synchronisation complète terminée pour l'utilisateur " + userId);
-
-        } catch (Exception e) {
-            System.err.println("❌ Erreur synchronisation complète: " + e.getMessage());
-            throw new RuntimeException("Échec de la synchronisation: " + e.getMessage(), e);
-        }
+    public Mono<ContentSyncResult> syncAllContentForUser(String userId) {
+        return Mono.fromCallable(() -> userContextService.hasValidXtreamConfig(userId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(valid -> {
+                    // Vérifier que l'utilisateur a une config Xtream valide
+                    if (!valid) {
+                        return Mono.error(new RuntimeException("Configuration Xtream non trouvée ou invalide pour cet utilisateur"));
+                    }
 
-        return result;
+                    System.out.println("🚀 Début de la synchronisation complète pour l'utilisateur " + userId);
+                    ContentSyncResult result = new ContentSyncResult();
+
+                    // 1. Live Streams, 2. VOD, 3. Séries, 4. EPG des live streams (optionnel)
+                    return syncLiveStreamsForUser(userId).doOnNext(result::addLiveStreams)
+                            .then(syncVodForUser(userId).doOnNext(result::addVodContent))
+                            .then(syncSeriesForUser(userId).doOnNext(result::addSeries))
+                            .then(Mono.defer(() -> result.getLiveStreams().isEmpty()
+                                    ? Mono.<Void>empty()
+                                    : syncEpgForUserStreams(userId, result.getLiveStreams())))
+                            .thenReturn(result);
+                })
+                .doOnNext(result -> System.out.println("✅ Synchronisation complète terminée pour l'utilisateur " + userId))
+                .onErrorMap(e -> {
+                    System.err.println("❌ Erreur synchronisation complète: " + e.getMessage());
+                    return new RuntimeException("Échec de la synchronisation: " + e.getMessage(), e);
+                });
     }
 
     /**
      * Synchronise les Live Streams pour un utilisateur
      */
-    public List<Map<String, Object>> syncLiveStreamsForUser(String userId) {
-        try {
-            List<Map<String, Object>> streams = liveStreamService.syncAndSaveLiveStreamsForUser(userId);
-            System.out.println("✅ " + streams.size() + " live streams synchronisés pour l'utilisateur " + userId);
-            return streams;
-        } catch (Exception e) {
-            System.err.println("❌ Erreur sync live streams: " + e.getMessage());
-            throw e;
-        }
+    public Mono<List<Map<String, Object>>> syncLiveStreamsForUser(String userId) {
+        return liveStreamService.syncAndSaveLiveStreamsForUser(userId)
+                .doOnNext(streams -> System.out.println("✅ " + streams.size() + " live streams synchronisés pour l'utilisateur " + userId))
+                .doOnError(e -> System.err.println("❌ Erreur sync live streams: " + e.getMessage()));
     }
 
     /**
      * Synchronise les VOD pour un utilisateur
      */
-    public List<Map<String, Object>> syncVodForUser(String userId) {
-        try {
-            List<Map<String, Object>> vods = vodService.syncAndSaveVodStreamsForUser(userId);
-            System.out.println("✅ " + vods.size() + " VOD synchronisés pour l'utilisateur " + userId);
-            return vods;
-        } catch (Exception e) {
-            System.err.println("❌ Erreur sync VOD: " + e.getMessage());
-            throw e;
-        }
+    public Mono<List<Map<String, Object>>> syncVodForUser(String userId) {
+        return vodService.syncAndSaveVodStreamsForUser(userId)
+                .doOnNext(vods -> System.out.println("✅ " + vods.size() + " VOD synchronisés pour l'utilisateur " + userId))
+                .doOnError(e -> System.err.println("❌ Erreur sync VOD: " + e.getMessage()));
     }
 
     /**
      * Synchronise les Séries pour un utilisateur
      */
-    public List<Map<String, Object>> syncSeriesForUser(String userId) {
+    public Mono<List<Map<String, Object>>> syncSeriesForUser(String userId) {
+        return seriesService.syncAndSaveSeriesStreamsForUser(userId)
+                .doOnNext(series -> System.out.println("✅ " + series.size() + " séries synchronisées pour l'utilisateur " + userId))
+                .doOnError(e -> System.err.println("❌ Erreur sync séries: " + e.getMessage()));
+    }
+
+    /**
+     * Importe un fichier M3U fourni par l'utilisateur, sans passer par le fournisseur.
+     * Le fichier est écrit sur disque puis parsé en parallèle via un mapping mémoire.
+     */
+    public ContentSyncResult importM3UFileForUser(String userId, MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Fichier M3U vide ou absent");
+        }
+
+        Path tempFile = null;
         try {
-            List<Map<String, Object>> series = seriesService.syncAndSaveSeriesStreamsForUser(userId);
-            System.out.println("✅ " + series.size() + " séries synchronisées pour l'utilisateur " + userId);
-            return series;
-        } catch (Exception e) {
-            System.err.println("❌ Erreur sync séries: " + e.getMessage());
-            throw e;
+            tempFile = Files.createTempFile("m3u-import-", ".m3u");
+            file.transferTo(tempFile);
+
+            System.out.println("📥 Import M3U pour l'utilisateur " + userId + ": "
+                    + file.getOriginalFilename() + " (" + file.getSize() + " octets)");
+
+            return importM3UCatalog(userId, tempFile);
+
+        } catch (IOException e) {
+            System.err.println("❌ Erreur import M3U: " + e.getMessage());
+            throw new RuntimeException("Échec de l'import M3U: " + e.getMessage(), e);
+        } finally {
+            deleteTempFile(tempFile);
         }
     }
 
     /**
-     * Synchronise les EPG pour tous les live streams d'un utilisateur
+     * Variante WebFlux de l'import M3U : le fichier multipart est écrit sur disque sans bloquer
+     * la boucle Netty, puis parsé et enregistré sur le pool élastique.
      */
-    public void syncEpgForUserStreams(String userId, List<Map<String, Object>> liveStreams) {
-        if (liveStreams == null || liveStreams.isEmpty()) {
-            System.out.println("⚠ Aucun live stream pour synchroniser les EPG");
-            return;
-        }
+    public Mono<ContentSyncResult> importM3UFilePartForUser(String userId, FilePart file) {
+        return Mono.fromCallable(() -> Files.createTempFile("m3u-import-", ".m3u"))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(tempFile -> file.transferTo(tempFile)
+                        .then(Mono.fromCallable(() -> {
+                            long size = Files.size(tempFile);
+                            if (size == 0) {
+                                throw new IllegalArgumentException("Fichier M3U vide ou absent");
+                            }
+
+                            System.out.println("📥 Import M3U pour l'utilisateur " + userId + ": "
+                                    + file.filename() + " (" + size + " octets)");
+
+                            return importM3UCatalog(userId, tempFile);
+                        }).subscribeOn(Schedulers.boundedElastic()))
+                        .doFinally(signal -> deleteTempFile(tempFile)))
+                .onErrorMap(IOException.class, e -> {
+                    System.err.println("❌ Erreur import M3U: " + e.getMessage());
+                    return new RuntimeException("Échec de l'import M3U: " + e.getMessage(), e);
+                });
+    }
 
-        int successCount = 0;
-        int errorCount = 0;
+    private ContentSyncResult importM3UCatalog(String userId, Path file) throws IOException {
+        M3UCatalog catalog = m3uIngestionService.ingestFile(file);
 
-        System.out.println("📺 Synchronisation des EPG pour " + liveStreams.size() + " chaînes...");
+        liveStreamService.saveLiveStreamsForUser(userId, catalog.getLiveStreams());
+        vodService.saveVodStreamsForUser(userId, catalog.getVods());
+        seriesService.saveSeriesStreamsForUser(userId, catalog.getSeries());
 
-        // Limiter à 50 streams pour éviter de surcharger
-        int maxStreamsToSync = Math.min(liveStreams.size(), 50);
+        ContentSyncResult result = new ContentSyncResult();
+        result.addLiveStreams(catalog.getLiveStreams());
+        result.addVodContent(catalog.getVods());
+        result.addSeries(catalog.getSeries());
 
-        for (int i = 0; i < maxStreamsToSync; i++) {
-            Map<String, Object> stream = liveStreams.get(i);
-            try {
-                Integer streamId = parseIntSafely(stream.get("stream_id"));
-                if (streamId != null && streamId > 0) {
-                    epgService.syncEpgForStreamForUser(userId, streamId);
-                    successCount++;
+        System.out.println("✅ Import M3U terminé pour l'utilisateur " + userId + ": " + catalog);
+        return result;
+    }
 
-                    // Log de progression tous les 10 streams
-                    if (successCount % 10 == 0) {
-                        System.out.println("📊 EPG synchronisés: " + successCount + "/" + maxStreamsToSync);
-                    }
-                }
-            } catch (Exception e) {
-                errorCount++;
-                System.err.println("❌ Erreur EPG pour stream " + stream.get("stream_id") + ": " + e.getMessage());
-            }
+    private void deleteTempFile(Path tempFile) {
+        if (tempFile == null) return;
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            System.err.println("⚠ Impossible de supprimer le fichier temporaire " + tempFile + ": " + e.getMessage());
         }
+    }
 
-        System.out.println("📺 EPG terminé: " + successCount + " réussis, " + errorCount + " erreurs");
-
-        if (liveStreams.size() > maxStreamsToSync) {
-            System.out.println("⚠ Limité à " + maxStreamsToSync + " streams sur " + liveStreams.size() + " disponibles");
+    /**
+     * Synchronise les EPG pour tous les live streams d'un utilisateur.
+     * Le guide XMLTV complet est ingéré en une seule requête ; les appels get_short_epg
+     * par chaîne ne servent plus que de repli quand le fournisseur n'expose pas de guide exploitable.
+     */
+    public Mono<Void> syncEpgForUserStreams(String userId, List<Map<String, Object>> liveStreams) {
+        if (liveStreams == null || liveStreams.isEmpty()) {
+            System.out.println("⚠ Aucun live stream pour synchroniser les EPG");
+            return Mono.empty();
         }
+
+        return xmltvIngestionService.ingestForUser(userId)
+                .filter(result -> result.getStreamsWithGuide() > 0)
+                .onErrorResume(e -> {
+                    System.err.println("⚠ Guide XMLTV indisponible, repli sur l'EPG court: " + e.getMessage());
+                    return Mono.empty();
+                })
+                .switchIfEmpty(syncShortEpgForUserStreams(userId, liveStreams).then(Mono.empty()))
+                .then();
     }
 
     /**
-     * Synchronise l'EPG pour un stream spécifique
+     * Synchronise l'EPG court (get_short_epg) de toutes les chaînes, en parallèle avec
+     * la concurrence configurée pour le fournisseur
      */
-    public Map<String, Object> syncEpgForSingleStream(String userId, Integer streamId) {
-        try {
-            EpgService.EpgSyncResult result = epgService.syncEpgForStreamForUser(userId, streamId);
+    private Mono<Void> syncShortEpgForUserStreams(String userId, List<Map<String, Object>> liveStreams) {
+        List<Integer> streamIds = liveStreams.stream()
+                .map(stream -> parseIntSafely(stream.get("stream_id")))
+                .filter(streamId -> streamId != null && streamId > 0)
+                .distinct()
+                .toList();
+
+        return epgService.syncEpgForMultipleStreamsForUser(userId, streamIds)
+                .onErrorResume(e -> {
+                    System.err.println("❌ Erreur synchronisation EPG: " + e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
 
-            return Map.of(
-                    "success", true,
-                    "message", result.getMessage(),
-                    "stream_id", result.getStreamId(),
-                    "epg_count", result.getEntriesCount()
-            );
+    /**
+     * Progression de la dernière synchronisation EPG de l'utilisateur
+     */
+    public Map<String, Object> getEpgSyncProgress(String userId) {
+        return epgService.getSyncProgress(userId)
+                .map(EpgService.EpgSyncProgress::toMap)
+                .orElseGet(() -> Map.of("running", false, "total", 0));
+    }
 
-        } catch (Exception e) {
-            return Map.of(
-                    "success", false,
-                    "error", "❌ Erreur sync EPG pour stream " + streamId,
-                    "details", e.getMessage()
-            );
-        }
+    /**
+     * Ingère le guide XMLTV complet du fournisseur de l'utilisateur
+     */
+    public Mono<XmltvIngestionService.XmltvIngestionResult> syncXmltvForUser(String userId) {
+        return xmltvIngestionService.ingestForUser(userId)
+                .doOnError(e -> System.err.println("❌ Erreur ingestion XMLTV: " + e.getMessage()));
+    }
+
+    /**
+     * Synchronise l'EPG pour un stream spécifique
+     */
+    public Mono<Map<String, Object>> syncEpgForSingleStream(String userId, Integer streamId) {
+        return epgService.syncEpgForStreamForUser(userId, streamId)
+                .<Map<String, Object>>map(result -> Map.of(
+                        "success", true,
+                        "message", result.getMessage(),
+                        "stream_id", result.getStreamId(),
+                        "epg_count", result.getEntriesCount()
+                ))
+                .onErrorResume(e -> Mono.just(Map.<String, Object>of(
+                        "success", false,
+                        "error", "❌ Erreur sync EPG pour stream " + streamId,
+                        "details", e.getMessage()
+                )));
     }
 
     /**
@@ -210,28 +285,60 @@ public class IntegratedContentSyncService {
     /**
      * Synchronise seulement les Live Streams (méthode rapide)
      */
-    public ContentSyncResult syncLiveStreamsOnly(String userId) {
-        ContentSyncResult result = new ContentSyncResult();
-        result.addLiveStreams(syncLiveStreamsForUser(userId));
-        return result;
+    public Mono<ContentSyncResult> syncLiveStreamsOnly(String userId) {
+        return syncLiveStreamsForUser(userId).map(streams -> {
+            ContentSyncResult result = new ContentSyncResult();
+            result.addLiveStreams(streams);
+            return result;
+        });
     }
 
     /**
      * Synchronise seulement les VOD (méthode rapide)
      */
-    public ContentSyncResult syncVodOnly(String userId) {
-        ContentSyncResult result = new ContentSyncResult();
-        result.addVodContent(syncVodForUser(userId));
-        return result;
+    public Mono<ContentSyncResult> syncVodOnly(String userId) {
+        return syncVodForUser(userId).map(vods -> {
+            ContentSyncResult result = new ContentSyncResult();
+            result.addVodContent(vods);
+            return result;
+        });
     }
 
     /**
      * Synchronise seulement les Séries (méthode rapide)
      */
-    public ContentSyncResult syncSeriesOnly(String userId) {
-        ContentSyncResult result = new ContentSyncResult();
-        result.addSeries(syncSeriesForUser(userId));
-        return result;
+    public Mono<ContentSyncResult> syncSeriesOnly(String userId) {
+        return syncSeriesForUser(userId).map(series -> {
+            ContentSyncResult result = new ContentSyncResult();
+            result.addSeries(series);
+            return result;
+        });
+    }
+
+    /**
+     * Mode paresseux : ne synchronise que les listes de catégories (live, VOD, séries).
+     * Le contenu d'une catégorie est chargé à sa première consultation (category_id),
+     * ce qui rend une première session utilisable en quelques secondes.
+     */
+    public Mono<Map<String, Object>> syncCategoriesForUser(String userId) {
+        long start = System.currentTimeMillis();
+
+        return Mono.zip(
+                        liveStreamService.fetchLiveCategoriesForUser(userId),
+                        vodService.fetchVodCategoriesForUser(userId),
+                        seriesService.fetchSeriesCategoriesForUser(userId))
+                .map(categories -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("live_categories", categories.getT1());
+                    result.put("vod_categories", categories.getT2());
+                    result.put("series_categories", categories.getT3());
+                    result.put("duration_ms", System.currentTimeMillis() - start);
+
+                    System.out.println("✅ Catégories synchronisées pour l'utilisateur " + userId + ": "
+                            + categories.getT1().size() + " live, " + categories.getT2().size() + " VOD, "
+                            + categories.getT3().size() + " séries");
+                    return result;
+                });
     }
 
     /**
@@ -1,13 +1,25 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.XtreamCategory;
+import com.example.demo.dto.XtreamLiveStream;
 import com.example.demo.model.LiveStream;
+import com.example.demo.model.TypeContenu;
 import com.example.demo.repository.LiveStreamRepository;
+import com.example.demo.service.m3u.M3UCatalog;
+import com.example.demo.service.m3u.M3UIngestionService;
+import com.example.demo.service.xtream.ProviderUnavailableException;
+import com.example.demo.service.xtream.XtreamClient;
+import com.example.demo.utils.CatalogDelta;
+import com.example.demo.utils.FingerprintUtils;
 import com.example.demo.utils.StreamUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import com.example.demo.config.UserXtreamConfig;
 
 @Service
@@ -15,176 +27,164 @@ import com.example.demo.config.UserXtreamConfig;
 public class LiveStreamService {
 
     private final LiveStreamRepository liveStreamRepository;
-    private final WebClient webClient;
+    private final BulkUpsertWriter bulkUpsertWriter;
+    private final XtreamClient xtreamClient;
     private final UserContextService userContextService;
+    private final M3UIngestionService m3uIngestionService;
+    private final CatalogFingerprintService catalogFingerprintService;
 
     /**
      * Récupère les live streams pour un utilisateur spécifique
      */
-    public List<Map<String, Object>> fetchLiveStreamsForUser(String userId) {
+    public Mono<List<Map<String, Object>>> fetchLiveStreamsForUser(String userId) {
         // Récupérer la config Xtream de l'utilisateur
-        UserXtreamConfig config = userContextService.getUserXtreamConfigOrThrow(userId);
-
-        return fetchLiveStreamsFromXtream(config);
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(this::fetchLiveStreamsFromXtream);
     }
 
     /**
-     * Récupère la liste des streams depuis l'API Xtream avec une config spécifique
+     * Liste des catégories live : seule cette liste est chargée d'avance (mode paresseux)
      */
-    private List<Map<String, Object>> fetchLiveStreamsFromXtream(UserXtreamConfig config) {
-        try {
-            List<Map<String, Object>> streams = webClient.get()
-                    .uri(config.getLiveStreamsUrl())
-                    .retrieve()
-                    .bodyToMono(List.class)
-                    .block();
-
-            System.out.println("✅ Récupéré " + (streams != null ? streams.size() : 0) + " live streams depuis Xtream API");
-
-            // ✅ Ajouter l'URL de streaming complète
-            if (streams != null) {
-                for (Map<String, Object> stream : streams) {
-                    Integer streamId = StreamUtils.parseIntOrZero(stream.get("stream_id"));
-                    if (streamId > 0) {
-                        stream.put("stream_url", config.getLiveStreamUrl(streamId));
-                    }
-                }
-            }
-
-            return streams != null ? streams : new ArrayList<>();
+    public Mono<List<Map<String, Object>>> fetchLiveCategoriesForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> xtreamClient.getLiveCategories(config)
+                        .filter(category -> category.categoryId() != null)
+                        .map(XtreamCategory::toMap)
+                        .collectList());
+    }
 
-        } catch (Exception e) {
-            System.err.println("❌ Erreur API Live Streams : " + e.getMessage());
-            return fetchFromM3U(config);
-        }
+    /**
+     * Live streams d'une catégorie (category_id), chargés à la première consultation
+     * puis servis par le cache de réponses et rafraîchis en arrière-plan
+     */
+    public Mono<List<Map<String, Object>>> fetchLiveStreamsByCategoryForUser(String userId, Integer categoryId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> xtreamClient.getLiveStreamsByCategory(config, categoryId)
+                        .map(stream -> toMap(stream, config))
+                        .filter(item -> item.get("stream_id") != null)
+                        .collectList());
     }
 
     /**
-     * Fallback vers l'API M3U
+     * Émet les live streams un par un, sans agréger le catalogue en mémoire (réponse NDJSON).
+     * Le fallback M3U n'intervient que si l'API échoue avant le premier élément valide.
      */
-    private List<Map<String, Object>> fetchFromM3U(UserXtreamConfig config) {
-        try {
-            String m3uContent = webClient.get()
-                    .uri(config.getM3uUrl())
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
+    public Flux<Map<String, Object>> streamLiveStreamsForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMapMany(config -> Flux.defer(() -> {
+                    AtomicBoolean emitted = new AtomicBoolean();
+                    return xtreamClient.getLiveStreamsCatalog(config)
+                            .map(stream -> toMap(stream, config))
+                            .filter(item -> item.get("stream_id") != null)
+                            .doOnNext(item -> emitted.set(true))
+                            .onErrorResume(e -> !emitted.get() && !(e instanceof ProviderUnavailableException), e -> {
+                                System.err.println("❌ Erreur API Live Streams : " + e.getMessage());
+                                return Mono.fromCallable(() -> fetchFromM3U(config))
+                                        .subscribeOn(Schedulers.boundedElastic())
+                                        .flatMapIterable(items -> items);
+                            });
+                }));
+    }
 
-            return parseM3U(m3uContent);
-        } catch (Exception ex) {
-            throw new RuntimeException("Impossible de récupérer les streams via fallback M3U", ex);
-        }
+    /**
+     * Récupère la liste des streams depuis l'API Xtream avec une config spécifique (fallback M3U, sauf si le circuit du fournisseur est ouvert)
+     */
+    private Mono<List<Map<String, Object>>> fetchLiveStreamsFromXtream(UserXtreamConfig config) {
+        return fetchLiveStreamsFromApi(config, false)
+                .onErrorResume(e -> !(e instanceof ProviderUnavailableException), e -> {
+                    System.err.println("❌ Erreur API Live Streams : " + e.getMessage());
+                    return Mono.fromCallable(() -> fetchFromM3U(config))
+                            .subscribeOn(Schedulers.boundedElastic());
+                });
     }
 
     /**
-     * Parse un fichier M3U en liste de streams avec filtrage pour live streams uniquement
+     * Appel direct à l'API Xtream, sans fallback.
+     * Pour une synchronisation, le catalogue vient de la requête unique, sans cache : un catalogue réparti
+     * par catégorie peut manquer des éléments (catégorie nulle ou non listée) que le delta supprimerait en base,
+     * et une réponse en cache pourrait être antérieure aux derniers changements du fournisseur.
      */
-    private List<Map<String, Object>> parseM3U(String m3uContent) {
-        List<Map<String, Object>> streams = new ArrayList<>();
-        if (m3uContent == null) return streams;
-
-        String[] lines = m3uContent.split("\n");
-        Map<String, Object> currentStream = null;
-
-        for (String line : lines) {
-            if (line.startsWith("#EXTINF:")) {
-                if (isLiveStream(line)) {
-                    currentStream = new HashMap<>();
-                    String[] parts = line.split(",", 2);
-                    if (parts.length == 2) {
-                        currentStream.put("name", parts[1].trim());
+    private Mono<List<Map<String, Object>>> fetchLiveStreamsFromApi(UserXtreamConfig config, boolean forSync) {
+        Flux<XtreamLiveStream> source = forSync ? xtreamClient.getLiveStreams(config, true) : xtreamClient.getLiveStreamsCatalog(config);
+        return source
+                .map(stream -> toMap(stream, config))
+                .collectList()
+                .map(streams -> {
+                    // Un objet JSON (erreur d'authentification...) est décodé comme un seul élément sans identifiant
+                    if (!streams.isEmpty() && streams.stream().allMatch(item -> item.get("stream_id") == null)) {
+                        throw new IllegalStateException("Réponse Xtream inattendue: aucun élément avec stream_id");
                     }
-                    extractM3UMetadata(line, currentStream);
-                } else {
-                    currentStream = null;
-                }
-            } else if (line.startsWith("http") && currentStream != null) {
-                if (isValidLiveStreamUrl(line.trim())) {
-                    currentStream.put("stream_url", line.trim());
-                    currentStream.put("stream_id", StreamUtils.generateStreamId(line.trim()));
-                    currentStream.put("category_id", StreamUtils.getCategoryId((String) currentStream.get("group_title")));
-                    currentStream.put("category_name", currentStream.getOrDefault("group_title", "Live TV").toString());
-                    streams.add(currentStream);
-                }
-                currentStream = null;
-            }
-        }
 
-        System.out.println("✅ Parsé " + streams.size() + " live streams depuis M3U");
-        return streams;
+                    System.out.println("✅ Récupéré " + streams.size() + " live streams depuis Xtream API");
+                    return streams;
+                });
     }
 
     /**
-     * Extrait les métadonnées du M3U
+     * Map compacte d'un live stream de l'API, avec l'URL de streaming complète
      */
-    private void extractM3UMetadata(String extinf, Map<String, Object> stream) {
-        String tvgId = StreamUtils.extractAttribute(extinf, "tvg-id");
-        if (tvgId != null) stream.put("tvg_id", tvgId);
-
-        String tvgLogo = StreamUtils.extractAttribute(extinf, "tvg-logo");
-        if (tvgLogo != null) stream.put("stream_icon", tvgLogo);
-
-        String groupTitle = StreamUtils.extractAttribute(extinf, "group-title");
-        if (groupTitle != null) stream.put("group_title", groupTitle);
-
-        String country = StreamUtils.extractAttribute(extinf, "tvg-country");
-        if (country != null) stream.put("country", country);
+    private Map<String, Object> toMap(XtreamLiveStream stream, UserXtreamConfig config) {
+        Map<String, Object> map = new HashMap<>(8);
+        map.put("stream_id", stream.streamId());
+        map.put("name", stream.name());
+        map.put("category_id", stream.categoryId());
+        if (stream.categoryName() != null) {
+            map.put("category_name", stream.categoryName());
+        }
+        map.put("stream_icon", stream.streamIcon());
+        map.put("epg_channel_id", stream.epgChannelId());
 
-        String language = StreamUtils.extractAttribute(extinf, "tvg-language");
-        if (language != null) stream.put("language", language);
+        // ✅ Ajouter l'URL de streaming complète
+        if (stream.streamId() != null && stream.streamId() > 0) {
+            map.put("stream_url", config.getLiveStreamUrl(stream.streamId()));
+        }
+        return map;
     }
 
     /**
-     * Détermine si une ligne EXTINF correspond à un live stream
+     * Fallback vers le M3U (téléchargement et parsing partagés avec VOD et Séries)
      */
-    private boolean isLiveStream(String extinf) {
-        if (extinf == null) return false;
-
-        String line = extinf.toLowerCase();
-
-        String[] vodPatterns = {
-                "group-title=\"movies\"", "group-title=\"vod\"",
-                "group-title=\"series\"", "group-title=\"tv shows\"",
-                "group-title=\"films\"", "group-title=\"cinema\"",
-                "season", "episode", "s01e", "s02e",
-                "720p", "1080p", "4k", "bluray", "webrip"
-        };
-
-        for (String pattern : vodPatterns) {
-            if (line.contains(pattern)) {
-                return false;
-            }
+    private List<Map<String, Object>> fetchFromM3U(UserXtreamConfig config) {
+        try {
+            return m3uIngestionService.ingest(config).getLiveStreams();
+        } catch (Exception ex) {
+            throw new RuntimeException("Impossible de récupérer les streams via fallback M3U", ex);
         }
-
-        return true;
     }
 
     /**
-     * Valide si l'URL correspond à un live stream
+     * Fallback M3U de la synchronisation : peut signaler un M3U inchangé depuis la dernière écriture sans le parser
      */
-    private boolean isValidLiveStreamUrl(String url) {
-        if (url == null || url.trim().isEmpty()) {
-            return false;
+    private M3UCatalog fetchCatalogIfChanged(UserXtreamConfig config, String lastWrittenDigest) {
+        try {
+            return m3uIngestionService.ingestIfChanged(config, lastWrittenDigest);
+        } catch (Exception ex) {
+            throw new RuntimeException("Impossible de récupérer les streams via fallback M3U", ex);
         }
+    }
 
-        String lowerUrl = url.toLowerCase();
-
-        String[] videoExtensions = {
-                ".mp4", ".mkv", ".avi", ".mov", ".wmv",
-                ".flv", ".webm", ".m4v", ".3gp"
-        };
-
-        for (String ext : videoExtensions) {
-            if (lowerUrl.endsWith(ext)) {
-                return false;
-            }
+    /**
+     * Convertit les live streams stockés au format renvoyé par la synchronisation
+     */
+    private List<Map<String, Object>> toMaps(List<LiveStream> liveStreams) {
+        List<Map<String, Object>> streams = new ArrayList<>(liveStreams.size());
+        for (LiveStream liveStream : liveStreams) {
+            Map<String, Object> stream = new HashMap<>();
+            stream.put("stream_id", liveStream.getStreamId());
+            stream.put("name", liveStream.getName());
+            stream.put("category_id", liveStream.getCategoryId());
+            stream.put("category_name", liveStream.getCategoryName());
+            stream.put("stream_icon", liveStream.getStreamIcon());
+            stream.put("stream_url", liveStream.getStreamUrl());
+            stream.put("epg_channel_id", liveStream.getEpgChannelId());
+            streams.add(stream);
         }
-
-        return true;
+        return streams;
     }
 
     /**
-     * Sauvegarde en DB avec association à l'utilisateur
+     * Sauvegarde en DB avec association à l'utilisateur.
+     * Seul le delta (ajouts, modifications, suppressions) par rapport au catalogue stocké est écrit.
      */
     public void saveLiveStreamsForUser(String userId, List<Map<String, Object>> streams) {
         if (streams == null || streams.isEmpty()) {
@@ -192,9 +192,8 @@ public class LiveStreamService {
             return;
         }
 
-        int createdCount = 0;
-        int updatedCount = 0;
         int errorCount = 0;
+        Map<Integer, LiveStream> incoming = new LinkedHashMap<>();
 
         for (Map<String, Object> s : streams) {
             try {
@@ -206,29 +205,21 @@ public class LiveStreamService {
                     continue;
                 }
 
-                // Cherche si le stream existe déjà
-                LiveStream liveStream = liveStreamRepository.findByStreamId(streamId)
-                        .orElse(new LiveStream());
-
-                boolean isNew = (liveStream.getId() == null);
-
-                // Met à jour les champs
-                liveStream.setStreamId(streamId);
-                liveStream.setName(StreamUtils.getStringSafely(s, "name"));
-                liveStream.setCategoryId(StreamUtils.parseIntOrZero(s.get("category_id")));
-                liveStream.setCategoryName(StreamUtils.getStringSafely(s, "category_name", "category_id"));
-                liveStream.setStreamIcon(StreamUtils.getStringSafely(s, "stream_icon"));
-                liveStream.setStreamUrl(StreamUtils.getStringSafely(s, "stream_url"));
+                LiveStream liveStream = LiveStream.builder()
+                        .streamId(streamId)
+                        .name(StreamUtils.getStringSafely(s, "name"))
+                        .categoryId(StreamUtils.parseIntOrZero(s.get("category_id")))
+                        .categoryName(StreamUtils.getStringSafely(s, "category_name", "category_id"))
+                        .streamIcon(StreamUtils.getStringSafely(s, "stream_icon"))
+                        .streamUrl(StreamUtils.getStringSafely(s, "stream_url"))
+                        .epgChannelId(emptyToNull(StreamUtils.getStringSafely(s, "epg_channel_id", "tvg_id")))
+                        .ownerId(userId)
+                        .build();
 
                 // Validation avant sauvegarde
                 if (liveStream.getName() != null && !liveStream.getName().isEmpty()) {
-                    liveStreamRepository.save(liveStream);
-
-                    if (isNew) {
-                        createdCount++;
-                    } else {
-                        updatedCount++;
-                    }
+                    liveStream.setFingerprint(fingerprintOf(liveStream));
+                    incoming.put(streamId, liveStream);
                 } else {
                     System.out.println("⚠ Live stream invalide ignoré: " + s.get("name"));
                     errorCount++;
@@ -239,40 +230,105 @@ public class LiveStreamService {
             }
         }
 
-        System.out.println("✅ Live Streams pour user " + userId + ": " + createdCount + " créés, " + updatedCount + " mis à jour, " + errorCount + " erreurs");
+        if (incoming.isEmpty()) {
+            System.out.println("⚠ Aucun live stream valide, catalogue existant conservé");
+            return;
+        }
+
+        // Catalogue identique à la dernière synchronisation : rien à écrire
+        long catalogFingerprint = FingerprintUtils.catalogFingerprint(incoming.values(), LiveStream::getFingerprint);
+        if (catalogFingerprintService.isUnchanged(userId, TypeContenu.CHAINE, catalogFingerprint, incoming.size())
+                && liveStreamRepository.countByOwnerId(userId) == incoming.size()) {
+            System.out.println("⏭ Live Streams pour user " + userId + " inchangés (empreinte "
+                    + FingerprintUtils.toHex(catalogFingerprint) + "), aucune écriture");
+            return;
+        }
+
+        CatalogDelta<LiveStream> delta = CatalogDelta.compute(
+                incoming.values(),
+                liveStreamRepository.findFingerprintsByOwnerId(userId),
+                LiveStream::getStreamId,
+                LiveStream::getFingerprint,
+                (stored, updated) -> updated.setId(stored.getId()));
+
+        writeDelta(delta);
+        catalogFingerprintService.record(userId, TypeContenu.CHAINE, catalogFingerprint, incoming.size());
+
+        System.out.println("✅ Live Streams pour user " + userId + ": " + delta + ", " + errorCount + " erreurs");
+    }
+
+    /**
+     * Supprime les streams disparus (et les doublons), puis écrit les ajouts et modifications
+     * en upserts bulk clés (ownerId, streamId)
+     */
+    private void writeDelta(CatalogDelta<LiveStream> delta) {
+        if (!delta.getRemoved().isEmpty()) {
+            liveStreamRepository.deleteAllById(delta.getRemoved().stream().map(LiveStream::getId).toList());
+        }
+
+        bulkUpsertWriter.upsertAll(LiveStream.class, delta.getUpserts(), "ownerId", "streamId");
     }
 
     /**
-     * Synchronise et sauvegarde les live streams pour un utilisateur
+     * Chaîne vide ramenée à null (epg_channel_id absent ou vide : pas de guide XMLTV)
      */
-    public List<Map<String, Object>> syncAndSaveLiveStreamsForUser(String userId) {
-        List<Map<String, Object>> streams = fetchLiveStreamsForUser(userId);
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
 
-        if (streams.size() > 1000) {
-            saveLiveStreamsBatchForUser(userId, streams, 100);
-        } else {
-            saveLiveStreamsForUser(userId, streams);
-        }
+    /**
+     * Empreinte des champs synchronisés d'un live stream
+     */
+    static long fingerprintOf(LiveStream liveStream) {
+        return FingerprintUtils.fingerprint(
+                liveStream.getStreamId(),
+                liveStream.getName(),
+                liveStream.getCategoryId(),
+                liveStream.getCategoryName(),
+                liveStream.getStreamIcon(),
+                liveStream.getStreamUrl(),
+                liveStream.getEpgChannelId());
+    }
 
-        return streams;
+    /**
+     * Synchronise et sauvegarde les live streams pour un utilisateur.
+     * L'appel Xtream ne bloque aucun thread ; le fallback M3U et les écritures Mongo,
+     * bloquants, s'exécutent sur boundedElastic.
+     */
+    public Mono<List<Map<String, Object>>> syncAndSaveLiveStreamsForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> fetchLiveStreamsFromApi(config, true)
+                        .onErrorResume(e -> !(e instanceof ProviderUnavailableException), e -> {
+                            System.err.println("❌ Erreur API Live Streams : " + e.getMessage());
+                            return Mono.empty();
+                        })
+                        .flatMap(streams -> Mono.fromCallable(() -> {
+                            saveLiveStreamsForUser(userId, streams);
+                            return streams;
+                        }).subscribeOn(Schedulers.boundedElastic()))
+                        .switchIfEmpty(Mono.fromCallable(() -> syncFromM3U(userId, config))
+                                .subscribeOn(Schedulers.boundedElastic())));
     }
 
     /**
-     * Sauvegarde optimisée en lot pour de gros volumes
+     * Synchronisation depuis le M3U quand l'API Xtream ne répond pas (bloquant)
      */
-    private void saveLiveStreamsBatchForUser(String userId, List<Map<String, Object>> streams, int batchSize) {
-        if (streams == null || streams.isEmpty()) {
-            System.out.println("⚠ Aucun live stream à sauvegarder");
-            return;
+    private List<Map<String, Object>> syncFromM3U(String userId, UserXtreamConfig config) {
+        M3UCatalog catalog = fetchCatalogIfChanged(config,
+                catalogFingerprintService.getM3uDigest(userId, TypeContenu.CHAINE));
+        if (catalog.isUnchanged() && liveStreamRepository.countByOwnerId(userId) > 0) {
+            System.out.println("⏭ M3U inchangé: live streams déjà à jour en base, aucune écriture");
+            return toMaps(liveStreamRepository.findByOwnerId(userId));
         }
 
-        for (int i = 0; i < streams.size(); i += batchSize) {
-            int endIndex = Math.min(i + batchSize, streams.size());
-            List<Map<String, Object>> batch = streams.subList(i, endIndex);
-
-            System.out.println("📦 Traitement du lot " + (i / batchSize + 1) + " (" + batch.size() + " live streams)");
-            saveLiveStreamsForUser(userId, batch);
+        if (catalog.isUnchanged()) {
+            catalog = m3uIngestionService.ingest(config);
         }
+        List<Map<String, Object>> streams = catalog.getLiveStreams();
+        saveLiveStreamsForUser(userId, streams);
+        // Après l'écriture seulement : une sync en échec sera rejouée au prochain passage
+        catalogFingerprintService.recordM3uDigest(userId, TypeContenu.CHAINE, catalog.getDigest());
+        return streams;
     }
 
     /**
@@ -6,31 +6,41 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import com.example.demo.config.UserXtreamConfig;
+import com.example.demo.service.m3u.M3UAttribute;
+import com.example.demo.service.m3u.M3UContentClassifier;
+import com.example.demo.service.m3u.M3UEntry;
+import com.example.demo.service.m3u.M3UPlaylistCache;
+import com.example.demo.service.m3u.M3UTokenizer;
 @Service
 @RequiredArgsConstructor
 public class M3UFallbackService {
 
+    private static final int FILE_READ_BUFFER_SIZE = 64 * 1024;
+
+    // Une photo des statistiques est émise toutes les N entrées pendant le téléchargement
+    private static final int STATS_PROGRESS_INTERVAL = 5000;
+
     @Qualifier("m3uWebClient")
     private final WebClient m3uWebClient;
     private final UserContextService userContextService;
-
-    private static final int BUFFER_SIZE = 8192; // 8KB buffer
+    private final M3UPlaylistCache playlistCache;
 
     /**
-     * Version optimisée qui traite le fichier M3U en streaming pour un utilisateur
+     * Version optimisée qui traite le fichier M3U en streaming pour un utilisateur.
+     * La playlist est revalidée (requête conditionnelle) puis lue depuis le cache disque.
      */
     public Flux<ContentItem> fetchM3UContentForUser(String userId) {
         UserXtreamConfig config = userContextService.getUserXtreamConfigOrThrow(userId);
-        return fetchM3UContent(config.getM3uUrl());
+        return playlistCache.refresh(config)
+                .flatMapMany(playlist -> DataBufferUtils.read(
+                        playlist.getFile(), DefaultDataBufferFactory.sharedInstance, FILE_READ_BUFFER_SIZE))
+                .transform(this::processStreamingContent);
     }
 
     /**
@@ -41,236 +51,113 @@ public class M3UFallbackService {
                 .uri(m3uUrl)
                 .retrieve()
                 .bodyToFlux(DataBuffer.class)
-                .transform(this::processStreamingContent)
-                .scan(new LineBuffer(), this::accumulateLines)
-                .filter(LineBuffer::hasCompleteLine)
-                .flatMap(this::extractContentFromBuffer)
-                .filter(Objects::nonNull);
+                .transform(this::processStreamingContent);
     }
 
     /**
-     * Traite le contenu en streaming avec gestion des buffers
+     * Tokenise les octets reçus au fil de l'eau et émet les ContentItem complets
      */
-    private Flux<String> processStreamingContent(Flux<DataBuffer> dataBufferFlux) {
-        AtomicReference<String> remainder = new AtomicReference<>("");
-
-        return dataBufferFlux
-                .flatMap(dataBuffer -> {
-                    try {
-                        byte[] bytes = new byte[dataBuffer.readableByteCount()];
-                        dataBuffer.read(bytes);
-
-                        String chunk = remainder.get() + new String(bytes, StandardCharsets.UTF_8);
-                        String[] lines = chunk.split("\\r?\\n", -1);
-
-                        if (lines.length > 0) {
-                            remainder.set(lines[lines.length - 1]);
-                        }
-
-                        return Flux.fromArray(lines)
-                                .take(lines.length - 1)
-                                .filter(line -> !line.trim().isEmpty());
-                    } finally {
-                        DataBufferUtils.release(dataBuffer);
-                    }
-                })
-                .concatWith(Mono.fromCallable(() -> remainder.get())
-                        .filter(line -> !line.trim().isEmpty()));
+    private Flux<ContentItem> processStreamingContent(Flux<DataBuffer> dataBufferFlux) {
+        return processStreamingContent(dataBufferFlux, null);
     }
 
     /**
-     * Accumule les lignes pour former des paires EXTINF + URL
+     * Variante qui alimente aussi un accumulateur de statistiques (octets lus, entrées rejetées)
      */
-    private LineBuffer accumulateLines(LineBuffer buffer, String line) {
-        if (line.startsWith("#EXTINF:")) {
-            return new LineBuffer(line, buffer.url);
-        } else if (line.startsWith("http") && buffer.extinf != null) {
-            return new LineBuffer(buffer.extinf, line, true);
-        }
-        return buffer;
+    private Flux<ContentItem> processStreamingContent(Flux<DataBuffer> dataBufferFlux, M3UParsingStats stats) {
+        return Flux.defer(() -> {
+            List<ContentItem> ready = new ArrayList<>();
+            M3UTokenizer tokenizer = new M3UTokenizer(entry -> {
+                ContentItem item = createContentItem(entry, stats);
+                if (item != null) {
+                    ready.add(item);
+                }
+            });
+
+            return dataBufferFlux
+                    .concatMapIterable(dataBuffer -> {
+                        if (stats != null) {
+                            stats.recordBytes(dataBuffer.readableByteCount());
+                        }
+                        try (DataBuffer.ByteBufferIterator buffers = dataBuffer.readableByteBuffers()) {
+                            while (buffers.hasNext()) {
+                                tokenizer.feed(buffers.next());
+                            }
+                        } finally {
+                            DataBufferUtils.release(dataBuffer);
+                        }
+                        return drain(ready);
+                    })
+                    .concatWith(Flux.defer(() -> {
+                        tokenizer.finish();
+                        return Flux.fromIterable(drain(ready));
+                    }));
+        });
     }
 
-    /**
-     * Extrait le contenu du buffer et détermine son type
-     */
-    private Flux<ContentItem> extractContentFromBuffer(LineBuffer buffer) {
-        if (buffer.isComplete()) {
-            ContentItem item = createContentItem(buffer.extinf, buffer.url);
-            return item != null ? Flux.just(item) : Flux.empty();
+    private List<ContentItem> drain(List<ContentItem> ready) {
+        if (ready.isEmpty()) {
+            return Collections.emptyList();
         }
-        return Flux.empty();
+        List<ContentItem> items = new ArrayList<>(ready);
+        ready.clear();
+        return items;
     }
 
     /**
-     * Crée un ContentItem et détermine automatiquement son type
+     * Crée un ContentItem et détermine automatiquement son type.
+     * Seuls les champs conservés par le ContentItem sont décodés en String.
      */
-    private ContentItem createContentItem(String extinf, String url) {
+    private ContentItem createContentItem(M3UEntry entry, M3UParsingStats stats) {
         try {
-            ContentType type = determineContentType(extinf, url);
-            String name = parseName(extinf);
-            Map<String, String> attributes = parseAllAttributes(extinf);
-
-            if (name == null || name.trim().isEmpty()) {
+            String name = parseName(entry);
+            if (name == null || name.isEmpty()) {
+                if (stats != null) stats.recordParseError(M3UParsingStats.ERROR_MISSING_NAME);
                 return null;
             }
 
+            String url = entry.getUrl();
+            ContentType type = determineContentType(entry);
+            Map<String, String> attributes = parseAllAttributes(entry);
+
             return new ContentItem(name, url, type, attributes);
         } catch (Exception e) {
-            System.err.println("Erreur lors du parsing: " + extinf + " - " + e.getMessage());
+            System.err.println("Erreur lors du parsing: " + entry.getExtinf() + " - " + e.getMessage());
+            if (stats != null) stats.recordParseError(M3UParsingStats.ERROR_EXCEPTION);
             return null;
         }
     }
 
     /**
-     * Détermine le type de contenu basé sur les attributs et patterns
+     * Détermine le type de contenu en un seul scan de la ligne EXTINF (classifieur précompilé)
      */
-    private ContentType determineContentType(String extinf, String url) {
-        if (extinf == null || url == null) {
+    private ContentType determineContentType(M3UEntry entry) {
+        if (!entry.hasExtinf() || entry.getUrl() == null) {
             return ContentType.UNKNOWN;
         }
 
-        String line = extinf.toLowerCase();
-        String urlLower = url.toLowerCase();
-
-        ContentType groupType = determineTypeByGroup(line);
-        if (groupType != ContentType.UNKNOWN) {
-            return groupType;
-        }
-
-        ContentType patternType = determineTypeByPatterns(line);
-        if (patternType != ContentType.UNKNOWN) {
-            return patternType;
-        }
-
-        ContentType urlType = determineTypeByUrl(urlLower);
-        if (urlType != ContentType.UNKNOWN) {
-            return urlType;
-        }
-
-        return ContentType.LIVE_STREAM;
+        return M3UContentClassifier.contentType(M3UContentClassifier.scan(entry), entry.getUrl());
     }
 
     /**
-     * Détermine le type par group-title
+     * Parse tous les attributs de la ligne EXTINF (positions déjà relevées par le tokenizer)
      */
-    private ContentType determineTypeByGroup(String line) {
-        String[] liveGroups = {
-                "group-title=\"live\"", "group-title=\"tv\"", "group-title=\"television\"",
-                "group-title=\"news\"", "group-title=\"sport\"", "group-title=\"sports\"",
-                "group-title=\"entertainment\"", "group-title=\"kids\"", "group-title=\"music\"",
-                "group-title=\"documentary\"", "group-title=\"lifestyle\"", "group-title=\"adult\"",
-                "group-title=\"general\"", "group-title=\"national\"", "group-title=\"local\""
-        };
-
-        String[] vodGroups = {
-                "group-title=\"movies\"", "group-title=\"vod\"", "group-title=\"films\"",
-                "group-title=\"cinema\"", "group-title=\"movie\"", "group-title=\"film\"",
-                "group-title=\"hollywood\"", "group-title=\"bollywood\""
-        };
-
-        String[] seriesGroups = {
-                "group-title=\"series\"", "group-title=\"tv shows\"", "group-title=\"shows\"",
-                "group-title=\"serie\"", "group-title=\"tv series\"", "group-title=\"drama\""
-        };
-
-        for (String group : liveGroups) {
-            if (line.contains(group)) return ContentType.LIVE_STREAM;
-        }
-
-        for (String group : vodGroups) {
-            if (line.contains(group)) return ContentType.VOD;
-        }
-
-        for (String group : seriesGroups) {
-            if (line.contains(group)) return ContentType.SERIES;
-        }
-
-        return ContentType.UNKNOWN;
-    }
-
-    /**
-     * Détermine le type par patterns dans le contenu
-     */
-    private ContentType determineTypeByPatterns(String line) {
-        String[] seriesPatterns = {
-                "season", "episode", "s\\d{2}e\\d{2}", "s\\d{1}e\\d{1,2}",
-                "saison", "épisode", "ep\\d+", "parte", "temporada"
-        };
-
-        String[] vodPatterns = {
-                "720p", "1080p", "4k", "2160p", "bluray", "webrip", "dvdrip",
-                "hdtv", "web-dl", "brrip", "\\(\\d{4}\\)", "movie", "película"
-        };
-
-        for (String pattern : seriesPatterns) {
-            if (Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(line).find()) {
-                return ContentType.SERIES;
-            }
-        }
-
-        for (String pattern : vodPatterns) {
-            if (Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(line).find()) {
-                return ContentType.VOD;
+    private Map<String, String> parseAllAttributes(M3UEntry entry) {
+        Map<String, String> attributes = new HashMap<>(16);
+
+        for (M3UAttribute attribute : M3UAttribute.values()) {
+            String value = entry.getAttribute(attribute);
+            if (value != null) {
+                value = value.trim();
+                if (!value.isEmpty()) {
+                    attributes.put(attribute.getKey(), value);
+                }
             }
         }
 
-        return ContentType.UNKNOWN;
-    }
-
-    /**
-     * Détermine le type par URL
-     */
-    private ContentType determineTypeByUrl(String url) {
-        String[] videoExtensions = {
-                ".mp4", ".mkv", ".avi", ".mov", ".wmv",
-                ".flv", ".webm", ".m4v", ".3gp", ".m2ts"
-        };
-
-        for (String ext : videoExtensions) {
-            if (url.endsWith(ext)) {
-                return ContentType.VOD;
-            }
-        }
-
-        if (url.contains("/live/") || url.contains(".ts") || url.contains(".m3u8")) {
-            return ContentType.LIVE_STREAM;
-        }
-
-        if (url.matches(".*series/.*") || url.contains("/episode/")) {
-            return ContentType.SERIES;
-        }
-
-        if (url.matches(".*movie/.*") || url.contains("/vod/")) {
-            return ContentType.VOD;
-        }
-
-        return ContentType.UNKNOWN;
-    }
-
-    /**
-     * Parse tous les attributs de la ligne EXTINF
-     */
-    private Map<String, String> parseAllAttributes(String extinf) {
-        Map<String, String> attributes = new HashMap<>();
-
-        if (extinf == null) return attributes;
-
-        String[] attrNames = {
-                "tvg-id", "tvg-name", "tvg-logo", "tvg-country",
-                "tvg-language", "group-title", "radio", "tvg-shift"
-        };
-
-        for (String attr : attrNames) {
-            String value = extractAttribute(extinf, attr);
-            if (value != null && !value.trim().isEmpty()) {
-                attributes.put(attr, value.trim());
-            }
-        }
-
-        Pattern durationPattern = Pattern.compile("#EXTINF:(-?\\d+(?:\\.\\d+)?)");
-        Matcher matcher = durationPattern.matcher(extinf);
-        if (matcher.find()) {
-            attributes.put("duration", matcher.group(1));
+        String duration = entry.getDuration();
+        if (duration != null) {
+            attributes.put("duration", duration);
         }
 
         return attributes;
@@ -279,58 +166,53 @@ public class M3UFallbackService {
     /**
      * Parse le nom de la chaîne/contenu
      */
-    private String parseName(String extinf) {
-        if (extinf == null || extinf.trim().isEmpty()) {
-            return null;
-        }
-
-        String name = extractAttribute(extinf, "tvg-name");
+    private String parseName(M3UEntry entry) {
+        String name = entry.getAttribute(M3UAttribute.TVG_NAME);
         if (name != null && !name.trim().isEmpty()) {
             return name.trim();
         }
 
-        int commaIndex = extinf.lastIndexOf(',');
-        if (commaIndex != -1 && commaIndex < extinf.length() - 1) {
-            return extinf.substring(commaIndex + 1).trim();
+        String title = entry.getTitleAfterLastComma();
+        if (title != null && !title.isEmpty()) {
+            return title.trim();
         }
 
         return null;
     }
 
     /**
-     * Extrait un attribut de la ligne EXTINF
+     * Récupère les statistiques du parsing M3U, calculées au fil du flux (mémoire constante)
      */
-    private String extractAttribute(String extinf, String attributeName) {
-        String pattern = attributeName + "=\"";
-        int start = extinf.indexOf(pattern);
-        if (start == -1) {
-            return null;
-        }
-
-        start += pattern.length();
-        int end = extinf.indexOf("\"", start);
-        if (end == -1) {
-            return null;
-        }
-
-        return extinf.substring(start, end);
+    public Mono<M3UParsingStats> getM3UParsingStatsForUser(String userId) {
+        return streamM3UParsingStatsForUser(userId).last();
     }
 
     /**
-     * Récupère les statistiques du parsing M3U
+     * Statistiques du M3U pendant le téléchargement : une photo toutes les
+     * {@value #STATS_PROGRESS_INTERVAL} entrées, puis une photo finale (completed = true).
+     * Le M3U est lu directement depuis le fournisseur, sans passer par le cache disque :
+     * utile pour évaluer un nouveau fournisseur avant une synchronisation complète.
      */
-    public Mono<M3UParsingStats> getM3UParsingStatsForUser(String userId) {
-        return fetchM3UContentForUser(userId)
-                .collectList()
-                .map(items -> {
-                    Map<ContentType, Long> typeCount = new HashMap<>();
-                    for (ContentType type : ContentType.values()) {
-                        typeCount.put(type, items.stream()
-                                .filter(item -> item.getType() == type)
-                                .count());
-                    }
-                    return new M3UParsingStats(items.size(), typeCount);
-                });
+    public Flux<M3UParsingStats> streamM3UParsingStatsForUser(String userId) {
+        return Flux.defer(() -> {
+            UserXtreamConfig config = userContextService.getUserXtreamConfigOrThrow(userId);
+            M3UParsingStats stats = new M3UParsingStats();
+
+            Flux<DataBuffer> body = m3uWebClient.get()
+                    .uri(config.getM3uUrl())
+                    .retrieve()
+                    .toEntityFlux(DataBuffer.class)
+                    .flatMapMany(entity -> {
+                        stats.setExpectedBytes(entity.getHeaders().getContentLength());
+                        return entity.getBody() != null ? entity.getBody() : Flux.<DataBuffer>empty();
+                    });
+
+            return processStreamingContent(body, stats)
+                    .doOnNext(stats::record)
+                    .filter(item -> stats.getTotalItems() % STATS_PROGRESS_INTERVAL == 0)
+                    .map(item -> stats.snapshot(false))
+                    .concatWith(Mono.fromSupplier(() -> stats.snapshot(true)));
+        });
     }
 
     /**
@@ -367,13 +249,13 @@ public class M3UFallbackService {
             this.name = name;
             this.url = url;
             this.type = type;
-            this.attributes = attributes != null ? new HashMap<>(attributes) : new HashMap<>();
+            this.attributes = attributes != null ? Collections.unmodifiableMap(attributes) : Collections.emptyMap();
         }
 
         public String getName() { return name; }
         public String getUrl() { return url; }
         public ContentType getType() { return type; }
-        public Map<String, String> getAttributes() { return new HashMap<>(attributes); }
+        public Map<String, String> getAttributes() { return attributes; }
 
         public String getTvgId() { return attributes.get("tvg-id"); }
         public String getTvgLogo() { return attributes.get("tvg-logo"); }
@@ -391,58 +273,182 @@ public class M3UFallbackService {
     }
 
     /**
-     * Classe pour gérer l'accumulation des lignes
+     * Statistiques du parsing M3U.
+     * Sert d'accumulateur mis à jour entrée par entrée (toujours depuis le même flux, donc
+     * sans synchronisation) ; {@link #snapshot(boolean)} en fournit des copies immuables.
+     * Le nombre de groupes suivis est borné pour garder une mémoire constante.
      */
-    private static class LineBuffer {
-        final String extinf;
-        final String url;
-        final boolean complete;
-
-        public LineBuffer() {
-            this(null, null, false);
+    public static class M3UParsingStats {
+        static final String ERROR_MISSING_NAME = "missing_name";
+        static final String ERROR_EXCEPTION = "exception";
+
+        // Au-delà, les nouveaux groupes sont comptés dans OTHER_GROUPS
+        private static final int MAX_TRACKED_GROUPS = 1000;
+        private static final String NO_GROUP = "(sans groupe)";
+        private static final String OTHER_GROUPS = "(autres)";
+
+        private static final List<String> ATTRIBUTE_KEYS = attributeKeys();
+
+        private long totalItems;
+        private long bytesRead;
+        private long expectedBytes = -1;
+        private long missingUrl;
+        private boolean completed;
+        private final long startedAt = System.currentTimeMillis();
+        private long durationMs;
+        private final Map<ContentType, Long> typeDistribution = new EnumMap<>(ContentType.class);
+        private final Map<ContentType, Map<String, Long>> groupsByType = new EnumMap<>(ContentType.class);
+        private final Map<String, Long> attributeCoverage = new LinkedHashMap<>();
+        private final Map<String, Long> parseErrors = new LinkedHashMap<>();
+
+        public M3UParsingStats() {
+            for (ContentType type : ContentType.values()) {
+                typeDistribution.put(type, 0L);
+            }
+            for (String key : ATTRIBUTE_KEYS) {
+                attributeCoverage.put(key, 0L);
+            }
         }
 
-        public LineBuffer(String extinf, String url) {
-            this(extinf, url, false);
-        }
+        void record(ContentItem item) {
+            totalItems++;
+            typeDistribution.merge(item.getType(), 1L, Long::sum);
 
-        public LineBuffer(String extinf, String url, boolean complete) {
-            this.extinf = extinf;
-            this.url = url;
-            this.complete = complete;
-        }
+            if (item.getUrl() == null || item.getUrl().isEmpty()) {
+                missingUrl++;
+            }
 
-        public boolean hasCompleteLine() {
-            return extinf != null || url != null;
-        }
+            Map<String, Long> groups = groupsByType.computeIfAbsent(item.getType(), t -> new HashMap<>());
+            String group = item.getGroupTitle() != null ? item.getGroupTitle() : NO_GROUP;
+            if (groups.containsKey(group) || groups.size() < MAX_TRACKED_GROUPS) {
+                groups.merge(group, 1L, Long::sum);
+            } else {
+                groups.merge(OTHER_GROUPS, 1L, Long::sum);
+            }
 
-        public boolean isComplete() {
-            return complete && extinf != null && url != null;
+            Map<String, String> attributes = item.getAttributes();
+            for (String key : ATTRIBUTE_KEYS) {
+                if (attributes.containsKey(key)) {
+                    attributeCoverage.merge(key, 1L, Long::sum);
+                }
+            }
         }
-    }
 
-    /**
-     * Statistiques du parsing M3U
-     */
-    public static class M3UParsingStats {
-        private final int totalItems;
-        private final Map<ContentType, Long> typeDistribution;
+        void recordParseError(String reason) {
+            parseErrors.merge(reason, 1L, Long::sum);
+        }
+
+        void recordBytes(long bytes) {
+            bytesRead += bytes;
+        }
+
+        void setExpectedBytes(long expectedBytes) {
+            this.expectedBytes = expectedBytes;
+        }
+
+        /**
+         * Copie immuable de l'état courant
+         */
+        M3UParsingStats snapshot(boolean completed) {
+            M3UParsingStats copy = new M3UParsingStats();
+            copy.totalItems = totalItems;
+            copy.bytesRead = bytesRead;
+            copy.expectedBytes = expectedBytes;
+            copy.missingUrl = missingUrl;
+            copy.completed = completed;
+            copy.durationMs = System.currentTimeMillis() - startedAt;
+            copy.typeDistribution.putAll(typeDistribution);
+            groupsByType.forEach((type, groups) -> copy.groupsByType.put(type, Map.copyOf(groups)));
+            copy.attributeCoverage.putAll(attributeCoverage);
+            copy.parseErrors.putAll(parseErrors);
+            return copy;
+        }
+
+        public long getTotalItems() { return totalItems; }
+        public long getBytesRead() { return bytesRead; }
+        public long getExpectedBytes() { return expectedBytes; }
+        public long getMissingUrl() { return missingUrl; }
+        public boolean isCompleted() { return completed; }
+        public long getDurationMs() { return durationMs; }
+        public Map<ContentType, Long> getTypeDistribution() { return Collections.unmodifiableMap(typeDistribution); }
+        public Map<ContentType, Map<String, Long>> getGroupsByType() { return Collections.unmodifiableMap(groupsByType); }
+        public Map<String, Long> getAttributeCoverage() { return Collections.unmodifiableMap(attributeCoverage); }
+        public Map<String, Long> getParseErrors() { return Collections.unmodifiableMap(parseErrors); }
+
+        public long getParseErrorCount() {
+            return parseErrors.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        /**
+         * Avancement du téléchargement en pourcentage, -1 si la taille n'est pas annoncée
+         */
+        public double getProgressPercent() {
+            if (completed) return 100.0;
+            if (expectedBytes <= 0) return -1;
+            return Math.min(100.0, bytesRead * 100.0 / expectedBytes);
+        }
+
+        /**
+         * Les {@code limit} groupes les plus fournis d'un type
+         */
+        public Map<String, Long> getTopGroups(ContentType type, int limit) {
+            Map<String, Long> top = new LinkedHashMap<>();
+            groupsByType.getOrDefault(type, Map.of()).entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(limit)
+                    .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+            return top;
+        }
+
+        public Map<String, Object> getStatistics() {
+            Map<String, Object> types = new LinkedHashMap<>();
+            Map<String, Object> groups = new LinkedHashMap<>();
+            for (ContentType type : ContentType.values()) {
+                types.put(type.name(), typeDistribution.getOrDefault(type, 0L));
+                if (groupsByType.containsKey(type)) {
+                    Map<String, Object> typeGroups = new LinkedHashMap<>();
+                    typeGroups.put("distinct", groupsByType.get(type).size());
+                    typeGroups.put("top", getTopGroups(type, 20));
+                    groups.put(type.name(), typeGroups);
+                }
+            }
 
-        public M3UParsingStats(int totalItems, Map<ContentType, Long> typeDistribution) {
-            this.totalItems = totalItems;
-            this.typeDistribution = typeDistribution;
+            Map<String, Object> coverage = new LinkedHashMap<>();
+            attributeCoverage.forEach((key, count) -> coverage.put(key,
+                    totalItems > 0 ? Math.round(count * 1000.0 / totalItems) / 10.0 : 0.0));
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("completed", completed);
+            stats.put("total_items", totalItems);
+            stats.put("bytes_read", bytesRead);
+            stats.put("expected_bytes", expectedBytes);
+            stats.put("progress_percent", getProgressPercent());
+            stats.put("duration_ms", durationMs);
+            stats.put("types", types);
+            stats.put("groups", groups);
+            stats.put("attribute_coverage_percent", coverage);
+            stats.put("missing_url", missingUrl);
+            stats.put("parse_errors", parseErrors);
+            return stats;
+        }
+
+        private static List<String> attributeKeys() {
+            List<String> keys = new ArrayList<>();
+            for (M3UAttribute attribute : M3UAttribute.values()) {
+                keys.add(attribute.getKey());
+            }
+            keys.add("duration");
+            return List.copyOf(keys);
         }
 
-        public int getTotalItems() { return totalItems; }
-        public Map<ContentType, Long> getTypeDistribution() { return typeDistribution; }
-
         @Override
         public String toString() {
-            return String.format("M3UParsingStats{total=%d, live=%d, vod=%d, series=%d}",
+            return String.format("M3UParsingStats{total=%d, live=%d, vod=%d, series=%d, errors=%d}",
                     totalItems,
                     typeDistribution.getOrDefault(ContentType.LIVE_STREAM, 0L),
                     typeDistribution.getOrDefault(ContentType.VOD, 0L),
-                    typeDistribution.getOrDefault(ContentType.SERIES, 0L));
+                    typeDistribution.getOrDefault(ContentType.SERIES, 0L),
+                    getParseErrorCount());
         }
     }
-}
\ No newline at end of file
+}
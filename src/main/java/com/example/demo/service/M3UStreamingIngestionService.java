@@ -0,0 +1,271 @@
+package com.example.demo.service;
+
+import com.example.demo.config.UserXtreamConfig;
+import com.example.demo.model.LiveStream;
+import com.example.demo.model.Series;
+import com.example.demo.model.TypeContenu;
+import com.example.demo.model.Vod;
+import com.example.demo.utils.FingerprintUtils;
+import com.example.demo.utils.StreamUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingestion M3U en flux continu : du socket jusqu'aux écritures Mongo réactives.
+ *
+ * Les ContentItem émis par {@link M3UFallbackService#fetchM3UContent(String)} sont regroupés
+ * en lots et écrits en upserts bulk non ordonnés. La demande est bornée à chaque étage
+ * (limitRate, buffer, flatMap à concurrence fixe) : la lecture réseau ralentit quand Mongo
+ * ne suit pas, et la mémoire reste constante quelle que soit la taille de la playlist.
+ */
+@Service
+@RequiredArgsConstructor
+public class M3UStreamingIngestionService {
+
+    // Nombre d'entrées par écriture bulk
+    static final int BATCH_SIZE = 1000;
+
+    // Lots en cours d'écriture simultanément
+    private static final int WRITE_CONCURRENCY = 2;
+
+    // Entrées demandées d'avance au parseur
+    private static final int PARSE_PREFETCH = 2 * BATCH_SIZE;
+
+    private final M3UFallbackService m3uFallbackService;
+    private final UserContextService userContextService;
+    private final CatalogFingerprintService catalogFingerprintService;
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    /**
+     * Importe la playlist M3U de l'utilisateur en flux continu
+     */
+    public Mono<StreamingIngestionResult> ingestForUser(String userId) {
+        return Mono.fromCallable(() -> userContextService.getUserXtreamConfigOrThrow(userId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(config -> ingest(userId, config));
+    }
+
+    private Mono<StreamingIngestionResult> ingest(String userId, UserXtreamConfig config) {
+        StreamingIngestionResult result = new StreamingIngestionResult();
+        long start = System.currentTimeMillis();
+
+        System.out.println("🌊 Ingestion M3U en flux pour l'utilisateur " + userId);
+
+        return m3uFallbackService.fetchM3UContent(config.getM3uUrl())
+                .limitRate(PARSE_PREFETCH)
+                .mapNotNull(item -> toDocument(userId, item, result))
+                .buffer(BATCH_SIZE)
+                .flatMap(batch -> writeBatch(batch, result), WRITE_CONCURRENCY)
+                .then(Mono.fromRunnable(() -> recordCatalogFingerprints(userId, result))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .then(Mono.fromSupplier(() -> {
+                    result.durationMs = System.currentTimeMillis() - start;
+                    System.out.println("✅ Ingestion M3U en flux terminée pour l'utilisateur " + userId + ": " + result);
+                    return result;
+                }));
+    }
+
+    /**
+     * Convertit un ContentItem en document, avec la même empreinte qu'une synchronisation classique.
+     * Appelé séquentiellement par le flux : les accumulateurs d'empreinte n'ont pas besoin d'être atomiques.
+     */
+    private Object toDocument(String userId, M3UFallbackService.ContentItem item, StreamingIngestionResult result) {
+        String url = item.getUrl();
+        int id = StreamUtils.generateStreamId(url);
+        if (id == 0) {
+            result.skipped.incrementAndGet();
+            return null;
+        }
+
+        String group = item.getGroupTitle();
+        int categoryId = StreamUtils.getCategoryId(group);
+
+        switch (item.getType()) {
+            case LIVE_STREAM -> {
+                LiveStream liveStream = LiveStream.builder()
+                        .streamId(id)
+                        .name(item.getName())
+                        .categoryId(categoryId)
+                        .categoryName(group != null ? group : "Live TV")
+                        .streamIcon(item.getTvgLogo())
+                        .streamUrl(url)
+                        .epgChannelId(item.getTvgId())
+                        .ownerId(userId)
+                        .build();
+                liveStream.setFingerprint(LiveStreamService.fingerprintOf(liveStream));
+                result.liveFingerprintSum = FingerprintUtils.accumulate(result.liveFingerprintSum, liveStream.getFingerprint());
+                result.liveCount++;
+                return liveStream;
+            }
+            case VOD -> {
+                Vod vod = Vod.builder()
+                        .vodId(id)
+                        .name(item.getName())
+                        .categoryId(categoryId)
+                        .categoryName(group != null ? group : "Movies")
+                        .streamIcon(item.getTvgLogo())
+                        .streamUrl(url)
+                        .ownerId(userId)
+                        .build();
+                vod.setFingerprint(VodService.fingerprintOf(vod));
+                result.vodFingerprintSum = FingerprintUtils.accumulate(result.vodFingerprintSum, vod.getFingerprint());
+                result.vodCount++;
+                return vod;
+            }
+            case SERIES -> {
+                Series series = Series.builder()
+                        .seriesId(id)
+                        .name(item.getName())
+                        .categoryId(categoryId)
+                        .categoryName(group != null ? group : "TV Series")
+                        .streamIcon(item.getTvgLogo())
+                        .streamUrl(url)
+                        .ownerId(userId)
+                        .build();
+                series.setFingerprint(SeriesService.fingerprintOf(series));
+                result.seriesFingerprintSum = FingerprintUtils.accumulate(result.seriesFingerprintSum, series.getFingerprint());
+                result.seriesCount++;
+                return series;
+            }
+            default -> {
+                result.skipped.incrementAndGet();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Écrit un lot mixte : un upsert bulk non ordonné par collection concernée
+     */
+    private Mono<Void> writeBatch(List<Object> batch, StreamingIngestionResult result) {
+        ReactiveBulkOperations liveOps = null;
+        ReactiveBulkOperations vodOps = null;
+        ReactiveBulkOperations seriesOps = null;
+
+        for (Object document : batch) {
+            if (document instanceof LiveStream liveStream) {
+                if (liveOps == null) liveOps = reactiveMongoTemplate.bulkOps(BulkMode.UNORDERED, LiveStream.class);
+                liveOps.upsert(keyQuery(liveStream.getOwnerId(), "streamId", liveStream.getStreamId()),
+                        contentUpdate(liveStream.getName(), liveStream.getCategoryId(), liveStream.getCategoryName(),
+                                liveStream.getStreamIcon(), liveStream.getStreamUrl(), liveStream.getFingerprint())
+                                .set("epgChannelId", liveStream.getEpgChannelId()));
+            } else if (document instanceof Vod vod) {
+                if (vodOps == null) vodOps = reactiveMongoTemplate.bulkOps(BulkMode.UNORDERED, Vod.class);
+                vodOps.upsert(keyQuery(vod.getOwnerId(), "vodId", vod.getVodId()),
+                        contentUpdate(vod.getName(), vod.getCategoryId(), vod.getCategoryName(),
+                                vod.getStreamIcon(), vod.getStreamUrl(), vod.getFingerprint()));
+            } else if (document instanceof Series series) {
+                if (seriesOps == null) seriesOps = reactiveMongoTemplate.bulkOps(BulkMode.UNORDERED, Series.class);
+                seriesOps.upsert(keyQuery(series.getOwnerId(), "seriesId", series.getSeriesId()),
+                        contentUpdate(series.getName(), series.getCategoryId(), series.getCategoryName(),
+                                series.getStreamIcon(), series.getStreamUrl(), series.getFingerprint()));
+            }
+        }
+
+        List<Mono<?>> writes = new ArrayList<>(3);
+        if (liveOps != null) writes.add(liveOps.execute());
+        if (vodOps != null) writes.add(vodOps.execute());
+        if (seriesOps != null) writes.add(seriesOps.execute());
+
+        return Flux.merge(writes)
+                .then(Mono.fromRunnable(() -> {
+                    long batches = result.batches.incrementAndGet();
+                    result.written.addAndGet(batch.size());
+                    if (batches % 50 == 0) {
+                        System.out.println("📊 Ingestion M3U: " + result.written.get() + " entrées écrites");
+                    }
+                }));
+    }
+
+    private Query keyQuery(String ownerId, String keyField, Integer key) {
+        return Query.query(Criteria.where("ownerId").is(ownerId).and(keyField).is(key));
+    }
+
+    private Update contentUpdate(String name, Integer categoryId, String categoryName,
+                                 String streamIcon, String streamUrl, Long fingerprint) {
+        return new Update()
+                .set("name", name)
+                .set("categoryId", categoryId)
+                .set("categoryName", categoryName)
+                .set("streamIcon", streamIcon)
+                .set("streamUrl", streamUrl)
+                .set("fingerprint", fingerprint);
+    }
+
+    /**
+     * Empreintes de catalogue calculées au fil du flux : la prochaine synchronisation classique
+     * pourra s'arrêter tôt si la playlist n'a pas changé (le contrôle du nombre de documents
+     * protège des entrées obsolètes que ce mode, en upsert seul, ne supprime pas)
+     */
+    private void recordCatalogFingerprints(String userId, StreamingIngestionResult result) {
+        if (result.liveCount > 0) {
+            catalogFingerprintService.record(userId, TypeContenu.CHAINE,
+                    FingerprintUtils.finish(result.liveFingerprintSum, result.liveCount), (int) result.liveCount);
+        }
+        if (result.vodCount > 0) {
+            catalogFingerprintService.record(userId, TypeContenu.FILM,
+                    FingerprintUtils.finish(result.vodFingerprintSum, result.vodCount), (int) result.vodCount);
+        }
+        if (result.seriesCount > 0) {
+            catalogFingerprintService.record(userId, TypeContenu.SERIE,
+                    FingerprintUtils.finish(result.seriesFingerprintSum, result.seriesCount), (int) result.seriesCount);
+        }
+    }
+
+    /**
+     * Résultat d'une ingestion en flux
+     */
+    public static class StreamingIngestionResult {
+        private long liveCount;
+        private long vodCount;
+        private long seriesCount;
+        private long liveFingerprintSum;
+        private long vodFingerprintSum;
+        private long seriesFingerprintSum;
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong written = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private volatile long durationMs;
+
+        public long getLiveCount() { return liveCount; }
+        public long getVodCount() { return vodCount; }
+        public long getSeriesCount() { return seriesCount; }
+        public long getSkipped() { return skipped.get(); }
+        public long getWritten() { return written.get(); }
+        public long getBatches() { return batches.get(); }
+        public long getDurationMs() { return durationMs; }
+
+        public Map<String, Object> getStatistics() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("live_streams", liveCount);
+            stats.put("vod_content", vodCount);
+            stats.put("series", seriesCount);
+            stats.put("skipped", getSkipped());
+            stats.put("written", getWritten());
+            stats.put("batches", getBatches());
+            stats.put("duration_ms", durationMs);
+            return stats;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("StreamingIngestionResult{live=%d, vod=%d, series=%d, skipped=%d, batches=%d, %dms}",
+                    liveCount, vodCount, seriesCount, getSkipped(), getBatches(), durationMs);
+        }
+    }
+}
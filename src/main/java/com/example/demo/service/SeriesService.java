@@ -1,345 +1,195 @@
 package com.example.demo.service;
 
 import com.example.demo.config.UserXtreamConfig;
+import com.example.demo.dto.XtreamCategory;
+import com.example.demo.dto.XtreamSeries;
 import com.example.demo.model.Series;
+import com.example.demo.model.TypeContenu;
 import com.example.demo.repository.SeriesRepository;
+import com.example.demo.service.m3u.M3UCatalog;
+import com.example.demo.service.m3u.M3UIngestionService;
+import com.example.demo.service.xtream.ProviderUnavailableException;
+import com.example.demo.service.xtream.XtreamClient;
+import com.example.demo.utils.CatalogDelta;
+import com.example.demo.utils.FingerprintUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @RequiredArgsConstructor
 public class SeriesService {
 
     private final SeriesRepository seriesRepository;
-    private final WebClient webClient;
+    private final BulkUpsertWriter bulkUpsertWriter;
+    private final XtreamClient xtreamClient;
     private final UserContextService userContextService;
+    private final M3UIngestionService m3uIngestionService;
+    private final CatalogFingerprintService catalogFingerprintService;
 
     /**
      * Récupère les séries pour un utilisateur spécifique
      */
-    public List<Map<String, Object>> fetchSeriesStreamsForUser(String userId) {
-        UserXtreamConfig config = userContextService.getUserXtreamConfigOrThrow(userId);
-        return fetchSeriesStreams(config);
+    public Mono<List<Map<String, Object>>> fetchSeriesStreamsForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(this::fetchSeriesStreams);
     }
 
     /**
-     * Récupère la liste des séries depuis l'API Xtream
+     * Liste des catégories de séries : seule cette liste est chargée d'avance (mode paresseux)
      */
-    private List<Map<String, Object>> fetchSeriesStreams(UserXtreamConfig config) {
-        try {
-            List<Map<String, Object>> series = webClient.get()
-                    .uri(config.getSeriesUrl())
-                    .retrieve()
-                    .bodyToMono(List.class)
-                    .block();
-
-            System.out.println("✅ Récupéré " + (series != null ? series.size() : 0) + " séries depuis Xtream API");
-
-            // ✅ Ajouter l'URL de streaming complète
-            if (series != null) {
-                for (Map<String, Object> serie : series) {
-                    Integer seriesId = parseIntSafely(serie.get("series_id"));
-                    String extension = getStringSafely(serie, "container_extension");
-                    if (seriesId > 0 && !extension.isEmpty()) {
-                        serie.put("stream_url", config.getSeriesStreamUrl(seriesId, extension));
-                    }
-                }
-            }
-
-            return series != null ? series : new ArrayList<>();
-
-        } catch (Exception e) {
-            System.err.println("❌ Erreur API Séries : " + e.getMessage());
-            return fetchSeriesFromM3U(config);
-        }
+    public Mono<List<Map<String, Object>>> fetchSeriesCategoriesForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> xtreamClient.getSeriesCategories(config)
+                        .filter(category -> category.categoryId() != null)
+                        .map(XtreamCategory::toMap)
+                        .collectList());
     }
 
     /**
-     * Fallback pour récupérer les séries depuis le M3U
+     * Séries d'une catégorie (category_id), chargés à la première consultation
+     * puis servis par le cache de réponses et rafraîchis en arrière-plan
      */
-    private List<Map<String, Object>> fetchSeriesFromM3U(UserXtreamConfig config) {
-        try {
-            String m3uContent = webClient.get()
-                    .uri(config.getM3uUrl())
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            return parseSeriesFromM3U(m3uContent);
-        } catch (Exception ex) {
-            throw new RuntimeException("Impossible de récupérer les séries via fallback M3U", ex);
-        }
+    public Mono<List<Map<String, Object>>> fetchSeriesByCategoryForUser(String userId, Integer categoryId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> xtreamClient.getSeriesByCategory(config, categoryId)
+                        .map(series -> toMap(series, config))
+                        .filter(item -> item.get("series_id") != null)
+                        .collectList());
     }
 
     /**
-     * Parse un fichier M3U pour extraire uniquement les séries
+     * Émet les séries un par un, sans agréger le catalogue en mémoire (réponse NDJSON).
+     * Le fallback M3U n'intervient que si l'API échoue avant le premier élément valide.
      */
-    private List<Map<String, Object>> parseSeriesFromM3U(String m3uContent) {
-        List<Map<String, Object>> series = new ArrayList<>();
-        if (m3uContent == null) return series;
-
-        String[] lines = m3uContent.split("\n");
-        Map<String, Object> currentSeries = null;
-
-        for (String line : lines) {
-            if (line.startsWith("#EXTINF:")) {
-                // Vérifie si c'est une série
-                if (isSeriesContent(line)) {
-                    currentSeries = new HashMap<>();
-                    String[] parts = line.split(",", 2);
-                    if (parts.length == 2) {
-                        String title = parts[1].trim();
-                        currentSeries.put("name", title);
-
-                        // Extrait les métadonnées de série
-                        extractSeriesMetadata(title, line, currentSeries);
-                    }
-                } else {
-                    currentSeries = null; // Ignore les non-séries
-                }
-            } else if (line.startsWith("http") && currentSeries != null) {
-                // Vérification finale de l'URL
-                if (isValidSeriesUrl(line.trim())) {
-                    currentSeries.put("stream_url", line.trim());
-                    currentSeries.put("series_id", generateStreamId(line.trim()));
-                    currentSeries.put("category_id", getCategoryId((String) currentSeries.get("group_title")));
-                    currentSeries.put("category_name",
-                            currentSeries.getOrDefault("group_title", "TV Series").toString());
-                    series.add(currentSeries);
-                }
-                currentSeries = null;
-            }
-        }
-
-        System.out.println("✅ Parsé " + series.size() + " épisodes de séries depuis M3U");
-        return series;
+    public Flux<Map<String, Object>> streamSeriesForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMapMany(config -> Flux.defer(() -> {
+                    AtomicBoolean emitted = new AtomicBoolean();
+                    return xtreamClient.getSeriesCatalog(config)
+                            .map(series -> toMap(series, config))
+                            .filter(item -> item.get("series_id") != null)
+                            .doOnNext(item -> emitted.set(true))
+                            .onErrorResume(e -> !emitted.get() && !(e instanceof ProviderUnavailableException), e -> {
+                                System.err.println("❌ Erreur API Séries : " + e.getMessage());
+                                return Mono.fromCallable(() -> fetchSeriesFromM3U(config))
+                                        .subscribeOn(Schedulers.boundedElastic())
+                                        .flatMapIterable(items -> items);
+                            });
+                }));
     }
 
     /**
-     * Détermine si une ligne EXTINF correspond à une série
+     * Récupère la liste des séries depuis l'API Xtream (fallback M3U, sauf si le circuit du fournisseur est ouvert)
      */
-    private boolean isSeriesContent(String extinf) {
-        if (extinf == null) return false;
-
-        String line = extinf.toLowerCase();
-
-        // Patterns indiquant des séries
-        String[] seriesPatterns = {
-                "group-title=\"series\"", "group-title=\"tv shows\"",
-                "group-title=\"shows\"", "group-title=\"serie\"",
-                "group-title=\"tv series\"", "season", "episode",
-                "s\\d{1,2}e\\d{1,3}", "s\\d{2}e\\d{2}",
-                "saison", "épisode", "ep\\d+", "parte"
-        };
-
-        for (String pattern : seriesPatterns) {
-            if (Pattern.compile(pattern).matcher(line).find()) {
-                return true;
-            }
-        }
-
-        return false;
+    private Mono<List<Map<String, Object>>> fetchSeriesStreams(UserXtreamConfig config) {
+        return fetchSeriesStreamsFromApi(config, false)
+                .onErrorResume(e -> !(e instanceof ProviderUnavailableException), e -> {
+                    System.err.println("❌ Erreur API Séries : " + e.getMessage());
+                    return Mono.fromCallable(() -> fetchSeriesFromM3U(config))
+                            .subscribeOn(Schedulers.boundedElastic());
+                });
     }
 
     /**
-     * Valide si l'URL correspond à une série
+     * Appel direct à l'API Xtream, sans fallback.
+     * Pour une synchronisation, le catalogue vient de la requête unique, sans cache : un catalogue réparti
+     * par catégorie peut manquer des éléments (catégorie nulle ou non listée) que le delta supprimerait en base,
+     * et une réponse en cache pourrait être antérieure aux derniers changements du fournisseur.
      */
-    private boolean isValidSeriesUrl(String url) {
-        if (url == null || url.trim().isEmpty()) {
-            return false;
-        }
-
-        String lowerUrl = url.toLowerCase();
+    private Mono<List<Map<String, Object>>> fetchSeriesStreamsFromApi(UserXtreamConfig config, boolean forSync) {
+        Flux<XtreamSeries> source = forSync ? xtreamClient.getSeries(config, true) : xtreamClient.getSeriesCatalog(config);
+        return source
+                .map(serie -> toMap(serie, config))
+                .collectList()
+                .map(series -> {
+                    // Un objet JSON (erreur d'authentification...) est décodé comme un seul élément sans identifiant
+                    if (!series.isEmpty() && series.stream().allMatch(item -> item.get("series_id") == null)) {
+                        throw new IllegalStateException("Réponse Xtream inattendue: aucun élément avec series_id");
+                    }
 
-        // Patterns d'URL série
-        return lowerUrl.contains("/series/") ||
-                lowerUrl.contains("/episode/") ||
-                lowerUrl.matches(".*s\\d+e\\d+.*");
+                    System.out.println("✅ Récupéré " + series.size() + " séries depuis Xtream API");
+                    return series;
+                });
     }
 
     /**
-     * Extrait les métadonnées spécifiques aux séries
+     * Map compacte d'une série de l'API, avec l'URL de streaming complète
      */
-    private void extractSeriesMetadata(String title, String extinf, Map<String, Object> series) {
-        // Nom de la série (sans saison/épisode)
-        String seriesName = extractSeriesName(title);
-        if (seriesName != null) series.put("series_name", seriesName);
-
-        // Numéro de saison
-        Integer season = extractSeason(title);
-        if (season != null) series.put("season", season);
-
-        // Numéro d'épisode
-        Integer episode = extractEpisode(title);
-        if (episode != null) series.put("episode", episode);
-
-        // Année
-        String year = extractYear(title);
-        if (year != null) series.put("year", Integer.parseInt(year));
-
-        // Genre depuis group-title
-        String groupTitle = extractAttribute(extinf, "group-title");
-        if (groupTitle != null) {
-            series.put("group_title", groupTitle);
-            series.put("genre", mapCategoryToGenre(groupTitle));
+    private Map<String, Object> toMap(XtreamSeries serie, UserXtreamConfig config) {
+        Map<String, Object> map = new HashMap<>(8);
+        map.put("series_id", serie.seriesId());
+        map.put("name", serie.name());
+        map.put("category_id", serie.categoryId());
+        map.put("category_name", serie.categoryName());
+        map.put("stream_icon", serie.streamIcon());
+        map.put("container_extension", serie.containerExtension());
+
+        // ✅ Ajouter l'URL de streaming complète
+        String extension = serie.containerExtension() != null ? serie.containerExtension().trim() : "";
+        if (serie.seriesId() != null && serie.seriesId() > 0 && !extension.isEmpty()) {
+            map.put("stream_url", config.getSeriesStreamUrl(serie.seriesId(), extension));
         }
-
-        // Logo/Cover
-        String logo = extractAttribute(extinf, "tvg-logo");
-        if (logo != null) series.put("stream_icon", logo);
-
-        // Durée de l'épisode
-        String duration = extractDuration(extinf);
-        if (duration != null) series.put("duration", duration);
+        return map;
     }
 
     /**
-     * Extrait le nom de la série sans les informations d'épisode
+     * Fallback pour récupérer les séries depuis le M3U (téléchargement et parsing partagés)
      */
-    private String extractSeriesName(String title) {
-        // Supprime les patterns de saison/épisode pour obtenir le nom de la série
-        String seriesName = title;
-
-        // Patterns à supprimer
-        String[] patterns = {
-                "\\s+S\\d{1,2}E\\d{1,3}.*",
-                "\\s+Season\\s+\\d+.*",
-                "\\s+Saison\\s+\\d+.*",
-                "\\s+Episode\\s+\\d+.*",
-                "\\s+Ep\\d+.*",
-                "\\s+\\(\\d{4}\\).*"
-        };
-
-        for (String pattern : patterns) {
-            seriesName = seriesName.replaceFirst(pattern, "").trim();
+    private List<Map<String, Object>> fetchSeriesFromM3U(UserXtreamConfig config) {
+        try {
+            return m3uIngestionService.ingest(config).getSeries();
+        } catch (Exception ex) {
+            throw new RuntimeException("Impossible de récupérer les séries via fallback M3U", ex);
         }
-
-        return seriesName.isEmpty() ? title : seriesName;
     }
 
     /**
-     * Extrait le numéro de saison
+     * Fallback M3U de la synchronisation : peut signaler un M3U inchangé depuis la dernière écriture sans le parser
      */
-    private Integer extractSeason(String title) {
-        // Patterns pour saison
-        String[] seasonPatterns = {
-                "S(\\d{1,2})E\\d{1,3}",
-                "Season\\s+(\\d{1,2})",
-                "Saison\\s+(\\d{1,2})"
-        };
-
-        for (String patternStr : seasonPatterns) {
-            Pattern pattern = Pattern.compile(patternStr, Pattern.CASE_INSENSITIVE);
-            Matcher matcher = pattern.matcher(title);
-            if (matcher.find()) {
-                return Integer.parseInt(matcher.group(1));
-            }
+    private M3UCatalog fetchCatalogIfChanged(UserXtreamConfig config, String lastWrittenDigest) {
+        try {
+            return m3uIngestionService.ingestIfChanged(config, lastWrittenDigest);
+        } catch (Exception ex) {
+            throw new RuntimeException("Impossible de récupérer les séries via fallback M3U", ex);
         }
-
-        return null;
     }
 
     /**
-     * Extrait le numéro d'épisode
+     * Convertit les séries stockées au format renvoyé par la synchronisation
      */
-    private Integer extractEpisode(String title) {
-        // Patterns pour épisode
-        String[] episodePatterns = {
-                "S\\d{1,2}E(\\d{1,3})",
-                "Episode\\s+(\\d{1,3})",
-                "Ep(\\d{1,3})",
-                "Épisode\\s+(\\d{1,3})"
-        };
-
-        for (String patternStr : episodePatterns) {
-            Pattern pattern = Pattern.compile(patternStr, Pattern.CASE_INSENSITIVE);
-            Matcher matcher = pattern.matcher(title);
-            if (matcher.find()) {
-                return Integer.parseInt(matcher.group(1));
-            }
+    private List<Map<String, Object>> toMaps(List<Series> stored) {
+        List<Map<String, Object>> series = new ArrayList<>(stored.size());
+        for (Series item : stored) {
+            Map<String, Object> serie = new HashMap<>();
+            serie.put("series_id", item.getSeriesId());
+            serie.put("name", item.getName());
+            serie.put("category_id", item.getCategoryId());
+            serie.put("category_name", item.getCategoryName());
+            serie.put("stream_icon", item.getStreamIcon());
+            serie.put("stream_url", item.getStreamUrl());
+            series.add(serie);
         }
-
-        return null;
-    }
-
-    /**
-     * Extrait l'année du titre
-     */
-    private String extractYear(String title) {
-        Pattern yearPattern = Pattern.compile("\\((\\d{4})\\)");
-        Matcher matcher = yearPattern.matcher(title);
-        return matcher.find() ? matcher.group(1) : null;
-    }
-
-    /**
-     * Extrait la durée depuis EXTINF
-     */
-    private String extractDuration(String extinf) {
-        Pattern durationPattern = Pattern.compile("#EXTINF:(-?\\d+(?:\\.\\d+)?)");
-        Matcher matcher = durationPattern.matcher(extinf);
-        if (matcher.find()) {
-            try {
-                int seconds = (int) Double.parseDouble(matcher.group(1));
-                if (seconds > 0) {
-                    return String.valueOf(seconds / 60); // Conversion en minutes
-                }
-            } catch (NumberFormatException ignored) {}
-        }
-        return null;
-    }
-
-    /**
-     * Mappe une catégorie vers un genre
-     */
-    private String mapCategoryToGenre(String category) {
-        if (category == null) return "Drama";
-
-        String lowerCategory = category.toLowerCase();
-        if (lowerCategory.contains("comedy")) return "Comedy";
-        if (lowerCategory.contains("drama")) return "Drama";
-        if (lowerCategory.contains("action")) return "Action";
-        if (lowerCategory.contains("thriller")) return "Thriller";
-        if (lowerCategory.contains("sci-fi") || lowerCategory.contains("science")) return "Sci-Fi";
-        if (lowerCategory.contains("romance")) return "Romance";
-        if (lowerCategory.contains("crime")) return "Crime";
-        if (lowerCategory.contains("horror")) return "Horror";
-        if (lowerCategory.contains("documentary")) return "Documentary";
-        if (lowerCategory.contains("animation")) return "Animation";
-
-        return "Series";
-    }
-
-    /**
-     * Extrait un attribut de la ligne EXTINF
-     */
-    private String extractAttribute(String extinf, String attributeName) {
-        String pattern = attributeName + "=\"";
-        int start = extinf.indexOf(pattern);
-        if (start == -1) return null;
-
-        start += pattern.length();
-        int end = extinf.indexOf("\"", start);
-        if (end == -1) return null;
-
-        return extinf.substring(start, end);
+        return series;
     }
 
     /**
-     * Sauvegarde les séries en base avec validation
+     * Sauvegarde les séries d'un utilisateur en base avec validation.
+     * Seul le delta (ajouts, modifications, suppressions) par rapport au catalogue stocké est écrit.
      */
-    public void saveSeriesStreams(List<Map<String, Object>> streams) {
+    public void saveSeriesStreamsForUser(String userId, List<Map<String, Object>> streams) {
         if (streams == null || streams.isEmpty()) {
             System.out.println("⚠ Aucune série à sauvegarder");
             return;
         }
 
-        int savedCount = 0;
         int errorCount = 0;
+        Map<Integer, Series> incoming = new LinkedHashMap<>();
 
         for (Map<String, Object> s : streams) {
             try {
@@ -350,12 +200,19 @@ public class SeriesService {
                         .categoryName(getStringSafely(s, "category_name"))
                         .streamUrl(getStringSafely(s, "stream_url"))
                         .streamIcon(getStringSafely(s, "stream_icon"))
+                        .ownerId(userId)
                         .build();
 
+                if (series.getSeriesId() == 0) {
+                    System.err.println("⚠ Série ignorée: seriesId invalide");
+                    errorCount++;
+                    continue;
+                }
+
                 // Validation avant sauvegarde
                 if (series.getName() != null && series.getStreamUrl() != null) {
-                    seriesRepository.save(series);
-                    savedCount++;
+                    series.setFingerprint(fingerprintOf(series));
+                    incoming.put(series.getSeriesId(), series);
                 } else {
                     System.err.println("⚠ Série invalide ignorée: " + s.get("name"));
                     errorCount++;
@@ -366,39 +223,96 @@ public class SeriesService {
             }
         }
 
-        System.out.println("✅ Séries sauvegardées: " + savedCount + " réussies, " + errorCount + " erreurs");
+        if (incoming.isEmpty()) {
+            System.out.println("⚠ Aucune série valide, catalogue existant conservé");
+            return;
+        }
+
+        // Catalogue identique à la dernière synchronisation : rien à écrire
+        long catalogFingerprint = FingerprintUtils.catalogFingerprint(incoming.values(), Series::getFingerprint);
+        if (catalogFingerprintService.isUnchanged(userId, TypeContenu.SERIE, catalogFingerprint, incoming.size())
+                && seriesRepository.countByOwnerId(userId) == incoming.size()) {
+            System.out.println("⏭ Séries pour user " + userId + " inchangées (empreinte "
+                    + FingerprintUtils.toHex(catalogFingerprint) + "), aucune écriture");
+            return;
+        }
+
+        CatalogDelta<Series> delta = CatalogDelta.compute(
+                incoming.values(),
+                seriesRepository.findFingerprintsByOwnerId(userId),
+                Series::getSeriesId,
+                Series::getFingerprint,
+                (stored, updated) -> updated.setId(stored.getId()));
+
+        writeDelta(delta);
+        catalogFingerprintService.record(userId, TypeContenu.SERIE, catalogFingerprint, incoming.size());
+
+        System.out.println("✅ Séries pour user " + userId + ": " + delta + ", " + errorCount + " erreurs");
     }
 
     /**
-     * Sauvegarde en lot pour de gros volumes
+     * Supprime les séries disparues (et les doublons), puis écrit les ajouts et modifications
+     * en upserts bulk clés (ownerId, seriesId), idempotents grâce à l'index unique correspondant
      */
-    private void saveSeriesStreamsBatch(List<Map<String, Object>> streams, int batchSize) {
-        if (streams == null || streams.isEmpty()) {
-            System.out.println("⚠ Aucune série à sauvegarder");
-            return;
+    private void writeDelta(CatalogDelta<Series> delta) {
+        if (!delta.getRemoved().isEmpty()) {
+            seriesRepository.deleteAllById(delta.getRemoved().stream().map(Series::getId).toList());
         }
 
-        for (int i = 0; i < streams.size(); i += batchSize) {
-            int endIndex = Math.min(i + batchSize, streams.size());
-            List<Map<String, Object>> batch = streams.subList(i, endIndex);
+        bulkUpsertWriter.upsertAll(Series.class, delta.getUpserts(), "ownerId", "seriesId");
+    }
 
-            System.out.println("📦 Traitement du lot Séries " + (i / batchSize + 1) + " (" + batch.size() + " éléments)");
-            saveSeriesStreams(batch);
-        }
+    /**
+     * Empreinte des champs synchronisés d'une série
+     */
+    static long fingerprintOf(Series series) {
+        return FingerprintUtils.fingerprint(
+                series.getSeriesId(),
+                series.getName(),
+                series.getCategoryId(),
+                series.getCategoryName(),
+                series.getStreamIcon(),
+                series.getStreamUrl());
     }
 
     /**
-     * Synchronise et sauvegarde les séries pour un utilisateur
+     * Synchronise et sauvegarde les séries pour un utilisateur.
+     * L'appel Xtream ne bloque aucun thread ; le fallback M3U et les écritures Mongo,
+     * bloquants, s'exécutent sur boundedElastic.
      */
-    public List<Map<String, Object>> syncAndSaveSeriesStreamsForUser(String userId) {
-        List<Map<String, Object>> streams = fetchSeriesStreamsForUser(userId);
+    public Mono<List<Map<String, Object>>> syncAndSaveSeriesStreamsForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> fetchSeriesStreamsFromApi(config, true)
+                        .onErrorResume(e -> !(e instanceof ProviderUnavailableException), e -> {
+                            System.err.println("❌ Erreur API Séries : " + e.getMessage());
+                            return Mono.empty();
+                        })
+                        .flatMap(streams -> Mono.fromCallable(() -> {
+                            saveSeriesStreamsForUser(userId, streams);
+                            return streams;
+                        }).subscribeOn(Schedulers.boundedElastic()))
+                        .switchIfEmpty(Mono.fromCallable(() -> syncFromM3U(userId, config))
+                                .subscribeOn(Schedulers.boundedElastic())));
+    }
 
-        if (streams.size() > 1000) {
-            saveSeriesStreamsBatch(streams, 100);
-        } else {
-            saveSeriesStreams(streams);
+    /**
+     * Synchronisation depuis le M3U quand l'API Xtream ne répond pas (bloquant)
+     */
+    private List<Map<String, Object>> syncFromM3U(String userId, UserXtreamConfig config) {
+        M3UCatalog catalog = fetchCatalogIfChanged(config,
+                catalogFingerprintService.getM3uDigest(userId, TypeContenu.SERIE));
+        if (catalog.isUnchanged() && seriesRepository.countByOwnerId(userId) > 0) {
+            System.out.println("⏭ M3U inchangé: séries déjà à jour en base, aucune écriture");
+            return toMaps(seriesRepository.findByOwnerId(userId));
         }
 
+        if (catalog.isUnchanged()) {
+            catalog = m3uIngestionService.ingest(config);
+        }
+        List<Map<String, Object>> streams = catalog.getSeries();
+        saveSeriesStreamsForUser(userId, streams);
+        // Après l'écriture seulement : une sync en échec sera rejouée au prochain passage
+        catalogFingerprintService.recordM3uDigest(userId, TypeContenu.SERIE, catalog.getDigest());
         return streams;
     }
 
@@ -467,13 +381,4 @@ public class SeriesService {
         }
         return "";
     }
-
-    private int generateStreamId(String url) {
-        return Math.abs(url.hashCode());
-    }
-
-    private int getCategoryId(String groupTitle) {
-        if (groupTitle == null) return 0;
-        return Math.abs(groupTitle.hashCode()) % 1000;
-    }
 }
\ No newline at end of file
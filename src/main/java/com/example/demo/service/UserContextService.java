@@ -7,6 +7,8 @@ import com.example.demo.repository.CompteRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.Optional;
 
@@ -92,6 +94,15 @@ public class UserContextService {
         return config;
     }
 
+    /**
+     * Version non bloquante de {@link #getUserXtreamConfigOrThrow(String)} : la lecture Mongo
+     * est déportée sur boundedElastic pour ne pas bloquer les chaînes réactives
+     */
+    public Mono<UserXtreamConfig> getUserXtreamConfigAsync(String userId) {
+        return Mono.fromCallable(() -> getUserXtreamConfigOrThrow(userId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
     /**
      * Récupère une playlist spécifique d'un utilisateur
      */
@@ -1,293 +1,195 @@
 package com.example.demo.service;
 
 import com.example.demo.config.UserXtreamConfig;
+import com.example.demo.dto.XtreamCategory;
+import com.example.demo.dto.XtreamVod;
+import com.example.demo.model.TypeContenu;
 import com.example.demo.model.Vod;
 import com.example.demo.repository.VodRepository;
+import com.example.demo.service.m3u.M3UCatalog;
+import com.example.demo.service.m3u.M3UIngestionService;
+import com.example.demo.service.xtream.ProviderUnavailableException;
+import com.example.demo.service.xtream.XtreamClient;
+import com.example.demo.utils.CatalogDelta;
+import com.example.demo.utils.FingerprintUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @RequiredArgsConstructor
 public class VodService {
 
     private final VodRepository vodRepository;
-    private final WebClient webClient;
+    private final BulkUpsertWriter bulkUpsertWriter;
+    private final XtreamClient xtreamClient;
     private final UserContextService userContextService;
+    private final M3UIngestionService m3uIngestionService;
+    private final CatalogFingerprintService catalogFingerprintService;
 
     /**
      * Récupère les VOD pour un utilisateur spécifique
      */
-    public List<Map<String, Object>> fetchVodStreamsForUser(String userId) {
-        UserXtreamConfig config = userContextService.getUserXtreamConfigOrThrow(userId);
-        return fetchVodStreams(config);
+    public Mono<List<Map<String, Object>>> fetchVodStreamsForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(this::fetchVodStreams);
     }
 
     /**
-     * Récupère la liste des VOD depuis l'API Xtream
+     * Liste des catégories VOD : seule cette liste est chargée d'avance (mode paresseux)
      */
-    private List<Map<String, Object>> fetchVodStreams(UserXtreamConfig config) {
-        try {
-            List<Map<String, Object>> vods = webClient.get()
-                    .uri(config.getVodStreamsUrl())
-                    .retrieve()
-                    .bodyToMono(List.class)
-                    .block();
-
-            System.out.println("✅ Récupéré " + (vods != null ? vods.size() : 0) + " VOD depuis Xtream API");
-
-            // ✅ Ajouter l'URL de streaming complète
-            if (vods != null) {
-                for (Map<String, Object> vod : vods) {
-                    Integer vodId = parseIntSafely(vod.get("stream_id"));
-                    String extension = getStringSafely(vod, "container_extension");
-                    if (vodId > 0 && !extension.isEmpty()) {
-                        vod.put("stream_url", config.getVodStreamUrl(vodId, extension));
-                    }
-                }
-            }
-
-            return vods != null ? vods : new ArrayList<>();
-
-        } catch (Exception e) {
-            System.err.println("❌ Erreur API VOD : " + e.getMessage());
-            return fetchVodFromM3U(config);
-        }
+    public Mono<List<Map<String, Object>>> fetchVodCategoriesForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> xtreamClient.getVodCategories(config)
+                        .filter(category -> category.categoryId() != null)
+                        .map(XtreamCategory::toMap)
+                        .collectList());
     }
 
     /**
-     * Fallback pour récupérer les VOD depuis le M3U
+     * VOD d'une catégorie (category_id), chargés à la première consultation
+     * puis servis par le cache de réponses et rafraîchis en arrière-plan
      */
-    private List<Map<String, Object>> fetchVodFromM3U(UserXtreamConfig config) {
-        try {
-            String m3uContent = webClient.get()
-                    .uri(config.getM3uUrl())
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            return parseVodFromM3U(m3uContent);
-        } catch (Exception ex) {
-            throw new RuntimeException("Impossible de récupérer les VOD via fallback M3U", ex);
-        }
+    public Mono<List<Map<String, Object>>> fetchVodStreamsByCategoryForUser(String userId, Integer categoryId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> xtreamClient.getVodStreamsByCategory(config, categoryId)
+                        .map(vod -> toMap(vod, config))
+                        .filter(item -> item.get("stream_id") != null)
+                        .collectList());
     }
 
     /**
-     * Parse un fichier M3U pour extraire uniquement les VOD
+     * Émet les VOD un par un, sans agréger le catalogue en mémoire (réponse NDJSON).
+     * Le fallback M3U n'intervient que si l'API échoue avant le premier élément valide.
      */
-    private List<Map<String, Object>> parseVodFromM3U(String m3uContent) {
-        List<Map<String, Object>> vods = new ArrayList<>();
-        if (m3uContent == null) return vods;
-
-        String[] lines = m3uContent.split("\n");
-        Map<String, Object> currentVod = null;
-
-        for (String line : lines) {
-            if (line.startsWith("#EXTINF:")) {
-                // Vérifie si c'est un VOD
-                if (isVodContent(line)) {
-                    currentVod = new HashMap<>();
-                    String[] parts = line.split(",", 2);
-                    if (parts.length == 2) {
-                        String title = parts[1].trim();
-                        currentVod.put("name", title);
-
-                        // Extrait les métadonnées du titre
-                        extractVodMetadata(title, line, currentVod);
-                    }
-                } else {
-                    currentVod = null; // Ignore les non-VOD
-                }
-            } else if (line.startsWith("http") && currentVod != null) {
-                // Vérification finale de l'URL
-                if (isValidVodUrl(line.trim())) {
-                    currentVod.put("stream_url", line.trim());
-                    currentVod.put("stream_id", generateStreamId(line.trim()));
-                    currentVod.put("category_id", getCategoryId((String) currentVod.get("group_title")));
-                    currentVod.put("category_name",
-                            currentVod.getOrDefault("group_title", "Movies").toString());
-                    vods.add(currentVod);
-                }
-                currentVod = null;
-            }
-        }
-
-        System.out.println("✅ Parsé " + vods.size() + " VOD depuis M3U");
-        return vods;
+    public Flux<Map<String, Object>> streamVodStreamsForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMapMany(config -> Flux.defer(() -> {
+                    AtomicBoolean emitted = new AtomicBoolean();
+                    return xtreamClient.getVodStreamsCatalog(config)
+                            .map(vod -> toMap(vod, config))
+                            .filter(item -> item.get("stream_id") != null)
+                            .doOnNext(item -> emitted.set(true))
+                            .onErrorResume(e -> !emitted.get() && !(e instanceof ProviderUnavailableException), e -> {
+                                System.err.println("❌ Erreur API VOD : " + e.getMessage());
+                                return Mono.fromCallable(() -> fetchVodFromM3U(config))
+                                        .subscribeOn(Schedulers.boundedElastic())
+                                        .flatMapIterable(items -> items);
+                            });
+                }));
     }
 
     /**
-     * Détermine si une ligne EXTINF correspond à un contenu VOD
+     * Récupère la liste des VOD depuis l'API Xtream (fallback M3U, sauf si le circuit du fournisseur est ouvert)
      */
-    private boolean isVodContent(String extinf) {
-        if (extinf == null) return false;
-
-        String line = extinf.toLowerCase();
-
-        // Patterns indiquant du VOD
-        String[] vodPatterns = {
-                "group-title=\"movies\"", "group-title=\"vod\"",
-                "group-title=\"films\"", "group-title=\"cinema\"",
-                "group-title=\"movie\"", "group-title=\"film\"",
-                "720p", "1080p", "4k", "bluray", "webrip", "dvdrip",
-                "hdtv", "web-dl", "brrip", "\\(\\d{4}\\)"
-        };
-
-        for (String pattern : vodPatterns) {
-            if (Pattern.compile(pattern).matcher(line).find()) {
-                return true;
-            }
-        }
-
-        return false;
+    private Mono<List<Map<String, Object>>> fetchVodStreams(UserXtreamConfig config) {
+        return fetchVodStreamsFromApi(config, false)
+                .onErrorResume(e -> !(e instanceof ProviderUnavailableException), e -> {
+                    System.err.println("❌ Erreur API VOD : " + e.getMessage());
+                    return Mono.fromCallable(() -> fetchVodFromM3U(config))
+                            .subscribeOn(Schedulers.boundedElastic());
+                });
     }
 
     /**
-     * Valide si l'URL correspond à un contenu VOD
+     * Appel direct à l'API Xtream, sans fallback.
+     * Pour une synchronisation, le catalogue vient de la requête unique, sans cache : un catalogue réparti
+     * par catégorie peut manquer des éléments (catégorie nulle ou non listée) que le delta supprimerait en base,
+     * et une réponse en cache pourrait être antérieure aux derniers changements du fournisseur.
      */
-    private boolean isValidVodUrl(String url) {
-        if (url == null || url.trim().isEmpty()) {
-            return false;
-        }
-
-        String lowerUrl = url.toLowerCase();
-
-        // Extensions vidéo typiques du VOD
-        String[] vodExtensions = {
-                ".mp4", ".mkv", ".avi", ".mov", ".wmv",
-                ".flv", ".webm", ".m4v"
-        };
-
-        for (String ext : vodExtensions) {
-            if (lowerUrl.endsWith(ext)) {
-                return true;
-            }
-        }
+    private Mono<List<Map<String, Object>>> fetchVodStreamsFromApi(UserXtreamConfig config, boolean forSync) {
+        Flux<XtreamVod> source = forSync ? xtreamClient.getVodStreams(config, true) : xtreamClient.getVodStreamsCatalog(config);
+        return source
+                .map(vod -> toMap(vod, config))
+                .collectList()
+                .map(vods -> {
+                    // Un objet JSON (erreur d'authentification...) est décodé comme un seul élément sans identifiant
+                    if (!vods.isEmpty() && vods.stream().allMatch(item -> item.get("stream_id") == null)) {
+                        throw new IllegalStateException("Réponse Xtream inattendue: aucun élément avec stream_id");
+                    }
 
-        // Patterns d'URL VOD
-        return lowerUrl.contains("/movie/") || lowerUrl.contains("/vod/");
+                    System.out.println("✅ Récupéré " + vods.size() + " VOD depuis Xtream API");
+                    return vods;
+                });
     }
 
     /**
-     * Extrait les métadonnées spécifiques aux VOD
+     * Map compacte d'un VOD de l'API, avec l'URL de streaming complète
      */
-    private void extractVodMetadata(String title, String extinf, Map<String, Object> vod) {
-        // Année de sortie
-        String year = extractYear(title);
-        if (year != null) vod.put("year", Integer.parseInt(year));
-
-        // Qualité
-        String quality = extractQuality(title);
-        if (quality != null) vod.put("quality", quality);
-
-        // Genre depuis group-title
-        String groupTitle = extractAttribute(extinf, "group-title");
-        if (groupTitle != null) {
-            vod.put("group_title", groupTitle);
-            vod.put("genre", mapCategoryToGenre(groupTitle));
+    private Map<String, Object> toMap(XtreamVod vod, UserXtreamConfig config) {
+        Map<String, Object> map = new HashMap<>(8);
+        map.put("stream_id", vod.streamId());
+        map.put("name", vod.name());
+        map.put("category_id", vod.categoryId());
+        map.put("category_name", vod.categoryName());
+        map.put("stream_icon", vod.streamIcon());
+        map.put("container_extension", vod.containerExtension());
+
+        // ✅ Ajouter l'URL de streaming complète
+        String extension = vod.containerExtension() != null ? vod.containerExtension().trim() : "";
+        if (vod.streamId() != null && vod.streamId() > 0 && !extension.isEmpty()) {
+            map.put("stream_url", config.getVodStreamUrl(vod.streamId(), extension));
         }
-
-        // Logo/Icône
-        String logo = extractAttribute(extinf, "tvg-logo");
-        if (logo != null) vod.put("stream_icon", logo);
-
-        // Durée (si présente)
-        String duration = extractDuration(extinf);
-        if (duration != null) vod.put("duration", duration);
-    }
-
-    /**
-     * Extrait l'année du titre
-     */
-    private String extractYear(String title) {
-        Pattern yearPattern = Pattern.compile("\\((\\d{4})\\)");
-        Matcher matcher = yearPattern.matcher(title);
-        return matcher.find() ? matcher.group(1) : null;
+        return map;
     }
 
     /**
-     * Extrait la qualité du titre
+     * Fallback pour récupérer les VOD depuis le M3U (téléchargement et parsing partagés)
      */
-    private String extractQuality(String title) {
-        String[] qualities = {"4K", "2160p", "1080p", "720p", "480p", "HD", "BluRay", "WEBRip", "DVDRip"};
-        String upperTitle = title.toUpperCase();
-
-        for (String quality : qualities) {
-            if (upperTitle.contains(quality)) {
-                return quality;
-            }
+    private List<Map<String, Object>> fetchVodFromM3U(UserXtreamConfig config) {
+        try {
+            return m3uIngestionService.ingest(config).getVods();
+        } catch (Exception ex) {
+            throw new RuntimeException("Impossible de récupérer les VOD via fallback M3U", ex);
         }
-        return null;
     }
 
     /**
-     * Extrait la durée depuis EXTINF
+     * Fallback M3U de la synchronisation : peut signaler un M3U inchangé depuis la dernière écriture sans le parser
      */
-    private String extractDuration(String extinf) {
-        Pattern durationPattern = Pattern.compile("#EXTINF:(-?\\d+(?:\\.\\d+)?)");
-        Matcher matcher = durationPattern.matcher(extinf);
-        if (matcher.find()) {
-            try {
-                int seconds = (int) Double.parseDouble(matcher.group(1));
-                if (seconds > 0) {
-                    return String.valueOf(seconds / 60); // Conversion en minutes
-                }
-            } catch (NumberFormatException ignored) {}
+    private M3UCatalog fetchCatalogIfChanged(UserXtreamConfig config, String lastWrittenDigest) {
+        try {
+            return m3uIngestionService.ingestIfChanged(config, lastWrittenDigest);
+        } catch (Exception ex) {
+            throw new RuntimeException("Impossible de récupérer les VOD via fallback M3U", ex);
         }
-        return null;
-    }
-
-    /**
-     * Mappe une catégorie vers un genre
-     */
-    private String mapCategoryToGenre(String category) {
-        if (category == null) return "Unknown";
-
-        String lowerCategory = category.toLowerCase();
-        if (lowerCategory.contains("action")) return "Action";
-        if (lowerCategory.contains("comedy")) return "Comedy";
-        if (lowerCategory.contains("drama")) return "Drama";
-        if (lowerCategory.contains("horror")) return "Horror";
-        if (lowerCategory.contains("sci-fi") || lowerCategory.contains("science")) return "Sci-Fi";
-        if (lowerCategory.contains("romance")) return "Romance";
-        if (lowerCategory.contains("thriller")) return "Thriller";
-        if (lowerCategory.contains("documentary")) return "Documentary";
-        if (lowerCategory.contains("animation")) return "Animation";
-
-        return "Movie";
     }
 
     /**
-     * Extrait un attribut de la ligne EXTINF
+     * Convertit les VOD stockés au format renvoyé par la synchronisation
      */
-    private String extractAttribute(String extinf, String attributeName) {
-        String pattern = attributeName + "=\"";
-        int start = extinf.indexOf(pattern);
-        if (start == -1) return null;
-
-        start += pattern.length();
-        int end = extinf.indexOf("\"", start);
-        if (end == -1) return null;
-
-        return extinf.substring(start, end);
+    private List<Map<String, Object>> toMaps(List<Vod> stored) {
+        List<Map<String, Object>> vods = new ArrayList<>(stored.size());
+        for (Vod item : stored) {
+            Map<String, Object> vod = new HashMap<>();
+            vod.put("stream_id", item.getVodId());
+            vod.put("name", item.getName());
+            vod.put("category_id", item.getCategoryId());
+            vod.put("category_name", item.getCategoryName());
+            vod.put("stream_icon", item.getStreamIcon());
+            vod.put("stream_url", item.getStreamUrl());
+            vods.add(vod);
+        }
+        return vods;
     }
 
     /**
-     * Sauvegarde les VOD en base avec validation
+     * Sauvegarde les VOD d'un utilisateur en base avec validation.
+     * Seul le delta (ajouts, modifications, suppressions) par rapport au catalogue stocké est écrit.
      */
-    public void saveVodStreams(List<Map<String, Object>> streams) {
+    public void saveVodStreamsForUser(String userId, List<Map<String, Object>> streams) {
         if (streams == null || streams.isEmpty()) {
             System.out.println("⚠ Aucun VOD à sauvegarder");
             return;
         }
 
-        int savedCount = 0;
         int errorCount = 0;
+        Map<Integer, Vod> incoming = new LinkedHashMap<>();
 
         for (Map<String, Object> s : streams) {
             try {
@@ -298,12 +200,19 @@ public class VodService {
                         .categoryName(getStringSafely(s, "category_name"))
                         .streamUrl(getStringSafely(s, "stream_url"))
                         .streamIcon(getStringSafely(s, "stream_icon"))
+                        .ownerId(userId)
                         .build();
 
+                if (vod.getVodId() == 0) {
+                    System.err.println("⚠ VOD ignoré: vodId invalide");
+                    errorCount++;
+                    continue;
+                }
+
                 // Validation avant sauvegarde
                 if (vod.getName() != null && vod.getStreamUrl() != null) {
-                    vodRepository.save(vod);
-                    savedCount++;
+                    vod.setFingerprint(fingerprintOf(vod));
+                    incoming.put(vod.getVodId(), vod);
                 } else {
                     System.err.println("⚠ VOD invalide ignoré: " + s.get("name"));
                     errorCount++;
@@ -314,39 +223,96 @@ public class VodService {
             }
         }
 
-        System.out.println("✅ VOD sauvegardés: " + savedCount + " réussis, " + errorCount + " erreurs");
+        if (incoming.isEmpty()) {
+            System.out.println("⚠ Aucun VOD valide, catalogue existant conservé");
+            return;
+        }
+
+        // Catalogue identique à la dernière synchronisation : rien à écrire
+        long catalogFingerprint = FingerprintUtils.catalogFingerprint(incoming.values(), Vod::getFingerprint);
+        if (catalogFingerprintService.isUnchanged(userId, TypeContenu.FILM, catalogFingerprint, incoming.size())
+                && vodRepository.countByOwnerId(userId) == incoming.size()) {
+            System.out.println("⏭ VOD pour user " + userId + " inchangés (empreinte "
+                    + FingerprintUtils.toHex(catalogFingerprint) + "), aucune écriture");
+            return;
+        }
+
+        CatalogDelta<Vod> delta = CatalogDelta.compute(
+                incoming.values(),
+                vodRepository.findFingerprintsByOwnerId(userId),
+                Vod::getVodId,
+                Vod::getFingerprint,
+                (stored, updated) -> updated.setId(stored.getId()));
+
+        writeDelta(delta);
+        catalogFingerprintService.record(userId, TypeContenu.FILM, catalogFingerprint, incoming.size());
+
+        System.out.println("✅ VOD pour user " + userId + ": " + delta + ", " + errorCount + " erreurs");
     }
 
     /**
-     * Sauvegarde en lot pour de gros volumes
+     * Supprime les VOD disparus (et les doublons), puis écrit les ajouts et modifications
+     * en upserts bulk clés (ownerId, vodId), idempotents grâce à l'index unique correspondant
      */
-    public void saveVodStreamsBatch(List<Map<String, Object>> streams, int batchSize) {
-        if (streams == null || streams.isEmpty()) {
-            System.out.println("⚠ Aucun VOD à sauvegarder");
-            return;
+    private void writeDelta(CatalogDelta<Vod> delta) {
+        if (!delta.getRemoved().isEmpty()) {
+            vodRepository.deleteAllById(delta.getRemoved().stream().map(Vod::getId).toList());
         }
 
-        for (int i = 0; i < streams.size(); i += batchSize) {
-            int endIndex = Math.min(i + batchSize, streams.size());
-            List<Map<String, Object>> batch = streams.subList(i, endIndex);
+        bulkUpsertWriter.upsertAll(Vod.class, delta.getUpserts(), "ownerId", "vodId");
+    }
 
-            System.out.println("📦 Traitement du lot VOD " + (i / batchSize + 1) + " (" + batch.size() + " éléments)");
-            saveVodStreams(batch);
-        }
+    /**
+     * Empreinte des champs synchronisés d'un VOD
+     */
+    static long fingerprintOf(Vod vod) {
+        return FingerprintUtils.fingerprint(
+                vod.getVodId(),
+                vod.getName(),
+                vod.getCategoryId(),
+                vod.getCategoryName(),
+                vod.getStreamIcon(),
+                vod.getStreamUrl());
     }
 
     /**
-     * Synchronise et sauvegarde les VOD pour un utilisateur
+     * Synchronise et sauvegarde les VOD pour un utilisateur.
+     * L'appel Xtream ne bloque aucun thread ; le fallback M3U et les écritures Mongo,
+     * bloquants, s'exécutent sur boundedElastic.
      */
-    public List<Map<String, Object>> syncAndSaveVodStreamsForUser(String userId) {
-        List<Map<String, Object>> streams = fetchVodStreamsForUser(userId);
+    public Mono<List<Map<String, Object>>> syncAndSaveVodStreamsForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> fetchVodStreamsFromApi(config, true)
+                        .onErrorResume(e -> !(e instanceof ProviderUnavailableException), e -> {
+                            System.err.println("❌ Erreur API VOD : " + e.getMessage());
+                            return Mono.empty();
+                        })
+                        .flatMap(streams -> Mono.fromCallable(() -> {
+                            saveVodStreamsForUser(userId, streams);
+                            return streams;
+                        }).subscribeOn(Schedulers.boundedElastic()))
+                        .switchIfEmpty(Mono.fromCallable(() -> syncFromM3U(userId, config))
+                                .subscribeOn(Schedulers.boundedElastic())));
+    }
 
-        if (streams.size() > 1000) {
-            saveVodStreamsBatch(streams, 100);
-        } else {
-            saveVodStreams(streams);
+    /**
+     * Synchronisation depuis le M3U quand l'API Xtream ne répond pas (bloquant)
+     */
+    private List<Map<String, Object>> syncFromM3U(String userId, UserXtreamConfig config) {
+        M3UCatalog catalog = fetchCatalogIfChanged(config,
+                catalogFingerprintService.getM3uDigest(userId, TypeContenu.FILM));
+        if (catalog.isUnchanged() && vodRepository.countByOwnerId(userId) > 0) {
+            System.out.println("⏭ M3U inchangé: VOD déjà à jour en base, aucune écriture");
+            return toMaps(vodRepository.findByOwnerId(userId));
         }
 
+        if (catalog.isUnchanged()) {
+            catalog = m3uIngestionService.ingest(config);
+        }
+        List<Map<String, Object>> streams = catalog.getVods();
+        saveVodStreamsForUser(userId, streams);
+        // Après l'écriture seulement : une sync en échec sera rejouée au prochain passage
+        catalogFingerprintService.recordM3uDigest(userId, TypeContenu.FILM, catalog.getDigest());
         return streams;
     }
 
@@ -397,13 +363,4 @@ public class VodService {
         }
         return "";
     }
-
-    private int generateStreamId(String url) {
-        return Math.abs(url.hashCode());
-    }
-
-    private int getCategoryId(String groupTitle) {
-        if (groupTitle == null) return 0;
-        return Math.abs(groupTitle.hashCode()) % 1000;
-    }
 }
\ No newline at end of file
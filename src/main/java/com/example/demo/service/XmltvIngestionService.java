@@ -0,0 +1,195 @@
+package com.example.demo.service;
+
+import com.example.demo.config.UserXtreamConfig;
+import com.example.demo.model.Epg;
+import com.example.demo.model.LiveStream;
+import com.example.demo.repository.EpgRepository;
+import com.example.demo.repository.LiveStreamRepository;
+import com.example.demo.service.m3u.M3UFileDownloader;
+import com.example.demo.service.xmltv.XmltvProgramme;
+import com.example.demo.service.xmltv.XmltvStreamParser;
+import com.example.demo.service.xtream.ProviderRateLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Ingestion du guide XMLTV complet (xmltv.php) : une requête par fournisseur au lieu
+ * d'un get_short_epg par chaîne.
+ *
+ * Le guide est téléchargé sur disque puis parsé en flux (StAX). Chaque programme est rattaché
+ * aux live streams de l'utilisateur dont l'epgChannelId (epg_channel_id / tvg-id) correspond
+ * à son attribut channel, et écrit par lots. L'EPG d'un stream présent dans le guide est
+ * remplacé : une ingestion répétée ne crée pas de doublons.
+ */
+@Service
+@RequiredArgsConstructor
+public class XmltvIngestionService {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final UserContextService userContextService;
+    private final LiveStreamRepository liveStreamRepository;
+    private final EpgRepository epgRepository;
+    private final M3UFileDownloader fileDownloader;
+    private final ProviderRateLimiter rateLimiter;
+
+    /**
+     * Télécharge et ingère le guide XMLTV du fournisseur de l'utilisateur
+     */
+    public Mono<XmltvIngestionResult> ingestForUser(String userId) {
+        return userContextService.getUserXtreamConfigAsync(userId)
+                .flatMap(config -> ingest(userId, config));
+    }
+
+    private Mono<XmltvIngestionResult> ingest(String userId, UserXtreamConfig config) {
+        String url = config.getXmltvUrl();
+        System.out.println("📺 Ingestion du guide XMLTV pour l'utilisateur " + userId);
+
+        return rateLimiter.acquire(url)
+                .then(Mono.usingWhen(
+                        fileDownloader.download(url, null, null),
+                        download -> Mono.fromCallable(() -> ingestFile(userId, download.getFile()))
+                                .subscribeOn(Schedulers.boundedElastic()),
+                        download -> fileDownloader.delete(download.getFile())));
+    }
+
+    /**
+     * Parse le guide et écrit les programmes des chaînes rattachées (bloquant)
+     */
+    private XmltvIngestionResult ingestFile(String userId, Path file) throws IOException, XMLStreamException {
+        long start = System.currentTimeMillis();
+        XmltvIngestionResult result = new XmltvIngestionResult();
+
+        Map<String, List<Integer>> streamsByChannel = streamsByChannel(userId);
+        result.joinableStreams = streamsByChannel.values().stream().mapToInt(List::size).sum();
+        if (streamsByChannel.isEmpty()) {
+            System.out.println("⚠ Aucun live stream avec epg_channel_id/tvg-id : guide XMLTV ignoré");
+            return result;
+        }
+
+        Set<String> guideChannels = new HashSet<>();
+        Set<Integer> replaced = new HashSet<>();
+        Set<Integer> pendingDeletes = new HashSet<>();
+        List<Epg> batch = new ArrayList<>(BATCH_SIZE);
+
+        try (InputStream in = Files.newInputStream(file)) {
+            result.programmes = XmltvStreamParser.parse(in, programme -> {
+                guideChannels.add(programme.channel());
+                List<Integer> streamIds = streamsByChannel.get(normalize(programme.channel()));
+                if (streamIds == null) {
+                    return;
+                }
+
+                result.matchedProgrammes++;
+                for (Integer streamId : streamIds) {
+                    if (replaced.add(streamId)) {
+                        pendingDeletes.add(streamId);
+                    }
+                    batch.add(toEpg(userId, streamId, programme));
+                }
+                if (batch.size() >= BATCH_SIZE) {
+                    flush(userId, batch, pendingDeletes, result);
+                }
+            });
+        }
+        flush(userId, batch, pendingDeletes, result);
+
+        result.guideChannels = guideChannels.size();
+        result.streamsWithGuide = replaced.size();
+        result.durationMs = System.currentTimeMillis() - start;
+
+        System.out.println("✅ Guide XMLTV ingéré pour l'utilisateur " + userId + ": " + result);
+        return result;
+    }
+
+    /**
+     * Supprime l'ancien EPG des streams vus pour la première fois dans ce lot, puis insère le lot
+     */
+    private void flush(String userId, List<Epg> batch, Set<Integer> pendingDeletes, XmltvIngestionResult result) {
+        if (!pendingDeletes.isEmpty()) {
+            epgRepository.deleteByOwnerIdAndStreamIdIn(userId, pendingDeletes);
+            pendingDeletes.clear();
+        }
+        if (!batch.isEmpty()) {
+            epgRepository.insert(batch);
+            result.written += batch.size();
+            batch.clear();
+        }
+    }
+
+    /**
+     * Index epgChannelId normalisé → streams de l'utilisateur (plusieurs flux peuvent partager une chaîne : HD, FHD...)
+     */
+    private Map<String, List<Integer>> streamsByChannel(String userId) {
+        Map<String, List<Integer>> index = new HashMap<>();
+        for (LiveStream liveStream : liveStreamRepository.findEpgChannelsByOwnerId(userId)) {
+            if (liveStream.getStreamId() == null) continue;
+            index.computeIfAbsent(normalize(liveStream.getEpgChannelId()), k -> new ArrayList<>(2))
+                    .add(liveStream.getStreamId());
+        }
+        return index;
+    }
+
+    private Epg toEpg(String userId, Integer streamId, XmltvProgramme programme) {
+        return Epg.builder()
+                .ownerId(userId)
+                .streamId(streamId)
+                .title(programme.title())
+                .start(programme.start())
+                .end(programme.stop())
+                .description(programme.description())
+                .build();
+    }
+
+    private static String normalize(String channelId) {
+        return channelId.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Résultat d'une ingestion XMLTV
+     */
+    public static class XmltvIngestionResult {
+        private long programmes;
+        private long matchedProgrammes;
+        private long written;
+        private int guideChannels;
+        private int joinableStreams;
+        private int streamsWithGuide;
+        private long durationMs;
+
+        public long getProgrammes() { return programmes; }
+        public long getMatchedProgrammes() { return matchedProgrammes; }
+        public long getWritten() { return written; }
+        public int getGuideChannels() { return guideChannels; }
+        public int getJoinableStreams() { return joinableStreams; }
+        public int getStreamsWithGuide() { return streamsWithGuide; }
+        public long getDurationMs() { return durationMs; }
+
+        public Map<String, Object> getStatistics() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("programmes", programmes);
+            stats.put("matched_programmes", matchedProgrammes);
+            stats.put("epg_written", written);
+            stats.put("guide_channels", guideChannels);
+            stats.put("joinable_streams", joinableStreams);
+            stats.put("streams_with_guide", streamsWithGuide);
+            stats.put("duration_ms", durationMs);
+            return stats;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("XmltvIngestionResult{programmes=%d, rattachés=%d, écrits=%d, streams=%d/%d, %dms}",
+                    programmes, matchedProgrammes, written, streamsWithGuide, joinableStreams, durationMs);
+        }
+    }
+}
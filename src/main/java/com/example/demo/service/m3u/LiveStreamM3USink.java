@@ -0,0 +1,90 @@
+package com.example.demo.service.m3u;
+
+import com.example.demo.utils.StreamUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sink M3U qui ne retient que les live streams
+ */
+public class LiveStreamM3USink implements M3UEntrySink {
+
+    private final List<Map<String, Object>> streams = new ArrayList<>();
+
+    @Override
+    public void accept(String extinf, long features, String url) {
+        if (!M3UContentClassifier.isLiveStream(features)) {
+            return;
+        }
+
+        String streamUrl = url.trim();
+        if (!isValidLiveStreamUrl(streamUrl)) {
+            return;
+        }
+
+        Map<String, Object> stream = new HashMap<>();
+        String[] parts = extinf.split(",", 2);
+        if (parts.length == 2) {
+            stream.put("name", parts[1].trim());
+        }
+        extractM3UMetadata(extinf, stream);
+
+        stream.put("stream_url", streamUrl);
+        stream.put("stream_id", StreamUtils.generateStreamId(streamUrl));
+        stream.put("category_id", StreamUtils.getCategoryId((String) stream.get("group_title")));
+        stream.put("category_name", stream.getOrDefault("group_title", "Live TV").toString());
+        streams.add(stream);
+    }
+
+    @Override
+    public List<Map<String, Object>> getResults() {
+        return streams;
+    }
+
+    /**
+     * Extrait les métadonnées du M3U
+     */
+    private void extractM3UMetadata(String extinf, Map<String, Object> stream) {
+        String tvgId = StreamUtils.extractAttribute(extinf, "tvg-id");
+        if (tvgId != null) stream.put("tvg_id", tvgId);
+
+        String tvgLogo = StreamUtils.extractAttribute(extinf, "tvg-logo");
+        if (tvgLogo != null) stream.put("stream_icon", tvgLogo);
+
+        String groupTitle = StreamUtils.extractAttribute(extinf, "group-title");
+        if (groupTitle != null) stream.put("group_title", groupTitle);
+
+        String country = StreamUtils.extractAttribute(extinf, "tvg-country");
+        if (country != null) stream.put("country", country);
+
+        String language = StreamUtils.extractAttribute(extinf, "tvg-language");
+        if (language != null) stream.put("language", language);
+    }
+
+    /**
+     * Valide si l'URL correspond à un live stream
+     */
+    private boolean isValidLiveStreamUrl(String url) {
+        if (url == null || url.trim().isEmpty()) {
+            return false;
+        }
+
+        String lowerUrl = url.toLowerCase();
+
+        String[] videoExtensions = {
+                ".mp4", ".mkv", ".avi", ".mov", ".wmv",
+                ".flv", ".webm", ".m4v", ".3gp"
+        };
+
+        for (String ext : videoExtensions) {
+            if (lowerUrl.endsWith(ext)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.service.m3u;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Attributs EXTINF reconnus par le tokenizer M3U
+ */
+public enum M3UAttribute {
+    TVG_ID("tvg-id"),
+    TVG_NAME("tvg-name"),
+    TVG_LOGO("tvg-logo"),
+    TVG_COUNTRY("tvg-country"),
+    TVG_LANGUAGE("tvg-language"),
+    GROUP_TITLE("group-title"),
+    RADIO("radio"),
+    TVG_SHIFT("tvg-shift");
+
+    private static final M3UAttribute[] VALUES = values();
+
+    private final String key;
+    private final byte[] keyBytes;
+
+    M3UAttribute(String key) {
+        this.key = key;
+        this.keyBytes = key.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Retrouve l'attribut dont le nom correspond aux octets donnés, sans créer de String
+     */
+    static M3UAttribute match(byte[] bytes, int start, int end) {
+        int length = end - start;
+        for (M3UAttribute attribute : VALUES) {
+            byte[] candidate = attribute.keyBytes;
+            if (candidate.length != length) continue;
+
+            boolean equal = true;
+            for (int i = 0; i < length; i++) {
+                if (bytes[start + i] != candidate[i]) {
+                    equal = false;
+                    break;
+                }
+            }
+            if (equal) return attribute;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.service.m3u;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Résultat d'une ingestion M3U : live streams, VOD et séries extraits en une seule passe
+ */
+public class M3UCatalog {
+
+    private final List<Map<String, Object>> liveStreams;
+    private final List<Map<String, Object>> vods;
+    private final List<Map<String, Object>> series;
+
+    // Digest du fichier M3U dont le catalogue est issu (null pour un import de fichier)
+    private String digest;
+
+    // Vrai quand le M3U est celui du dernier catalogue écrit : le catalogue n'a pas été parsé
+    private boolean unchanged;
+
+    public M3UCatalog(List<Map<String, Object>> liveStreams,
+                      List<Map<String, Object>> vods,
+                      List<Map<String, Object>> series) {
+        this.liveStreams = liveStreams != null ? liveStreams : new ArrayList<>();
+        this.vods = vods != null ? vods : new ArrayList<>();
+        this.series = series != null ? series : new ArrayList<>();
+    }
+
+    /**
+     * Catalogue vide signalant un M3U identique à celui du dernier catalogue écrit
+     */
+    public static M3UCatalog unchanged(String digest) {
+        M3UCatalog catalog = new M3UCatalog(null, null, null);
+        catalog.digest = digest;
+        catalog.unchanged = true;
+        return catalog;
+    }
+
+    /**
+     * Associe au catalogue le digest du fichier M3U parsé
+     */
+    M3UCatalog withDigest(String digest) {
+        this.digest = digest;
+        return this;
+    }
+
+    // Getters
+    public List<Map<String, Object>> getLiveStreams() { return liveStreams; }
+    public List<Map<String, Object>> getVods() { return vods; }
+    public List<Map<String, Object>> getSeries() { return series; }
+
+    public String getDigest() { return digest; }
+
+    public boolean isUnchanged() { return unchanged; }
+
+    public int getTotalCount() {
+        return liveStreams.size() + vods.size() + series.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("M3UCatalog{live=%d, vod=%d, series=%d}",
+                liveStreams.size(), vods.size(), series.size());
+    }
+}
@@ -0,0 +1,447 @@
+package com.example.demo.service.m3u;
+
+import com.example.demo.service.M3UFallbackService.ContentType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Classification des lignes EXTINF, compilée une seule fois au chargement de la classe.
+ *
+ * Un automate Aho-Corasick reconnaît en un seul scan tous les littéraux
+ * (group-title, qualités, mots-clés), et un petit matcher fixe détecte au même
+ * passage les motifs SxxEyy, epNN et (yyyy). Le résultat est un masque de
+ * caractéristiques à partir duquel chaque règle métier (fallback, live, VOD,
+ * séries) est évaluée sans rescanner la ligne.
+ *
+ * Les comparaisons se font sur la ligne mise en minuscules, comme les anciennes
+ * règles basées sur toLowerCase() + Pattern.
+ */
+public final class M3UContentClassifier {
+
+    // ===== Littéraux reconnus par l'automate =====
+
+    private static final String[] LIVE_GROUPS = {
+            "group-title=\"live\"", "group-title=\"tv\"", "group-title=\"television\"",
+            "group-title=\"news\"", "group-title=\"sport\"", "group-title=\"sports\"",
+            "group-title=\"entertainment\"", "group-title=\"kids\"", "group-title=\"music\"",
+            "group-title=\"documentary\"", "group-title=\"lifestyle\"", "group-title=\"adult\"",
+            "group-title=\"general\"", "group-title=\"national\"", "group-title=\"local\""
+    };
+
+    private static final String[] VOD_GROUPS = {
+            "group-title=\"movies\"", "group-title=\"vod\"", "group-title=\"films\"",
+            "group-title=\"cinema\"", "group-title=\"movie\"", "group-title=\"film\"",
+            "group-title=\"hollywood\"", "group-title=\"bollywood\""
+    };
+
+    private static final String[] SERIES_GROUPS = {
+            "group-title=\"series\"", "group-title=\"tv shows\"", "group-title=\"shows\"",
+            "group-title=\"serie\"", "group-title=\"tv series\"", "group-title=\"drama\""
+    };
+
+    private static final String[] SERIES_WORDS = {
+            "season", "episode", "saison", "épisode", "parte", "temporada"
+    };
+
+    private static final String[] QUALITY_WORDS = {
+            "720p", "1080p", "4k", "2160p", "bluray", "webrip", "dvdrip",
+            "hdtv", "web-dl", "brrip", "movie", "película", "s01e", "s02e"
+    };
+
+    private static final String[] VIDEO_EXTENSIONS = {
+            ".mp4", ".mkv", ".avi", ".mov", ".wmv",
+            ".flv", ".webm", ".m4v", ".3gp", ".m2ts"
+    };
+
+    private static final List<String> TOKENS = new ArrayList<>();
+
+    // ===== Caractéristiques hors automate (matcher fixe) =====
+
+    /** s\d e\d */
+    private static final long SXE_1;
+    /** s\d\d e\d */
+    private static final long SXXE_1;
+    /** s\d\d e\d\d */
+    private static final long SXXE_2;
+    /** ep\d */
+    private static final long EP_NUMBER;
+    /** (\d\d\d\d) */
+    private static final long YEAR;
+
+    // ===== Masques utilisés par les règles =====
+
+    private static final long LIVE_GROUP_MASK;
+    private static final long VOD_GROUP_MASK;
+    private static final long SERIES_GROUP_MASK;
+    private static final long FALLBACK_SERIES_MASK;
+    private static final long FALLBACK_VOD_MASK;
+    private static final long VOD_MASK;
+    private static final long SERIES_MASK;
+    private static final long NOT_LIVE_MASK;
+
+    // ===== Automate =====
+
+    private static final byte[] CHAR_CLASS = new byte[256];
+    private static final int ALPHABET;
+    private static final int[] TRANSITIONS;
+    private static final long[] OUTPUTS;
+
+    static {
+        for (String[] group : new String[][]{LIVE_GROUPS, VOD_GROUPS, SERIES_GROUPS, SERIES_WORDS, QUALITY_WORDS}) {
+            for (String token : group) {
+                if (!TOKENS.contains(token)) TOKENS.add(token);
+            }
+        }
+        int bit = TOKENS.size();
+        if (bit + 5 > Long.SIZE) {
+            throw new IllegalStateException("Trop de motifs pour le masque de classification");
+        }
+        SXE_1 = 1L << bit++;
+        SXXE_1 = 1L << bit++;
+        SXXE_2 = 1L << bit++;
+        EP_NUMBER = 1L << bit++;
+        YEAR = 1L << bit;
+
+        LIVE_GROUP_MASK = mask(LIVE_GROUPS);
+        VOD_GROUP_MASK = mask(VOD_GROUPS);
+        SERIES_GROUP_MASK = mask(SERIES_GROUPS);
+
+        // M3UFallbackService : season, episode, s\d{2}e\d{2}, s\d{1}e\d{1,2}, saison, épisode, ep\d+, parte, temporada
+        FALLBACK_SERIES_MASK = mask(SERIES_WORDS) | SXXE_2 | SXE_1 | EP_NUMBER;
+        // M3UFallbackService : qualités, \(\d{4}\), movie, película
+        FALLBACK_VOD_MASK = mask("720p", "1080p", "4k", "2160p", "bluray", "webrip", "dvdrip",
+                "hdtv", "web-dl", "brrip", "movie", "película") | YEAR;
+
+        // VOD : groupes films + qualités + (yyyy)
+        VOD_MASK = mask("group-title=\"movies\"", "group-title=\"vod\"",
+                "group-title=\"films\"", "group-title=\"cinema\"",
+                "group-title=\"movie\"", "group-title=\"film\"",
+                "720p", "1080p", "4k", "bluray", "webrip", "dvdrip",
+                "hdtv", "web-dl", "brrip") | YEAR;
+
+        // Séries : groupes séries + mots-clés + s\d{1,2}e\d{1,3}, s\d{2}e\d{2}, ep\d+
+        SERIES_MASK = mask("group-title=\"series\"", "group-title=\"tv shows\"",
+                "group-title=\"shows\"", "group-title=\"serie\"",
+                "group-title=\"tv series\"", "season", "episode",
+                "saison", "épisode", "parte") | SXE_1 | SXXE_1 | EP_NUMBER;
+
+        // Live : tout sauf ces marqueurs VOD/séries
+        NOT_LIVE_MASK = mask("group-title=\"movies\"", "group-title=\"vod\"",
+                "group-title=\"series\"", "group-title=\"tv shows\"",
+                "group-title=\"films\"", "group-title=\"cinema\"",
+                "season", "episode", "s01e", "s02e",
+                "720p", "1080p", "4k", "bluray", "webrip");
+
+        // Alphabet réduit aux caractères présents dans les motifs
+        Arrays.fill(CHAR_CLASS, (byte) -1);
+        int alphabet = 0;
+        for (String token : TOKENS) {
+            for (char c : token.toCharArray()) {
+                if (c >= 256) throw new IllegalStateException("Caractère hors Latin-1 dans un motif: " + c);
+                if (CHAR_CLASS[c] < 0) CHAR_CLASS[c] = (byte) alphabet++;
+            }
+        }
+        ALPHABET = alphabet;
+
+        // Trie
+        List<int[]> gotoTable = new ArrayList<>();
+        List<Long> outputs = new ArrayList<>();
+        gotoTable.add(newRow(alphabet));
+        outputs.add(0L);
+        for (int t = 0; t < TOKENS.size(); t++) {
+            int state = 0;
+            for (char c : TOKENS.get(t).toCharArray()) {
+                int cls = CHAR_CLASS[c];
+                int next = gotoTable.get(state)[cls];
+                if (next < 0) {
+                    next = gotoTable.size();
+                    gotoTable.add(newRow(alphabet));
+                    outputs.add(0L);
+                    gotoTable.get(state)[cls] = next;
+                }
+                state = next;
+            }
+            outputs.set(state, outputs.get(state) | (1L << t));
+        }
+
+        // Liens d'échec et automate déterministe complet (parcours en largeur)
+        int states = gotoTable.size();
+        int[] fail = new int[states];
+        TRANSITIONS = new int[states * alphabet];
+        OUTPUTS = new long[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+
+        for (int cls = 0; cls < alphabet; cls++) {
+            int next = gotoTable.get(0)[cls];
+            if (next < 0) {
+                TRANSITIONS[cls] = 0;
+            } else {
+                TRANSITIONS[cls] = next;
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        OUTPUTS[0] = outputs.get(0);
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            OUTPUTS[state] = outputs.get(state) | OUTPUTS[fail[state]];
+            for (int cls = 0; cls < alphabet; cls++) {
+                int next = gotoTable.get(state)[cls];
+                if (next < 0) {
+                    TRANSITIONS[state * alphabet + cls] = TRANSITIONS[fail[state] * alphabet + cls];
+                } else {
+                    TRANSITIONS[state * alphabet + cls] = next;
+                    fail[next] = TRANSITIONS[fail[state] * alphabet + cls];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    private M3UContentClassifier() {
+        // Classe utilitaire - pas d'instanciation
+    }
+
+    /**
+     * Scanne une ligne EXTINF et retourne son masque de caractéristiques
+     */
+    public static long scan(CharSequence extinf) {
+        if (extinf == null) return 0L;
+
+        long features = 0L;
+        int state = 0;
+        int length = extinf.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = extinf.charAt(i);
+            char lower;
+
+            if (c < 128) {
+                lower = (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+                features |= fixedMatch(extinf, i, lower);
+            } else if (c == 'İ') {
+                // 'İ'.toLowerCase() donne "i̇" : le caractère combinant coupe tout motif
+                state = TRANSITIONS[state * ALPHABET + CHAR_CLASS['i']];
+                features |= OUTPUTS[state];
+                state = 0;
+                continue;
+            } else {
+                lower = Character.toLowerCase(c);
+            }
+
+            int cls = lower < 256 ? CHAR_CLASS[lower] : -1;
+            if (cls < 0) {
+                state = 0;
+            } else {
+                state = TRANSITIONS[state * ALPHABET + cls];
+                features |= OUTPUTS[state];
+            }
+        }
+
+        return features;
+    }
+
+    /**
+     * Scanne une ligne EXTINF encodée en UTF-8 sans la décoder en String
+     */
+    public static long scan(byte[] utf8, int offset, int length) {
+        long features = 0L;
+        int state = 0;
+        int end = offset + length;
+        int i = offset;
+
+        while (i < end) {
+            int b = utf8[i];
+            int codePoint;
+            int start = i;
+
+            if (b >= 0) {
+                codePoint = b;
+                i++;
+            } else if ((b & 0xE0) == 0xC0 && i + 1 < end) {
+                codePoint = ((b & 0x1F) << 6) | (utf8[i + 1] & 0x3F);
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0 && i + 2 < end) {
+                codePoint = ((b & 0x0F) << 12) | ((utf8[i + 1] & 0x3F) << 6) | (utf8[i + 2] & 0x3F);
+                i += 3;
+            } else if ((b & 0xF8) == 0xF0) {
+                // Hors plan multilingue de base : aucun motif concerné
+                state = 0;
+                i += 4;
+                continue;
+            } else {
+                state = 0;
+                i++;
+                continue;
+            }
+
+            int lower;
+            if (codePoint < 128) {
+                lower = (codePoint >= 'A' && codePoint <= 'Z') ? codePoint + 32 : codePoint;
+                features |= fixedMatch(utf8, start, end, lower);
+            } else if (codePoint == 0x130) {
+                state = TRANSITIONS[state * ALPHABET + CHAR_CLASS['i']];
+                features |= OUTPUTS[state];
+                state = 0;
+                continue;
+            } else {
+                lower = Character.toLowerCase(codePoint);
+            }
+
+            int cls = lower < 256 ? CHAR_CLASS[lower] : -1;
+            if (cls < 0) {
+                state = 0;
+            } else {
+                state = TRANSITIONS[state * ALPHABET + cls];
+                features |= OUTPUTS[state];
+            }
+        }
+
+        return features;
+    }
+
+    /**
+     * Scanne la ligne EXTINF d'une entrée tokenisée
+     */
+    public static long scan(M3UEntry entry) {
+        return scan(entry.getLineBytes(), 0, entry.getLength());
+    }
+
+    // ===== Règles =====
+
+    /**
+     * Type de contenu selon les règles de M3UFallbackService :
+     * group-title, puis motifs du titre, puis URL, live par défaut
+     */
+    public static ContentType contentType(long features, String url) {
+        if ((features & LIVE_GROUP_MASK) != 0) return ContentType.LIVE_STREAM;
+        if ((features & VOD_GROUP_MASK) != 0) return ContentType.VOD;
+        if ((features & SERIES_GROUP_MASK) != 0) return ContentType.SERIES;
+        if ((features & FALLBACK_SERIES_MASK) != 0) return ContentType.SERIES;
+        if ((features & FALLBACK_VOD_MASK) != 0) return ContentType.VOD;
+
+        ContentType urlType = contentTypeByUrl(url);
+        return urlType != ContentType.UNKNOWN ? urlType : ContentType.LIVE_STREAM;
+    }
+
+    /**
+     * Type de contenu déduit de l'URL seule
+     */
+    public static ContentType contentTypeByUrl(String url) {
+        if (url == null) return ContentType.UNKNOWN;
+
+        String lowerUrl = url.toLowerCase();
+
+        for (String ext : VIDEO_EXTENSIONS) {
+            if (lowerUrl.endsWith(ext)) {
+                return ContentType.VOD;
+            }
+        }
+
+        if (lowerUrl.contains("/live/") || lowerUrl.contains(".ts") || lowerUrl.contains(".m3u8")) {
+            return ContentType.LIVE_STREAM;
+        }
+
+        if (lowerUrl.contains("series/") || lowerUrl.contains("/episode/")) {
+            return ContentType.SERIES;
+        }
+
+        if (lowerUrl.contains("movie/") || lowerUrl.contains("/vod/")) {
+            return ContentType.VOD;
+        }
+
+        return ContentType.UNKNOWN;
+    }
+
+    public static boolean isLiveStream(long features) {
+        return (features & NOT_LIVE_MASK) == 0;
+    }
+
+    public static boolean isVod(long features) {
+        return (features & VOD_MASK) != 0;
+    }
+
+    public static boolean isSeries(long features) {
+        return (features & SERIES_MASK) != 0;
+    }
+
+    // ===== Matcher fixe SxxEyy / epNN / (yyyy) =====
+
+    private static long fixedMatch(CharSequence s, int i, char lower) {
+        int length = s.length();
+        if (lower == 's') {
+            if (i + 1 < length && isDigit(s.charAt(i + 1))) {
+                if (i + 3 < length && isE(s.charAt(i + 2)) && isDigit(s.charAt(i + 3))) {
+                    return SXE_1;
+                }
+                if (i + 4 < length && isDigit(s.charAt(i + 2)) && isE(s.charAt(i + 3)) && isDigit(s.charAt(i + 4))) {
+                    return (i + 5 < length && isDigit(s.charAt(i + 5))) ? SXXE_1 | SXXE_2 : SXXE_1;
+                }
+            }
+        } else if (lower == 'e') {
+            if (i + 2 < length && (s.charAt(i + 1) | 0x20) == 'p' && isDigit(s.charAt(i + 2))) {
+                return EP_NUMBER;
+            }
+        } else if (lower == '(') {
+            if (i + 5 < length && isDigit(s.charAt(i + 1)) && isDigit(s.charAt(i + 2))
+                    && isDigit(s.charAt(i + 3)) && isDigit(s.charAt(i + 4)) && s.charAt(i + 5) == ')') {
+                return YEAR;
+            }
+        }
+        return 0L;
+    }
+
+    private static long fixedMatch(byte[] s, int i, int end, int lower) {
+        if (lower == 's') {
+            if (i + 1 < end && isDigit(s[i + 1])) {
+                if (i + 3 < end && isE(s[i + 2]) && isDigit(s[i + 3])) {
+                    return SXE_1;
+                }
+                if (i + 4 < end && isDigit(s[i + 2]) && isE(s[i + 3]) && isDigit(s[i + 4])) {
+                    return (i + 5 < end && isDigit(s[i + 5])) ? SXXE_1 | SXXE_2 : SXXE_1;
+                }
+            }
+        } else if (lower == 'e') {
+            if (i + 2 < end && (s[i + 1] | 0x20) == 'p' && isDigit(s[i + 2])) {
+                return EP_NUMBER;
+            }
+        } else if (lower == '(') {
+            if (i + 5 < end && isDigit(s[i + 1]) && isDigit(s[i + 2])
+                    && isDigit(s[i + 3]) && isDigit(s[i + 4]) && s[i + 5] == ')') {
+                return YEAR;
+            }
+        }
+        return 0L;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isE(int c) {
+        return c == 'e' || c == 'E';
+    }
+
+    // ===== Construction =====
+
+    private static long mask(String... tokens) {
+        long mask = 0L;
+        for (String token : tokens) {
+            int index = TOKENS.indexOf(token);
+            if (index < 0) throw new IllegalStateException("Motif inconnu: " + token);
+            mask |= 1L << index;
+        }
+        return mask;
+    }
+
+    private static int[] newRow(int alphabet) {
+        int[] row = new int[alphabet];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.service.m3u;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Entrée M3U (ligne EXTINF + URL) produite par {@link M3UTokenizer}.
+ * Les positions des attributs sont relevées pendant le scan des octets et
+ * les Strings ne sont créées qu'à la demande.
+ *
+ * L'instance est réutilisée d'une entrée à l'autre : les consommateurs doivent
+ * extraire ce qu'ils conservent avant de rendre la main au tokenizer.
+ */
+public final class M3UEntry {
+
+    private static final int ATTRIBUTE_COUNT = M3UAttribute.values().length;
+
+    byte[] line = new byte[512];
+    int length;
+
+    final int[] attributeStart = new int[ATTRIBUTE_COUNT];
+    final int[] attributeEnd = new int[ATTRIBUTE_COUNT];
+    int durationStart = -1;
+    int durationEnd = -1;
+    int firstComma = -1;
+    int lastComma = -1;
+
+    String url;
+    private String extinf;
+
+    M3UEntry() {
+        reset();
+    }
+
+    void reset() {
+        length = 0;
+        Arrays.fill(attributeStart, -1);
+        Arrays.fill(attributeEnd, -1);
+        durationStart = -1;
+        durationEnd = -1;
+        firstComma = -1;
+        lastComma = -1;
+        url = null;
+        extinf = null;
+    }
+
+    public boolean hasExtinf() {
+        return length > 0;
+    }
+
+    /**
+     * Octets bruts de la ligne EXTINF (valides jusqu'à {@link #getLength()})
+     */
+    public byte[] getLineBytes() {
+        return line;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * URL du contenu
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Ligne EXTINF complète décodée (créée à la demande)
+     */
+    public String getExtinf() {
+        if (extinf == null) {
+            extinf = new String(line, 0, length, StandardCharsets.UTF_8);
+        }
+        return extinf;
+    }
+
+    /**
+     * Valeur d'un attribut key="value", ou null s'il est absent
+     */
+    public String getAttribute(M3UAttribute attribute) {
+        int start = attributeStart[attribute.ordinal()];
+        if (start < 0) return null;
+        return decode(start, attributeEnd[attribute.ordinal()]);
+    }
+
+    public boolean hasAttribute(M3UAttribute attribute) {
+        return attributeStart[attribute.ordinal()] >= 0;
+    }
+
+    /**
+     * Durée déclarée après #EXTINF:, ou null
+     */
+    public String getDuration() {
+        return durationStart < 0 ? null : decode(durationStart, durationEnd);
+    }
+
+    /**
+     * Titre situé après la première virgule de la ligne, ou null
+     */
+    public String getTitleAfterFirstComma() {
+        return firstComma < 0 ? null : decode(firstComma + 1, length);
+    }
+
+    /**
+     * Titre situé après la dernière virgule de la ligne, ou null
+     */
+    public String getTitleAfterLastComma() {
+        return lastComma < 0 ? null : decode(lastComma + 1, length);
+    }
+
+    private String decode(int start, int end) {
+        return new String(line, start, end - start, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.service.m3u;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Destination d'une entrée M3U (ligne EXTINF + URL) pendant l'ingestion.
+ * Chaque sink applique ses propres règles de filtrage et accumule ses résultats.
+ */
+public interface M3UEntrySink {
+
+    /**
+     * Reçoit une entrée complète du fichier M3U avec son masque de classification
+     * (calculé une seule fois par {@link M3UContentClassifier#scan(CharSequence)})
+     */
+    void accept(String extinf, long features, String url);
+
+    /**
+     * Résultats accumulés depuis le début de l'ingestion
+     */
+    List<Map<String, Object>> getResults();
+}
@@ -0,0 +1,260 @@
+package com.example.demo.service.m3u;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.PrematureCloseException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Télécharge les fichiers M3U directement sur disque.
+ *
+ * Le corps de la réponse est écrit au fil de l'eau dans un fichier temporaire
+ * (DataBufferUtils.write), la mémoire utilisée ne dépend donc pas de la taille
+ * du fichier. Un transfert interrompu par une erreur réseau reprend là où il s'est arrêté avec une
+ * requête Range, protégée par If-Range pour ne pas recoller deux versions différentes ; si le serveur
+ * n'a fourni ni ETag ni Last-Modified (get.php dynamique), le transfert repart du début.
+ */
+@Component
+public class M3UFileDownloader {
+
+    private static final int MAX_RESUME_ATTEMPTS = 3;
+    private static final Duration RESUME_DELAY = Duration.ofSeconds(2);
+
+    // Âge au-delà duquel un fichier du répertoire partagé est considéré abandonné
+    private static final Duration LEFTOVER_AGE = Duration.ofHours(6);
+
+    private final WebClient m3uWebClient;
+    private final Path downloadDirectory;
+
+    public M3UFileDownloader(@Qualifier("m3uWebClient") WebClient m3uWebClient) throws IOException {
+        this.m3uWebClient = m3uWebClient;
+        this.downloadDirectory = Files.createDirectories(
+                Path.of(System.getProperty("java.io.tmpdir"), "iptv-m3u"));
+        purgeLeftovers();
+    }
+
+    /**
+     * Télécharge le fichier M3U dans un fichier temporaire ; l'appelant le supprime via {@link #delete(Path)}.
+     * Téléchargement conditionnel : avec l'ETag et/ou le Last-Modified de la copie déjà connue,
+     * le serveur peut répondre 304 et aucun fichier n'est créé ({@link Download#isNotModified()}).
+     */
+    public Mono<Download> download(String m3uUrl, String etag, String lastModified) {
+        return Mono.fromCallable(() -> Files.createTempFile(downloadDirectory, "m3u-", ".m3u"))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(file -> {
+                    TransferState state = new TransferState();
+                    state.ifNoneMatch = etag;
+                    state.ifModifiedSince = lastModified;
+
+                    return transfer(m3uUrl, file, state)
+                            .then(Mono.defer(() -> state.notModified
+                                    ? delete(file).thenReturn(Download.notModified())
+                                    : Mono.just(new Download(file, state.etag, state.lastModified))))
+                            .onErrorResume(e -> delete(file).then(Mono.error(e)));
+                });
+    }
+
+    /**
+     * Supprime un fichier téléchargé
+     */
+    public Mono<Void> delete(Path file) {
+        return Mono.fromRunnable(() -> deleteQuietly(file))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    private Mono<Void> transfer(String m3uUrl, Path file, TransferState state) {
+        // Sans validateur (get.php régénéré à chaque requête), rien ne garantit que la suite appartient
+        // à la même version du fichier : on repart de zéro plutôt que d'envoyer un Range nu
+        return Mono.fromCallable(() -> state.validator != null ? Files.size(file) : 0L)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(offset -> m3uWebClient.get()
+                        .uri(m3uUrl)
+                        .headers(headers -> {
+                            if (offset > 0) {
+                                headers.setRange(List.of(HttpRange.createByteRange(offset)));
+                                headers.set(HttpHeaders.IF_RANGE, state.validator);
+                            } else {
+                                if (state.ifNoneMatch != null) {
+                                    headers.set(HttpHeaders.IF_NONE_MATCH, state.ifNoneMatch);
+                                }
+                                if (state.ifModifiedSince != null) {
+                                    headers.set(HttpHeaders.IF_MODIFIED_SINCE, state.ifModifiedSince);
+                                }
+                            }
+                        })
+                        .exchangeToMono(response -> write(response, file, offset, state)))
+                .onErrorResume(e -> isResumable(e) && state.attempts < MAX_RESUME_ATTEMPTS, e -> {
+                    state.attempts++;
+                    System.out.println("🔁 Téléchargement M3U interrompu (" + e.getMessage() + "), reprise "
+                            + state.attempts + "/" + MAX_RESUME_ATTEMPTS);
+                    return Mono.delay(RESUME_DELAY).then(transfer(m3uUrl, file, state));
+                });
+    }
+
+    private Mono<Void> write(ClientResponse response, Path file, long offset, TransferState state) {
+        HttpStatus status = HttpStatus.resolve(response.statusCode().value());
+
+        if (status == HttpStatus.PARTIAL_CONTENT && offset > 0 && rangeStartsAt(response, offset)) {
+            System.out.println("⏩ Reprise du téléchargement M3U à l'octet " + offset);
+            return DataBufferUtils.write(response.bodyToFlux(DataBuffer.class), file,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        if (status == HttpStatus.NOT_MODIFIED && offset == 0) {
+            state.notModified = true;
+            return response.releaseBody();
+        }
+
+        if (status == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE && offset > 0 && totalLength(response) == offset) {
+            // Le fichier était déjà complet
+            return response.releaseBody();
+        }
+
+        if (response.statusCode().is2xxSuccessful() && status != HttpStatus.PARTIAL_CONTENT) {
+            // Premier transfert, ou serveur qui ignore le Range / fichier modifié : on repart de zéro
+            HttpHeaders headers = response.headers().asHttpHeaders();
+            state.etag = headers.getETag();
+            state.lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+            state.validator = validatorOf(response);
+            return DataBufferUtils.write(response.bodyToFlux(DataBuffer.class), file,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        return response.createError();
+    }
+
+    /**
+     * Seules les erreurs de transport (connexion, fermeture prématurée, timeout) et les 5xx sont reprises :
+     * ni les refus du serveur (4xx), ni les erreurs locales (disque plein, fichier supprimé, tampon dépassé)
+     */
+    static boolean isResumable(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError();
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebClientRequestException
+                    || cause instanceof PrematureCloseException
+                    || cause instanceof TimeoutException
+                    || cause instanceof io.netty.handler.timeout.TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean rangeStartsAt(ClientResponse response, long offset) {
+        String contentRange = response.headers().asHttpHeaders().getFirst(HttpHeaders.CONTENT_RANGE);
+        return contentRange != null && contentRange.startsWith("bytes " + offset + "-");
+    }
+
+    private long totalLength(ClientResponse response) {
+        String contentRange = response.headers().asHttpHeaders().getFirst(HttpHeaders.CONTENT_RANGE);
+        if (contentRange == null) return -1;
+
+        int slash = contentRange.lastIndexOf('/');
+        try {
+            return slash >= 0 ? Long.parseLong(contentRange.substring(slash + 1).trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * ETag fort, sinon Last-Modified : utilisé dans If-Range lors d'une reprise
+     */
+    private String validatorOf(ClientResponse response) {
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        String etag = headers.getETag();
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return headers.getFirst(HttpHeaders.LAST_MODIFIED);
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("⚠ Impossible de supprimer le fichier M3U temporaire " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Supprime les fichiers laissés par un arrêt brutal de l'application.
+     * Le répertoire est partagé (autres instances, autres services sur la machine) : seuls les
+     * téléchargements de ce service (préfixe m3u-) non modifiés depuis LEFTOVER_AGE sont supprimés.
+     */
+    private void purgeLeftovers() throws IOException {
+        long threshold = System.currentTimeMillis() - LEFTOVER_AGE.toMillis();
+        try (Stream<Path> files = Files.list(downloadDirectory)) {
+            files.filter(file -> file.getFileName().toString().startsWith("m3u-"))
+                    .filter(file -> isOlderThan(file, threshold))
+                    .forEach(this::deleteQuietly);
+        }
+    }
+
+    private boolean isOlderThan(Path file, long thresholdMillis) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis() < thresholdMillis;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * État d'un téléchargement partagé entre ses reprises
+     */
+    private static class TransferState {
+        int attempts;
+        String validator;
+        String ifNoneMatch;
+        String ifModifiedSince;
+        boolean notModified;
+        String etag;
+        String lastModified;
+    }
+
+    /**
+     * Résultat d'un téléchargement : le fichier et les validateurs HTTP renvoyés par le serveur
+     */
+    public static class Download {
+        private final Path file;
+        private final String etag;
+        private final String lastModified;
+
+        Download(Path file, String etag, String lastModified) {
+            this.file = file;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        static Download notModified() {
+            return new Download(null, null, null);
+        }
+
+        public Path getFile() { return file; }
+        public String getEtag() { return etag; }
+        public String getLastModified() { return lastModified; }
+        public boolean isNotModified() { return file == null; }
+    }
+}
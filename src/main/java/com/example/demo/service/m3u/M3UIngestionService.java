@@ -0,0 +1,125 @@
+package com.example.demo.service.m3u;
+
+import com.example.demo.config.UserXtreamConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Moteur d'ingestion M3U partagé par les services Live, VOD et Séries.
+ * Le fichier est revalidé auprès du fournisseur (cache disque conditionnel), puis parsé
+ * en une seule passe, chaque entrée étant envoyée aux trois sinks.
+ */
+@Service
+@RequiredArgsConstructor
+public class M3UIngestionService {
+
+    // Durée pendant laquelle un catalogue parsé est partagé entre les fallbacks d'une même sync,
+    // l'entrée est ensuite retirée de la map
+    private static final Duration CATALOG_TTL = Duration.ofMinutes(5);
+
+    private final M3UPlaylistCache playlistCache;
+
+    private final Map<String, CachedCatalog> catalogs = new ConcurrentHashMap<>();
+
+    private final M3UMappedFileParser fileParser = new M3UMappedFileParser(ForkJoinPool.commonPool());
+
+    /**
+     * Récupère le catalogue M3U complet d'un utilisateur.
+     * Les appels concurrents ou rapprochés pour la même playlist partagent le même téléchargement.
+     */
+    public M3UCatalog ingest(UserXtreamConfig config) {
+        return cachedCatalog(config).catalog.block();
+    }
+
+    /**
+     * Variante pour la synchronisation : si le M3U a le digest du dernier catalogue écrit pour l'utilisateur
+     * (lastWrittenDigest, mémorisé par l'appelant après une écriture réussie), le parsing est évité
+     * et un catalogue vide marqué inchangé est renvoyé.
+     * Le 304 du fournisseur ne suffit pas : le cache de playlist est partagé par compte fournisseur,
+     * la dernière revalidation a pu servir un autre utilisateur ou une sync dont l'écriture a échoué.
+     */
+    public M3UCatalog ingestIfChanged(UserXtreamConfig config, String lastWrittenDigest) {
+        CachedCatalog cached = cachedCatalog(config);
+        M3UPlaylistCache.CachedPlaylist playlist = cached.playlist.block();
+
+        if (playlist.getDigest().equals(lastWrittenDigest)) {
+            System.out.println("⏭ M3U identique au dernier catalogue écrit (digest "
+                    + playlist.getDigest().substring(0, 12) + "), parsing ignoré");
+            return M3UCatalog.unchanged(playlist.getDigest());
+        }
+        return cached.catalog.block();
+    }
+
+    /**
+     * Oublie le catalogue en cache pour cette configuration
+     */
+    public void invalidate(UserXtreamConfig config) {
+        catalogs.remove(M3UPlaylistCache.cacheKey(config));
+    }
+
+    private CachedCatalog cachedCatalog(UserXtreamConfig config) {
+        return catalogs.compute(M3UPlaylistCache.cacheKey(config), (key, existing) ->
+                existing != null && !existing.isExpired() ? existing : newCachedCatalog(key, config));
+    }
+
+    /**
+     * Nouvelle entrée, retirée de la map à son expiration : un catalogue parsé peut peser
+     * plusieurs centaines de Mo et ne doit pas survivre à la synchronisation qui l'a demandé
+     */
+    private CachedCatalog newCachedCatalog(String key, UserXtreamConfig config) {
+        CachedCatalog cached = new CachedCatalog(key, config);
+        Mono.delay(CATALOG_TTL).subscribe(tick -> catalogs.remove(key, cached));
+        return cached;
+    }
+
+    /**
+     * Parse un fichier M3U local (import utilisateur) : mappé en mémoire et découpé
+     * sur les entrées #EXTINF pour être parsé sur tous les cœurs
+     */
+    public M3UCatalog ingestFile(Path file) throws IOException {
+        return parseFile(file);
+    }
+
+    private M3UCatalog parseFile(Path file) throws IOException {
+        long start = System.currentTimeMillis();
+        M3UCatalog catalog = fileParser.parse(file);
+        System.out.println("✅ Parsé depuis M3U en " + (System.currentTimeMillis() - start) + " ms: "
+                + catalog.getLiveStreams().size() + " live streams, "
+                + catalog.getVods().size() + " VOD, " + catalog.getSeries().size() + " épisodes de séries");
+        return catalog;
+    }
+
+    /**
+     * Playlist revalidée et catalogue parsé (à la demande), partagés jusqu'à expiration
+     */
+    private class CachedCatalog {
+        final Mono<M3UPlaylistCache.CachedPlaylist> playlist;
+        final Mono<M3UCatalog> catalog;
+        final long expiresAt;
+
+        CachedCatalog(String key, UserXtreamConfig config) {
+            this.playlist = playlistCache.refresh(config)
+                    .doOnError(e -> catalogs.remove(key, this))
+                    .cache();
+            this.catalog = playlist
+                    .flatMap(p -> Mono.fromCallable(() -> parseFile(p.getFile()).withDigest(p.getDigest()))
+                            .subscribeOn(Schedulers.boundedElastic()))
+                    .doOnError(e -> catalogs.remove(key, this))
+                    .cache();
+            this.expiresAt = System.currentTimeMillis() + CATALOG_TTL.toMillis();
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
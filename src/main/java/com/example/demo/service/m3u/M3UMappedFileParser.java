@@ -0,0 +1,149 @@
+package com.example.demo.service.m3u;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parse un fichier M3U présent sur disque en parallèle.
+ *
+ * Le fichier est mappé en mémoire (hors heap) puis découpé récursivement sur des
+ * débuts de ligne #EXTINF : chaque morceau contient donc des entrées complètes et
+ * est tokenisé indépendamment, avec ses propres sinks. Les résultats sont fusionnés
+ * dans l'ordre du fichier, ce qui donne le même catalogue qu'un parse séquentiel.
+ */
+final class M3UMappedFileParser {
+
+    // En dessous de cette taille un morceau est parsé directement
+    private static final int MIN_CHUNK_SIZE = 1024 * 1024;
+
+    private static final byte[] EXTINF_LINE = {'\n', '#', 'E', 'X', 'T', 'I', 'N', 'F', ':'};
+
+    private final ForkJoinPool pool;
+    private final int minChunkSize;
+
+    M3UMappedFileParser(ForkJoinPool pool) {
+        this(pool, MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Taille de morceau réglable : permet de forcer le découpage sur de petits fichiers
+     */
+    M3UMappedFileParser(ForkJoinPool pool, int minChunkSize) {
+        this.pool = pool;
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Mappe le fichier et le parse sur le pool ForkJoin
+     */
+    M3UCatalog parse(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Fichier M3U trop volumineux pour être mappé: " + size + " octets");
+            }
+            if (size == 0) {
+                return new M3UCatalog(null, null, null);
+            }
+
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return pool.invoke(new ChunkTask(mapped, 0, (int) size, minChunkSize));
+        }
+    }
+
+    /**
+     * Tokenise un morceau d'entrées complètes et alimente les trois sinks
+     */
+    static M3UCatalog parseChunk(ByteBuffer chunk) {
+        LiveStreamM3USink liveSink = new LiveStreamM3USink();
+        VodM3USink vodSink = new VodM3USink();
+        SeriesM3USink seriesSink = new SeriesM3USink();
+        List<M3UEntrySink> sinks = List.of(liveSink, vodSink, seriesSink);
+
+        M3UTokenizer tokenizer = new M3UTokenizer(entry -> {
+            long features = M3UContentClassifier.scan(entry);
+            String extinf = entry.getExtinf();
+            for (M3UEntrySink sink : sinks) {
+                sink.accept(extinf, features, entry.getUrl());
+            }
+        });
+        tokenizer.feed(chunk);
+        tokenizer.finish();
+
+        return new M3UCatalog(liveSink.getResults(), vodSink.getResults(), seriesSink.getResults());
+    }
+
+    /**
+     * Position du premier début de ligne #EXTINF à partir de {@code from}, ou {@code end} si aucun
+     */
+    static int nextEntryBoundary(ByteBuffer buffer, int from, int end) {
+        int last = end - EXTINF_LINE.length;
+        for (int i = Math.max(from - 1, 0); i <= last; i++) {
+            if (buffer.get(i) != '\n') continue;
+
+            int j = 1;
+            while (j < EXTINF_LINE.length && buffer.get(i + j) == EXTINF_LINE[j]) j++;
+            if (j == EXTINF_LINE.length) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    private static M3UCatalog merge(M3UCatalog left, M3UCatalog right) {
+        return new M3UCatalog(
+                concat(left.getLiveStreams(), right.getLiveStreams()),
+                concat(left.getVods(), right.getVods()),
+                concat(left.getSeries(), right.getSeries()));
+    }
+
+    private static List<Map<String, Object>> concat(List<Map<String, Object>> a, List<Map<String, Object>> b) {
+        List<Map<String, Object>> merged = new ArrayList<>(a.size() + b.size());
+        merged.addAll(a);
+        merged.addAll(b);
+        return merged;
+    }
+
+    /**
+     * Morceau [start, end) du fichier mappé, coupé en deux sur une frontière #EXTINF tant qu'il est gros
+     */
+    private static class ChunkTask extends RecursiveTask<M3UCatalog> {
+
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+        private final int minChunkSize;
+
+        ChunkTask(ByteBuffer buffer, int start, int end, int minChunkSize) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.minChunkSize = minChunkSize;
+        }
+
+        @Override
+        protected M3UCatalog compute() {
+            if (end - start > minChunkSize) {
+                int middle = nextEntryBoundary(buffer, start + (end - start) / 2, end);
+                if (middle > start && middle < end) {
+                    ChunkTask left = new ChunkTask(buffer, start, middle, minChunkSize);
+                    ChunkTask right = new ChunkTask(buffer, middle, end, minChunkSize);
+                    right.fork();
+                    M3UCatalog leftCatalog = left.compute();
+                    return merge(leftCatalog, right.join());
+                }
+            }
+
+            return parseChunk(buffer.slice(start, end - start));
+        }
+    }
+}
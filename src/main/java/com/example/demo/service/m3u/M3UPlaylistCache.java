@@ -0,0 +1,220 @@
+package com.example.demo.service.m3u;
+
+import com.example.demo.config.UserXtreamConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache disque du dernier M3U téléchargé par (baseUrl, username).
+ *
+ * Chaque playlist est conservée avec son ETag, son Last-Modified et un digest SHA-256
+ * du contenu. Les rafraîchissements envoient If-None-Match / If-Modified-Since : un 304,
+ * ou un 200 dont le digest est identique, signale un M3U inchangé.
+ */
+@Component
+public class M3UPlaylistCache {
+
+    private static final int DIGEST_BUFFER_SIZE = 1024 * 1024;
+
+    private final M3UFileDownloader fileDownloader;
+    private final Path cacheDirectory;
+
+    // Un seul rafraîchissement à la fois par playlist
+    private final Map<String, Mono<CachedPlaylist>> refreshes = new ConcurrentHashMap<>();
+
+    public M3UPlaylistCache(M3UFileDownloader fileDownloader,
+                            @Value("${m3u.cache.directory:${java.io.tmpdir}/iptv-m3u-cache}") String cacheDirectory)
+            throws IOException {
+        this.fileDownloader = fileDownloader;
+        this.cacheDirectory = Files.createDirectories(Path.of(cacheDirectory));
+    }
+
+    /**
+     * Revalide la playlist auprès du fournisseur et met à jour la copie disque si elle a changé
+     */
+    public Mono<CachedPlaylist> refresh(UserXtreamConfig config) {
+        String key = cacheKey(config);
+        return refreshes.computeIfAbsent(key, k -> doRefresh(config, k)
+                .doFinally(signal -> refreshes.remove(k))
+                .cache());
+    }
+
+    private Mono<CachedPlaylist> doRefresh(UserXtreamConfig config, String key) {
+        return Mono.defer(() -> {
+            Metadata previous = readMetadata(key);
+            String etag = previous != null ? previous.etag : null;
+            String lastModified = previous != null ? previous.lastModified : null;
+
+            return fileDownloader.download(config.getM3uUrl(), etag, lastModified)
+                    .flatMap(download -> Mono.fromCallable(() -> store(key, previous, download))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .onErrorResume(e -> download.isNotModified()
+                                    ? Mono.error(e)
+                                    : fileDownloader.delete(download.getFile()).then(Mono.error(e))));
+        });
+    }
+
+    private CachedPlaylist store(String key, Metadata previous, M3UFileDownloader.Download download) throws IOException {
+        Path target = playlistFile(key);
+
+        if (download.isNotModified()) {
+            System.out.println("📦 M3U inchangé (304), copie locale réutilisée");
+            return new CachedPlaylist(target, previous.digest, true);
+        }
+
+        String digest = digest(download.getFile());
+        Metadata metadata = new Metadata(download.getEtag(), download.getLastModified(), digest);
+
+        if (previous != null && digest.equals(previous.digest)) {
+            System.out.println("📦 M3U inchangé (digest identique), copie locale réutilisée");
+            Files.deleteIfExists(download.getFile());
+            writeMetadata(key, metadata);
+            return new CachedPlaylist(target, digest, true);
+        }
+
+        moveIntoCache(download.getFile(), target);
+        writeMetadata(key, metadata);
+        return new CachedPlaylist(target, digest, false);
+    }
+
+    private void moveIntoCache(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Répertoires sur des systèmes de fichiers différents
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Métadonnées de la copie disque, ignorées si le fichier M3U correspondant a disparu
+     */
+    private Metadata readMetadata(String key) {
+        Path metadataFile = metadataFile(key);
+        if (!Files.exists(metadataFile) || !Files.exists(playlistFile(key))) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(metadataFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            System.err.println("⚠ Métadonnées du cache M3U illisibles: " + e.getMessage());
+            return null;
+        }
+
+        String digest = properties.getProperty("digest");
+        return digest != null
+                ? new Metadata(properties.getProperty("etag"), properties.getProperty("lastModified"), digest)
+                : null;
+    }
+
+    private void writeMetadata(String key, Metadata metadata) throws IOException {
+        Properties properties = new Properties();
+        if (metadata.etag != null) properties.setProperty("etag", metadata.etag);
+        if (metadata.lastModified != null) properties.setProperty("lastModified", metadata.lastModified);
+        properties.setProperty("digest", metadata.digest);
+
+        Path temp = Files.createTempFile(cacheDirectory, key, ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "Cache M3U");
+        }
+        moveIntoCache(temp, metadataFile(key));
+    }
+
+    private Path playlistFile(String key) {
+        return cacheDirectory.resolve(key + ".m3u");
+    }
+
+    private Path metadataFile(String key) {
+        return cacheDirectory.resolve(key + ".properties");
+    }
+
+    /**
+     * Clé de cache dérivée de (baseUrl, username), sans le mot de passe
+     */
+    static String cacheKey(UserXtreamConfig config) {
+        String source = config.getBaseUrl() + "|" + config.getUsername();
+        return HexFormat.of().formatHex(sha256().digest(source.getBytes(StandardCharsets.UTF_8)), 0, 16);
+    }
+
+    static String digest(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(DIGEST_BUFFER_SIZE);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    /**
+     * Métadonnées persistées à côté de chaque playlist
+     */
+    private static class Metadata {
+        final String etag;
+        final String lastModified;
+        final String digest;
+
+        Metadata(String etag, String lastModified, String digest) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * Playlist disponible sur disque après revalidation
+     */
+    public static class CachedPlaylist {
+        private final Path file;
+        private final String digest;
+        private final boolean unchanged;
+
+        CachedPlaylist(Path file, String digest, boolean unchanged) {
+            this.file = file;
+            this.digest = digest;
+            this.unchanged = unchanged;
+        }
+
+        public Path getFile() { return file; }
+        public String getDigest() { return digest; }
+
+        /**
+         * Vrai si le contenu est identique à celui de la revalidation précédente
+         */
+        public boolean isUnchanged() { return unchanged; }
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.demo.service.m3u;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Tokenizer M3U qui travaille directement sur les octets reçus.
+ *
+ * Un seul scan par octet : détection des fins de ligne, puis, pour les lignes
+ * EXTINF, relevé de la durée, des virgules et de tous les attributs key="value".
+ * Les lignes ne sont découpées que sur '\n', qui n'apparaît jamais à l'intérieur
+ * d'une séquence UTF-8 multi-octets : une séquence coupée entre deux chunks est
+ * simplement reconstituée avant décodage.
+ *
+ * Non thread-safe : une instance par flux.
+ */
+public final class M3UTokenizer {
+
+    private static final byte[] EXTINF_PREFIX = {'#', 'E', 'X', 'T', 'I', 'N', 'F', ':'};
+    private static final byte[] HTTP_PREFIX = {'h', 't', 't', 'p'};
+
+    private final Consumer<M3UEntry> handler;
+    private final M3UEntry entry = new M3UEntry();
+
+    // Ligne commencée dans un chunk précédent
+    private byte[] pending = new byte[1024];
+    private int pendingLength;
+
+    // Copie des buffers non adressables (buffers directs)
+    private byte[] scratch;
+
+    private long lineCount;
+    private long entryCount;
+    private long orphanUrlCount;
+
+    public M3UTokenizer(Consumer<M3UEntry> handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Consomme tous les octets restants du buffer
+     */
+    public void feed(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset() + buffer.position();
+            feed(buffer.array(), offset, buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+
+        if (scratch == null) {
+            scratch = new byte[8192];
+        }
+        while (buffer.hasRemaining()) {
+            int n = Math.min(buffer.remaining(), scratch.length);
+            buffer.get(scratch, 0, n);
+            feed(scratch, 0, n);
+        }
+    }
+
+    /**
+     * Consomme une portion de tableau d'octets
+     */
+    public void feed(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int lineStart = offset;
+
+        for (int i = offset; i < end; i++) {
+            if (bytes[i] != '\n') continue;
+
+            if (pendingLength > 0) {
+                appendPending(bytes, lineStart, i);
+                processLine(pending, 0, pendingLength);
+                pendingLength = 0;
+            } else {
+                processLine(bytes, lineStart, i);
+            }
+            lineStart = i + 1;
+        }
+
+        if (lineStart < end) {
+            appendPending(bytes, lineStart, end);
+        }
+    }
+
+    /**
+     * Traite la dernière ligne si le flux ne se termine pas par un saut de ligne
+     */
+    public void finish() {
+        if (pendingLength > 0) {
+            processLine(pending, 0, pendingLength);
+            pendingLength = 0;
+        }
+    }
+
+    public long getLineCount() { return lineCount; }
+    public long getEntryCount() { return entryCount; }
+    public long getOrphanUrlCount() { return orphanUrlCount; }
+
+    private void appendPending(byte[] bytes, int start, int end) {
+        int n = end - start;
+        if (pendingLength + n > pending.length) {
+            byte[] grown = new byte[Math.max(pending.length * 2, pendingLength + n)];
+            System.arraycopy(pending, 0, grown, 0, pendingLength);
+            pending = grown;
+        }
+        System.arraycopy(bytes, start, pending, pendingLength, n);
+        pendingLength += n;
+    }
+
+    private void processLine(byte[] bytes, int start, int end) {
+        // Retire les espaces et le '\r' de fin de ligne
+        while (end > start && bytes[end - 1] <= ' ' && bytes[end - 1] >= 0) end--;
+        if (end == start) return;
+
+        lineCount++;
+
+        if (startsWith(bytes, start, end, EXTINF_PREFIX)) {
+            parseExtinf(bytes, start, end);
+        } else if (startsWith(bytes, start, end, HTTP_PREFIX)) {
+            if (entry.hasExtinf()) {
+                entry.url = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+                entryCount++;
+                handler.accept(entry);
+                entry.reset();
+            } else {
+                orphanUrlCount++;
+            }
+        }
+    }
+
+    /**
+     * Copie la ligne EXTINF dans l'entrée et relève ses positions utiles en un seul passage
+     */
+    private void parseExtinf(byte[] bytes, int start, int end) {
+        entry.reset();
+
+        int length = end - start;
+        if (entry.line.length < length) {
+            entry.line = new byte[Math.max(entry.line.length * 2, length)];
+        }
+        byte[] line = entry.line;
+        System.arraycopy(bytes, start, line, 0, length);
+        entry.length = length;
+
+        // Durée : #EXTINF:(-?\d+(\.\d+)?)
+        int i = EXTINF_PREFIX.length;
+        int durationStart = i;
+        if (i < length && line[i] == '-') i++;
+        int digitsStart = i;
+        while (i < length && isDigit(line[i])) i++;
+        if (i > digitsStart) {
+            if (i + 1 < length && line[i] == '.' && isDigit(line[i + 1])) {
+                i++;
+                while (i < length && isDigit(line[i])) i++;
+            }
+            entry.durationStart = durationStart;
+            entry.durationEnd = i;
+        } else {
+            i = EXTINF_PREFIX.length;
+        }
+
+        // Attributs key="value" et virgules
+        int keyStart = -1;
+        while (i < length) {
+            byte b = line[i];
+
+            if (b == ',') {
+                if (entry.firstComma < 0) entry.firstComma = i;
+                entry.lastComma = i;
+                keyStart = -1;
+            } else if (b == '=' && keyStart >= 0 && i + 1 < length && line[i + 1] == '"') {
+                int valueStart = i + 2;
+                int valueEnd = valueStart;
+                while (valueEnd < length && line[valueEnd] != '"') {
+                    if (line[valueEnd] == ',') {
+                        if (entry.firstComma < 0) entry.firstComma = valueEnd;
+                        entry.lastComma = valueEnd;
+                    }
+                    valueEnd++;
+                }
+                if (valueEnd >= length) {
+                    // Guillemet non fermé : pas de valeur exploitable
+                    break;
+                }
+
+                M3UAttribute attribute = M3UAttribute.match(line, keyStart, i);
+                if (attribute != null && entry.attributeStart[attribute.ordinal()] < 0) {
+                    entry.attributeStart[attribute.ordinal()] = valueStart;
+                    entry.attributeEnd[attribute.ordinal()] = valueEnd;
+                }
+
+                i = valueEnd + 1;
+                keyStart = -1;
+                continue;
+            } else if (isKeyChar(b)) {
+                if (keyStart < 0) keyStart = i;
+            } else {
+                keyStart = -1;
+            }
+            i++;
+        }
+
+        // Les virgules situées après un guillemet non fermé comptent aussi pour le titre
+        for (int j = i; j < length; j++) {
+            if (line[j] == ',') {
+                if (entry.firstComma < 0) entry.firstComma = j;
+                entry.lastComma = j;
+            }
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[start + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isKeyChar(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || isDigit(b) || b == '-' || b == '_';
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.demo.service.m3u;
+
+import com.example.demo.utils.StreamUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sink M3U qui ne retient que les épisodes de séries
+ */
+public class SeriesM3USink implements M3UEntrySink {
+
+    private static final Pattern YEAR_PATTERN = Pattern.compile("\\((\\d{4})\\)");
+    private static final Pattern DURATION_PATTERN = Pattern.compile("#EXTINF:(-?\\d+(?:\\.\\d+)?)");
+    private static final Pattern EPISODE_URL_PATTERN = Pattern.compile("s\\d+e\\d+");
+
+    // Suffixes retirés du titre pour obtenir le nom de la série
+    private static final Pattern[] SERIES_NAME_SUFFIXES = {
+            Pattern.compile("\\s+S\\d{1,2}E\\d{1,3}.*"),
+            Pattern.compile("\\s+Season\\s+\\d+.*"),
+            Pattern.compile("\\s+Saison\\s+\\d+.*"),
+            Pattern.compile("\\s+Episode\\s+\\d+.*"),
+            Pattern.compile("\\s+Ep\\d+.*"),
+            Pattern.compile("\\s+\\(\\d{4}\\).*")
+    };
+
+    private static final Pattern[] SEASON_PATTERNS = {
+            Pattern.compile("S(\\d{1,2})E\\d{1,3}", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("Season\\s+(\\d{1,2})", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("Saison\\s+(\\d{1,2})", Pattern.CASE_INSENSITIVE)
+    };
+
+    private static final Pattern[] EPISODE_PATTERNS = {
+            Pattern.compile("S\\d{1,2}E(\\d{1,3})", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("Episode\\s+(\\d{1,3})", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("Ep(\\d{1,3})", Pattern.CASE_INSENSITIVE),
+            Pattern.compile("Épisode\\s+(\\d{1,3})", Pattern.CASE_INSENSITIVE)
+    };
+
+    private final List<Map<String, Object>> series = new ArrayList<>();
+
+    @Override
+    public void accept(String extinf, long features, String url) {
+        // Vérifie si c'est une série
+        if (!M3UContentClassifier.isSeries(features)) {
+            return;
+        }
+
+        // Vérification finale de l'URL
+        String streamUrl = url.trim();
+        if (!isValidSeriesUrl(streamUrl)) {
+            return;
+        }
+
+        Map<String, Object> serie = new HashMap<>();
+        String[] parts = extinf.split(",", 2);
+        if (parts.length == 2) {
+            String title = parts[1].trim();
+            serie.put("name", title);
+
+            // Extrait les métadonnées de série
+            extractSeriesMetadata(title, extinf, serie);
+        }
+
+        serie.put("stream_url", streamUrl);
+        serie.put("series_id", StreamUtils.generateStreamId(streamUrl));
+        serie.put("category_id", StreamUtils.getCategoryId((String) serie.get("group_title")));
+        serie.put("category_name", serie.getOrDefault("group_title", "TV Series").toString());
+        series.add(serie);
+    }
+
+    @Override
+    public List<Map<String, Object>> getResults() {
+        return series;
+    }
+
+    /**
+     * Valide si l'URL correspond à une série
+     */
+    private boolean isValidSeriesUrl(String url) {
+        if (url == null || url.trim().isEmpty()) {
+            return false;
+        }
+
+        String lowerUrl = url.toLowerCase();
+
+        // Patterns d'URL série
+        return lowerUrl.contains("/series/") ||
+                lowerUrl.contains("/episode/") ||
+                EPISODE_URL_PATTERN.matcher(lowerUrl).find();
+    }
+
+    /**
+     * Extrait les métadonnées spécifiques aux séries
+     */
+    private void extractSeriesMetadata(String title, String extinf, Map<String, Object> serie) {
+        // Nom de la série (sans saison/épisode)
+        String seriesName = extractSeriesName(title);
+        if (seriesName != null) serie.put("series_name", seriesName);
+
+        // Numéro de saison
+        Integer season = extractSeason(title);
+        if (season != null) serie.put("season", season);
+
+        // Numéro d'épisode
+        Integer episode = extractEpisode(title);
+        if (episode != null) serie.put("episode", episode);
+
+        // Année
+        String year = extractYear(title);
+        if (year != null) serie.put("year", Integer.parseInt(year));
+
+        // Genre depuis group-title
+        String groupTitle = StreamUtils.extractAttribute(extinf, "group-title");
+        if (groupTitle != null) {
+            serie.put("group_title", groupTitle);
+            serie.put("genre", mapCategoryToGenre(groupTitle));
+        }
+
+        // Logo/Cover
+        String logo = StreamUtils.extractAttribute(extinf, "tvg-logo");
+        if (logo != null) serie.put("stream_icon", logo);
+
+        // Durée de l'épisode
+        String duration = extractDuration(extinf);
+        if (duration != null) serie.put("duration", duration);
+    }
+
+    /**
+     * Extrait le nom de la série sans les informations d'épisode
+     */
+    private String extractSeriesName(String title) {
+        // Supprime les patterns de saison/épisode pour obtenir le nom de la série
+        String seriesName = title;
+
+        for (Pattern pattern : SERIES_NAME_SUFFIXES) {
+            seriesName = pattern.matcher(seriesName).replaceFirst("").trim();
+        }
+
+        return seriesName.isEmpty() ? title : seriesName;
+    }
+
+    /**
+     * Extrait le numéro de saison
+     */
+    private Integer extractSeason(String title) {
+        for (Pattern pattern : SEASON_PATTERNS) {
+            Matcher matcher = pattern.matcher(title);
+            if (matcher.find()) {
+                return Integer.parseInt(matcher.group(1));
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Extrait le numéro d'épisode
+     */
+    private Integer extractEpisode(String title) {
+        for (Pattern pattern : EPISODE_PATTERNS) {
+            Matcher matcher = pattern.matcher(title);
+            if (matcher.find()) {
+                return Integer.parseInt(matcher.group(1));
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Extrait l'année du titre
+     */
+    private String extractYear(String title) {
+        Matcher matcher = YEAR_PATTERN.matcher(title);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Extrait la durée depuis EXTINF
+     */
+    private String extractDuration(String extinf) {
+        Matcher matcher = DURATION_PATTERN.matcher(extinf);
+        if (matcher.find()) {
+            try {
+                int seconds = (int) Double.parseDouble(matcher.group(1));
+                if (seconds > 0) {
+                    return String.valueOf(seconds / 60); // Conversion en minutes
+                }
+            } catch (NumberFormatException ignored) {}
+        }
+        return null;
+    }
+
+    /**
+     * Mappe une catégorie vers un genre
+     */
+    private String mapCategoryToGenre(String category) {
+        if (category == null) return "Drama";
+
+        String lowerCategory = category.toLowerCase();
+        if (lowerCategory.contains("comedy")) return "Comedy";
+        if (lowerCategory.contains("drama")) return "Drama";
+        if (lowerCategory.contains("action")) return "Action";
+        if (lowerCategory.contains("thriller")) return "Thriller";
+        if (lowerCategory.contains("sci-fi") || lowerCategory.contains("science")) return "Sci-Fi";
+        if (lowerCategory.contains("romance")) return "Romance";
+        if (lowerCategory.contains("crime")) return "Crime";
+        if (lowerCategory.contains("horror")) return "Horror";
+        if (lowerCategory.contains("documentary")) return "Documentary";
+        if (lowerCategory.contains("animation")) return "Animation";
+
+        return "Series";
+    }
+}
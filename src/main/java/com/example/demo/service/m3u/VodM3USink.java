@@ -0,0 +1,169 @@
+package com.example.demo.service.m3u;
+
+import com.example.demo.utils.StreamUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sink M3U qui ne retient que les VOD
+ */
+public class VodM3USink implements M3UEntrySink {
+
+    private static final Pattern YEAR_PATTERN = Pattern.compile("\\((\\d{4})\\)");
+    private static final Pattern DURATION_PATTERN = Pattern.compile("#EXTINF:(-?\\d+(?:\\.\\d+)?)");
+
+    private final List<Map<String, Object>> vods = new ArrayList<>();
+
+    @Override
+    public void accept(String extinf, long features, String url) {
+        // Vérifie si c'est un VOD
+        if (!M3UContentClassifier.isVod(features)) {
+            return;
+        }
+
+        // Vérification finale de l'URL
+        String streamUrl = url.trim();
+        if (!isValidVodUrl(streamUrl)) {
+            return;
+        }
+
+        Map<String, Object> vod = new HashMap<>();
+        String[] parts = extinf.split(",", 2);
+        if (parts.length == 2) {
+            String title = parts[1].trim();
+            vod.put("name", title);
+
+            // Extrait les métadonnées du titre
+            extractVodMetadata(title, extinf, vod);
+        }
+
+        vod.put("stream_url", streamUrl);
+        vod.put("stream_id", StreamUtils.generateStreamId(streamUrl));
+        vod.put("category_id", StreamUtils.getCategoryId((String) vod.get("group_title")));
+        vod.put("category_name", vod.getOrDefault("group_title", "Movies").toString());
+        vods.add(vod);
+    }
+
+    @Override
+    public List<Map<String, Object>> getResults() {
+        return vods;
+    }
+
+    /**
+     * Valide si l'URL correspond à un contenu VOD
+     */
+    private boolean isValidVodUrl(String url) {
+        if (url == null || url.trim().isEmpty()) {
+            return false;
+        }
+
+        String lowerUrl = url.toLowerCase();
+
+        // Extensions vidéo typiques du VOD
+        String[] vodExtensions = {
+                ".mp4", ".mkv", ".avi", ".mov", ".wmv",
+                ".flv", ".webm", ".m4v"
+        };
+
+        for (String ext : vodExtensions) {
+            if (lowerUrl.endsWith(ext)) {
+                return true;
+            }
+        }
+
+        // Patterns d'URL VOD
+        return lowerUrl.contains("/movie/") || lowerUrl.contains("/vod/");
+    }
+
+    /**
+     * Extrait les métadonnées spécifiques aux VOD
+     */
+    private void extractVodMetadata(String title, String extinf, Map<String, Object> vod) {
+        // Année de sortie
+        String year = extractYear(title);
+        if (year != null) vod.put("year", Integer.parseInt(year));
+
+        // Qualité
+        String quality = extractQuality(title);
+        if (quality != null) vod.put("quality", quality);
+
+        // Genre depuis group-title
+        String groupTitle = StreamUtils.extractAttribute(extinf, "group-title");
+        if (groupTitle != null) {
+            vod.put("group_title", groupTitle);
+            vod.put("genre", mapCategoryToGenre(groupTitle));
+        }
+
+        // Logo/Icône
+        String logo = StreamUtils.extractAttribute(extinf, "tvg-logo");
+        if (logo != null) vod.put("stream_icon", logo);
+
+        // Durée (si présente)
+        String duration = extractDuration(extinf);
+        if (duration != null) vod.put("duration", duration);
+    }
+
+    /**
+     * Extrait l'année du titre
+     */
+    private String extractYear(String title) {
+        Matcher matcher = YEAR_PATTERN.matcher(title);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Extrait la qualité du titre
+     */
+    private String extractQuality(String title) {
+        String[] qualities = {"4K", "2160p", "1080p", "720p", "480p", "HD", "BluRay", "WEBRip", "DVDRip"};
+        String upperTitle = title.toUpperCase();
+
+        for (String quality : qualities) {
+            if (upperTitle.contains(quality)) {
+                return quality;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extrait la durée depuis EXTINF
+     */
+    private String extractDuration(String extinf) {
+        Matcher matcher = DURATION_PATTERN.matcher(extinf);
+        if (matcher.find()) {
+            try {
+                int seconds = (int) Double.parseDouble(matcher.group(1));
+                if (seconds > 0) {
+                    return String.valueOf(seconds / 60); // Conversion en minutes
+                }
+            } catch (NumberFormatException ignored) {}
+        }
+        return null;
+    }
+
+    /**
+     * Mappe une catégorie vers un genre
+     */
+    private String mapCategoryToGenre(String category) {
+        if (category == null) return "Unknown";
+
+        String lowerCategory = category.toLowerCase();
+        if (lowerCategory.contains("action")) return "Action";
+        if (lowerCategory.contains("comedy")) return "Comedy";
+        if (lowerCategory.contains("drama")) return "Drama";
+        if (lowerCategory.contains("horror")) return "Horror";
+        if (lowerCategory.contains("sci-fi") || lowerCategory.contains("science")) return "Sci-Fi";
+        if (lowerCategory.contains("romance")) return "Romance";
+        if (lowerCategory.contains("thriller")) return "Thriller";
+        if (lowerCategory.contains("documentary")) return "Documentary";
+        if (lowerCategory.contains("animation")) return "Animation";
+
+        return "Movie";
+    }
+}
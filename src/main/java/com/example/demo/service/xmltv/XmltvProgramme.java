@@ -0,0 +1,7 @@
+package com.example.demo.service.xmltv;
+
+/**
+ * Élément &lt;programme&gt; d'un guide XMLTV ; start et stop au format "yyyy-MM-dd HH:mm:ss"
+ */
+public record XmltvProgramme(String channel, String start, String stop, String title, String description) {
+}
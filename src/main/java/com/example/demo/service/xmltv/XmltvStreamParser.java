@@ -0,0 +1,150 @@
+package com.example.demo.service.xmltv;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parse un guide XMLTV en flux (StAX) : chaque &lt;programme&gt; est transmis dès qu'il est lu,
+ * la mémoire utilisée ne dépend donc pas de la taille du guide (souvent plusieurs centaines de Mo).
+ *
+ * Les DTD et entités externes sont désactivées (XXE). Un fichier gzip est détecté par sa signature.
+ */
+public final class XmltvStreamParser {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private static final DateTimeFormatter EPG_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private XmltvStreamParser() {
+    }
+
+    /**
+     * Lit le guide et renvoie le nombre de programmes transmis à {@code consumer}
+     */
+    public static long parse(InputStream input, Consumer<XmltvProgramme> consumer) throws IOException, XMLStreamException {
+        InputStream in = decompressIfNeeded(input);
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+        long count = 0;
+
+        try {
+            String channel = null;
+            String start = null;
+            String stop = null;
+            String title = null;
+            String description = null;
+            boolean inProgramme = false;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if ("programme".equals(name)) {
+                        inProgramme = true;
+                        channel = reader.getAttributeValue(null, "channel");
+                        start = toEpgTime(reader.getAttributeValue(null, "start"));
+                        stop = toEpgTime(reader.getAttributeValue(null, "stop"));
+                        title = null;
+                        description = null;
+                    } else if (inProgramme && "title".equals(name) && title == null) {
+                        // Premier titre seulement (les suivants sont des traductions)
+                        title = reader.getElementText().trim();
+                    } else if (inProgramme && "desc".equals(name) && description == null) {
+                        description = reader.getElementText().trim();
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "programme".equals(reader.getLocalName())) {
+                    inProgramme = false;
+                    if (channel != null && title != null && !title.isEmpty()) {
+                        consumer.accept(new XmltvProgramme(channel, start, stop, title, description));
+                        count++;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+
+    /**
+     * "20240101203000 +0100" → "2024-01-01 20:30:00" dans le fuseau du serveur, celui de LocalDateTime.now()
+     * utilisé pour comparer les programmes (sans décalage, l'heure est supposée déjà locale)
+     */
+    static String toEpgTime(String xmltvTime) {
+        return toEpgTime(xmltvTime, ZoneId.systemDefault());
+    }
+
+    static String toEpgTime(String xmltvTime, ZoneId zone) {
+        if (xmltvTime == null) return null;
+        String value = xmltvTime.trim();
+        String digits = value;
+        String offset = null;
+        int space = value.indexOf(' ');
+        if (space > 0) {
+            digits = value.substring(0, space);
+            offset = value.substring(space + 1).trim();
+        }
+        if (digits.length() < 12) return null;
+
+        try {
+            LocalDateTime time = LocalDateTime.of(
+                    Integer.parseInt(digits.substring(0, 4)), Integer.parseInt(digits.substring(4, 6)),
+                    Integer.parseInt(digits.substring(6, 8)), Integer.parseInt(digits.substring(8, 10)),
+                    Integer.parseInt(digits.substring(10, 12)),
+                    digits.length() >= 14 ? Integer.parseInt(digits.substring(12, 14)) : 0);
+
+            ZoneOffset zoneOffset = parseOffset(offset);
+            if (zoneOffset != null) {
+                time = time.atOffset(zoneOffset).atZoneSameInstant(zone).toLocalDateTime();
+            }
+            return time.format(EPG_TIME);
+        } catch (DateTimeException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Décalage "+hhmm" / "-hhmm", ou null s'il est absent ou illisible (l'heure est alors gardée telle quelle)
+     */
+    private static ZoneOffset parseOffset(String offset) {
+        if (offset == null || offset.isEmpty()) return null;
+        try {
+            return ZoneOffset.of(offset);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static InputStream decompressIfNeeded(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, 64 * 1024);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+
+        if (first == 0x1f && second == 0x8b) {
+            return new GZIPInputStream(buffered, 64 * 1024);
+        }
+        return buffered;
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
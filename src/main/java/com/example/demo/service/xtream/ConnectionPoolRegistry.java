@@ -0,0 +1,138 @@
+package com.example.demo.service.xtream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Suit les pools de connexions HTTP ouverts par hôte fournisseur.
+ *
+ * Reactor Netty crée un pool par adresse distante ; chacun est enregistré ici à sa création
+ * (actives, inactives, en attente d'acquisition) et publié en jauges Micrometer
+ * (iptv.http.pool.*, tags pool et host) quand l'actuator est présent.
+ */
+@Component
+public class ConnectionPoolRegistry implements ConnectionProvider.MeterRegistrar {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Map<String, PoolEntry> pools = new ConcurrentHashMap<>();
+
+    public ConnectionPoolRegistry(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+        String host = hostOf(remoteAddress);
+        PoolEntry entry = new PoolEntry(poolName, host, metrics);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            entry.meters.add(gauge(registry, "iptv.http.pool.active", poolName, id, host, metrics, ConnectionPoolMetrics::acquiredSize));
+            entry.meters.add(gauge(registry, "iptv.http.pool.idle", poolName, id, host, metrics, ConnectionPoolMetrics::idleSize));
+            entry.meters.add(gauge(registry, "iptv.http.pool.pending", poolName, id, host, metrics, ConnectionPoolMetrics::pendingAcquireSize));
+            entry.meters.add(gauge(registry, "iptv.http.pool.allocated", poolName, id, host, metrics, ConnectionPoolMetrics::allocatedSize));
+        }
+
+        pools.put(key(poolName, id), entry);
+        System.out.println("🔌 Pool de connexions ouvert: " + poolName + " → " + host);
+    }
+
+    @Override
+    public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+        PoolEntry entry = pools.remove(key(poolName, id));
+        if (entry == null) return;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            entry.meters.forEach(registry::remove);
+        }
+    }
+
+    /**
+     * État instantané des pools ouverts vers l'hôte d'une URL fournisseur
+     */
+    public List<Map<String, Object>> snapshot(String baseUrl) {
+        String host = hostOf(baseUrl);
+        List<Map<String, Object>> snapshot = new ArrayList<>();
+        for (PoolEntry entry : pools.values()) {
+            if (!entry.host.equalsIgnoreCase(host)) {
+                continue;
+            }
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("pool", entry.poolName);
+            pool.put("host", entry.host);
+            pool.put("active", entry.metrics.acquiredSize());
+            pool.put("idle", entry.metrics.idleSize());
+            pool.put("pending", entry.metrics.pendingAcquireSize());
+            pool.put("allocated", entry.metrics.allocatedSize());
+            pool.put("max_connections", entry.metrics.maxAllocatedSize());
+            pool.put("max_pending", entry.metrics.maxPendingAcquireSize());
+            snapshot.add(pool);
+        }
+        return snapshot;
+    }
+
+    private Meter gauge(MeterRegistry registry, String name, String poolName, String id, String host,
+                        ConnectionPoolMetrics metrics, ToDoubleFunction<ConnectionPoolMetrics> value) {
+        return Gauge.builder(name, metrics, value)
+                .tag("pool", poolName)
+                .tag("id", id)
+                .tag("host", host)
+                .register(registry);
+    }
+
+    private static String key(String poolName, String id) {
+        return poolName + "|" + id;
+    }
+
+    /**
+     * hôte:port d'une URL, au format des adresses distantes enregistrées (port par défaut du schéma)
+     */
+    private static String hostOf(String baseUrl) {
+        try {
+            URI uri = URI.create(baseUrl.trim());
+            if (uri.getHost() == null) {
+                return "";
+            }
+            int port = uri.getPort() > 0 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+            return uri.getHost() + ":" + port;
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private static String hostOf(SocketAddress remoteAddress) {
+        if (remoteAddress instanceof InetSocketAddress address) {
+            return address.getHostString() + ":" + address.getPort();
+        }
+        return String.valueOf(remoteAddress);
+    }
+
+    private static class PoolEntry {
+        final String poolName;
+        final String host;
+        final ConnectionPoolMetrics metrics;
+        final List<Meter> meters = new ArrayList<>(4);
+
+        PoolEntry(String poolName, String host, ConnectionPoolMetrics metrics) {
+            this.poolName = poolName;
+            this.host = host;
+            this.metrics = metrics;
+        }
+    }
+}
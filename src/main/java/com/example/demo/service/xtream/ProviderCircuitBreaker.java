@@ -0,0 +1,184 @@
+package com.example.demo.service.xtream;
+
+import com.example.demo.config.XtreamConfig;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Retry avec backoff exponentiel et jitter, plus un circuit breaker par fournisseur (baseUrl).
+ *
+ * Le circuit est partagé par tous les utilisateurs d'un même panel : après
+ * {@link XtreamConfig#CIRCUIT_FAILURE_THRESHOLD} échecs consécutifs il s'ouvre et les appels
+ * échouent immédiatement ({@link ProviderUnavailableException}) pendant
+ * {@link XtreamConfig#CIRCUIT_OPEN_DURATION_MS}. Un seul appel d'essai passe ensuite (semi-ouvert) :
+ * son succès referme le circuit, son échec le rouvre.
+ *
+ * Seules les erreurs du fournisseur comptent (réseau, timeout, 5xx, 429) ; un 4xx ou une
+ * réponse mal formée n'est ni réessayé ni compté.
+ */
+@Component
+public class ProviderCircuitBreaker {
+
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * Protège un appel idempotent : circuit vérifié à chaque tentative, retry tant qu'aucun élément n'a été émis
+     */
+    public <T> Flux<T> protect(String baseUrl, Flux<T> call) {
+        String key = normalize(baseUrl);
+
+        return Flux.defer(() -> {
+            AtomicBoolean emitted = new AtomicBoolean();
+
+            Flux<T> attempt = Flux.defer(() -> {
+                Circuit circuit = circuits.computeIfAbsent(key, Circuit::new);
+                long retryInMs = circuit.tryAcquire();
+                if (retryInMs > 0) {
+                    return Flux.error(new ProviderUnavailableException(key, retryInMs));
+                }
+
+                return call
+                        .doOnNext(item -> emitted.set(true))
+                        .doOnComplete(circuit::onSuccess)
+                        .doOnError(e -> {
+                            if (e instanceof ProviderUnavailableException) {
+                                // Refus local (limiteur saturé) : le fournisseur n'a pas été sollicité
+                                circuit.onCancel();
+                            } else if (isProviderFailure(e)) {
+                                circuit.onFailure();
+                            } else {
+                                // Le fournisseur a répondu : il est joignable
+                                circuit.onSuccess();
+                            }
+                        })
+                        .doOnCancel(circuit::onCancel);
+            });
+
+            return attempt.retryWhen(Retry.backoff(XtreamConfig.MAX_RETRY_ATTEMPTS, Duration.ofMillis(XtreamConfig.RETRY_DELAY_MS))
+                    .maxBackoff(Duration.ofMillis(XtreamConfig.MAX_RETRY_DELAY_MS))
+                    .jitter(0.5)
+                    .filter(e -> !emitted.get() && isProviderFailure(e))
+                    .doBeforeRetry(signal -> System.out.println("🔁 Nouvel essai " + (signal.totalRetries() + 1) + "/"
+                            + XtreamConfig.MAX_RETRY_ATTEMPTS + " vers " + key + " (" + signal.failure().getMessage() + ")"))
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        });
+    }
+
+    /**
+     * État du circuit d'un fournisseur (liste vide s'il n'a pas encore été appelé)
+     */
+    public List<Map<String, Object>> snapshot(String baseUrl) {
+        Circuit circuit = circuits.get(normalize(baseUrl));
+        return circuit != null ? List.of(circuit.describe()) : List.of();
+    }
+
+    /**
+     * Erreurs imputables au fournisseur : réseau, timeout, 5xx, 429
+     */
+    static boolean isProviderFailure(Throwable e) {
+        if (e instanceof ProviderUnavailableException) {
+            return false;
+        }
+        if (e instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError()
+                    || responseException.getStatusCode().value() == 429;
+        }
+        return e instanceof WebClientRequestException || e instanceof TimeoutException;
+    }
+
+    static String normalize(String baseUrl) {
+        if (baseUrl == null) return "";
+        String key = baseUrl.trim().toLowerCase(Locale.ROOT);
+        while (key.endsWith("/")) {
+            key = key.substring(0, key.length() - 1);
+        }
+        return key;
+    }
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Circuit d'un fournisseur ; les transitions sont rares, un verrou simple suffit
+     */
+    private static class Circuit {
+        private final String baseUrl;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean probeInFlight;
+
+        Circuit(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        /**
+         * 0 si l'appel peut partir, sinon le délai avant le prochain essai
+         */
+        synchronized long tryAcquire() {
+            if (state == State.CLOSED) {
+                return 0;
+            }
+
+            long remaining = openedAt + XtreamConfig.CIRCUIT_OPEN_DURATION_MS - System.currentTimeMillis();
+            if (state == State.OPEN && remaining <= 0) {
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == State.HALF_OPEN && !probeInFlight) {
+                probeInFlight = true;
+                System.out.println("🟡 Circuit semi-ouvert pour " + baseUrl + ", appel d'essai");
+                return 0;
+            }
+            return Math.max(remaining, 1);
+        }
+
+        synchronized void onSuccess() {
+            if (state != State.CLOSED) {
+                System.out.println("🟢 Circuit refermé pour " + baseUrl);
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            probeInFlight = false;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= XtreamConfig.CIRCUIT_FAILURE_THRESHOLD) {
+                if (state != State.OPEN) {
+                    System.err.println("🔴 Circuit ouvert pour " + baseUrl + " après " + consecutiveFailures + " échecs");
+                }
+                state = State.OPEN;
+                openedAt = System.currentTimeMillis();
+                probeInFlight = false;
+            }
+        }
+
+        synchronized void onCancel() {
+            // Appel d'essai abandonné : un autre pourra le remplacer
+            probeInFlight = false;
+        }
+
+        synchronized Map<String, Object> describe() {
+            Map<String, Object> circuit = new LinkedHashMap<>();
+            circuit.put("base_url", baseUrl);
+            circuit.put("state", state.name());
+            circuit.put("consecutive_failures", consecutiveFailures);
+            if (state == State.OPEN) {
+                circuit.put("retry_in_ms", Math.max(openedAt + XtreamConfig.CIRCUIT_OPEN_DURATION_MS - System.currentTimeMillis(), 0));
+            }
+            return circuit;
+        }
+    }
+}
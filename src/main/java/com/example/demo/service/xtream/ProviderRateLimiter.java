@@ -0,0 +1,143 @@
+package com.example.demo.service.xtream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limiteur de débit par hôte fournisseur (token bucket), partagé par tous les utilisateurs.
+ *
+ * Le seau se remplit à {@code rps} jetons par seconde jusqu'à {@code burst}. Un appel sans jeton
+ * disponible n'attend pas sur un thread : il réserve le prochain jeton et son départ est planifié
+ * (Mono.delay) à l'instant où ce jeton sera disponible. Le débit vers un panel reste ainsi
+ * régulier et plafonné, quel que soit le nombre de synchronisations simultanées.
+ */
+@Component
+public class ProviderRateLimiter {
+
+    private final double permitsPerSecond;
+    private final double burst;
+    private final Duration maxWait;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public ProviderRateLimiter(@Value("${xtream.ratelimit.rps:10}") double permitsPerSecond,
+                               @Value("${xtream.ratelimit.burst:20}") double burst,
+                               @Value("${xtream.ratelimit.max-wait:2m}") Duration maxWait) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(burst, 1);
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Se termine quand l'appel vers l'hôte de {@code url} peut partir
+     */
+    public Mono<Void> acquire(String url) {
+        if (permitsPerSecond <= 0) {
+            return Mono.empty();
+        }
+
+        return Mono.defer(() -> {
+            String host = hostOf(url);
+            Bucket bucket = buckets.computeIfAbsent(host, h -> new Bucket(h, permitsPerSecond, burst));
+            long waitNanos = bucket.reserve();
+
+            if (waitNanos <= 0) {
+                return Mono.empty();
+            }
+            if (waitNanos > maxWait.toNanos()) {
+                // Appel refusé : son jeton réservé est rendu
+                bucket.release();
+                return Mono.error(new ProviderThrottledException(host, Duration.ofNanos(waitNanos).toSeconds()));
+            }
+            // Abonné parti pendant l'attente : l'appel ne partira pas, le jeton est rendu
+            return Mono.delay(Duration.ofNanos(waitNanos))
+                    .doOnCancel(bucket::release)
+                    .then();
+        });
+    }
+
+    /**
+     * État du seau de l'hôte d'une URL fournisseur (liste vide s'il n'a pas encore été appelé)
+     */
+    public List<Map<String, Object>> snapshot(String url) {
+        Bucket bucket = buckets.get(hostOf(url));
+        return bucket != null ? List.of(bucket.describe()) : List.of();
+    }
+
+    static String hostOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() != null) {
+                String host = uri.getHost().toLowerCase(Locale.ROOT);
+                return uri.getPort() > 0 ? host + ":" + uri.getPort() : host;
+            }
+        } catch (IllegalArgumentException e) {
+            // URL mal formée : le limiteur s'applique à la chaîne brute
+        }
+        return url;
+    }
+
+    /**
+     * Seau d'un hôte ; les jetons peuvent devenir négatifs, chaque unité manquante étant un appel planifié
+     */
+    private static class Bucket {
+        private final String host;
+        private final double permitsPerSecond;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+        private long granted;
+
+        Bucket(String host, double permitsPerSecond, double capacity) {
+            this.host = host;
+            this.permitsPerSecond = permitsPerSecond;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        /**
+         * Réserve un jeton et renvoie l'attente nécessaire avant de l'utiliser, en nanosecondes
+         */
+        synchronized long reserve() {
+            refill();
+            tokens -= 1;
+            granted++;
+            return tokens >= 0 ? 0 : (long) (-tokens / permitsPerSecond * 1_000_000_000L);
+        }
+
+        /**
+         * Rend un jeton réservé par un appel qui ne partira pas (refusé ou annulé)
+         */
+        synchronized void release() {
+            refill();
+            tokens = Math.min(capacity, tokens + 1);
+            granted--;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) / 1_000_000_000.0 * permitsPerSecond);
+            lastRefill = now;
+        }
+
+        synchronized Map<String, Object> describe() {
+            refill();
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("host", host);
+            bucket.put("rps", permitsPerSecond);
+            bucket.put("burst", capacity);
+            bucket.put("tokens", Math.round(tokens * 100) / 100.0);
+            bucket.put("granted", granted);
+            return bucket;
+        }
+    }
+}
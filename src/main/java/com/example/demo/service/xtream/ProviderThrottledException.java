@@ -0,0 +1,11 @@
+package com.example.demo.service.xtream;
+
+/**
+ * Levée sans appel réseau quand l'attente du limiteur de débit d'un hôte dépasse l'attente maximale
+ */
+public class ProviderThrottledException extends ProviderUnavailableException {
+
+    public ProviderThrottledException(String host, long waitSeconds) {
+        super("File d'attente du limiteur saturée pour " + host + " (" + waitSeconds + "s d'attente)");
+    }
+}
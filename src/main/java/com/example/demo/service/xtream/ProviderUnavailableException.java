@@ -0,0 +1,16 @@
+package com.example.demo.service.xtream;
+
+/**
+ * Levée sans appel réseau quand le fournisseur ne doit pas être sollicité (circuit ouvert, limiteur saturé).
+ * Les services la propagent au lieu de se rabattre sur le téléchargement M3U complet.
+ */
+public class ProviderUnavailableException extends RuntimeException {
+
+    public ProviderUnavailableException(String baseUrl, long retryInMs) {
+        super("Fournisseur " + baseUrl + " indisponible (circuit ouvert, nouvel essai dans " + retryInMs + "ms)");
+    }
+
+    protected ProviderUnavailableException(String message) {
+        super(message);
+    }
+}
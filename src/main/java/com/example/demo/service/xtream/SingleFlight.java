@@ -0,0 +1,59 @@
+package com.example.demo.service.xtream;
+
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Regroupe les appels identiques en cours : un seul appel amont par clé, partagé par tous les abonnés.
+ *
+ * La réponse amont est collectée en une liste, seul élément rejoué aux abonnés arrivés en cours
+ * de route (replay borné à 1) : ils obtiennent le résultat complet sans que chaque élément reste
+ * retenu par un buffer de replay. L'appel amont n'est annulé que lorsque tous ses abonnés ont annulé,
+ * et la clé est libérée dès qu'il se termine : un appel suivant repart chez le fournisseur.
+ */
+final class SingleFlight {
+
+    private final Map<String, Flux<? extends List<?>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    <T> Flux<T> execute(String key, Supplier<Flux<T>> call) {
+        return Flux.defer(() -> {
+            boolean[] leader = {false};
+            Flux<List<T>> shared = (Flux<List<T>>) inFlight.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                List<Flux<List<T>>> self = new ArrayList<>(1);
+                Flux<List<T>> flight = call.get()
+                        .collectList()
+                        // Ne libère que sa propre clé : un appel suivant a pu la reprendre entre-temps
+                        .doFinally(signal -> inFlight.remove(k, self.get(0)))
+                        .flux()
+                        .replay(1)
+                        .refCount();
+                self.add(flight);
+                return flight;
+            });
+            if (!leader[0]) {
+                coalesced.incrementAndGet();
+            }
+            return shared.flatMapIterable(items -> items);
+        });
+    }
+
+    /**
+     * Nombre d'appels servis par un appel déjà en cours
+     */
+    long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.demo.service.xtream;
+
+import com.example.demo.config.UserXtreamConfig;
+import com.example.demo.config.XtreamConfig;
+import com.example.demo.dto.XtreamCategory;
+import com.example.demo.dto.XtreamEpgListing;
+import com.example.demo.dto.XtreamLiveStream;
+import com.example.demo.dto.XtreamSeries;
+import com.example.demo.dto.XtreamVod;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Client non bloquant de l'API Xtream (player_api.php).
+ *
+ * Chaque action de {@link XtreamConfig.Actions} est exposée en Mono/Flux : aucun appel
+ * ne bloque le thread appelant, les services composent les résultats et seuls
+ * les traitements bloquants (Mongo) sont déportés sur boundedElastic.
+ * Les catalogues sont décodés élément par élément depuis le flux JSON.
+ * Tous les appels sont idempotents et passent par {@link ProviderCircuitBreaker} (retry, circuit par fournisseur) ;
+ * chaque tentative consomme un jeton du {@link ProviderRateLimiter} de l'hôte.
+ * Les appels identiques simultanés (même URL : baseUrl, identifiants, action) partagent un seul
+ * appel amont ({@link SingleFlight}) : une rafale de synchronisations sur un même panel ne le sollicite qu'une fois.
+ * Les réponses valides sont ensuite servies depuis {@link XtreamResponseCache} pendant la durée de vie de leur action,
+ * aux lectures seulement : les synchronisations (paramètre fresh) interrogent toujours le fournisseur.
+ *
+ * Les méthodes get*Catalog peuvent répartir les gros catalogues par catégorie (xtream.fanout.*, désactivé
+ * par défaut) : une requête category_id par catégorie, en parallèle, au lieu d'une seule réponse géante
+ * limitée par le débit et le timeout de lecture d'un unique socket. Un tel catalogue n'est pas garanti
+ * complet (éléments sans catégorie ou dans une catégorie non listée) : il sert les lectures,
+ * jamais une synchronisation, qui supprimerait en base les éléments manquants.
+ */
+@Component
+public class XtreamClient {
+
+    private final WebClient webClient;
+    private final WebClient epgWebClient;
+    private final ObjectMapper objectMapper;
+    private final ProviderCircuitBreaker circuitBreaker;
+    private final XtreamResponseCache responseCache;
+    private final ProviderRateLimiter rateLimiter;
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final boolean fanOutEnabled;
+    private final int fanOutConcurrency;
+
+    public XtreamClient(@Qualifier("webClient") WebClient webClient,
+                        @Qualifier("epgWebClient") WebClient epgWebClient,
+                        ObjectMapper objectMapper,
+                        ProviderCircuitBreaker circuitBreaker,
+                        XtreamResponseCache responseCache,
+                        ProviderRateLimiter rateLimiter,
+                        @Value("${xtream.fanout.enabled:false}") boolean fanOutEnabled,
+                        @Value("${xtream.fanout.concurrency:8}") int fanOutConcurrency) {
+        this.webClient = webClient;
+        this.epgWebClient = epgWebClient;
+        this.objectMapper = objectMapper;
+        this.circuitBreaker = circuitBreaker;
+        this.responseCache = responseCache;
+        this.rateLimiter = rateLimiter;
+        this.fanOutEnabled = fanOutEnabled;
+        this.fanOutConcurrency = Math.max(fanOutConcurrency, 1);
+    }
+
+    /**
+     * Catalogue live complet, réparti par catégorie si le mode fan-out est actif (lecture seule, voir la classe)
+     */
+    public Flux<XtreamLiveStream> getLiveStreamsCatalog(UserXtreamConfig config) {
+        return fanOut(getLiveCategories(config), categoryId -> getLiveStreamsByCategory(config, categoryId),
+                getLiveStreams(config), XtreamLiveStream::streamId);
+    }
+
+    /**
+     * Catalogue VOD complet, réparti par catégorie si le mode fan-out est actif (lecture seule, voir la classe)
+     */
+    public Flux<XtreamVod> getVodStreamsCatalog(UserXtreamConfig config) {
+        return fanOut(getVodCategories(config), categoryId -> getVodStreamsByCategory(config, categoryId),
+                getVodStreams(config), XtreamVod::streamId);
+    }
+
+    /**
+     * Catalogue des séries complet, réparti par catégorie si le mode fan-out est actif (lecture seule, voir la classe)
+     */
+    public Flux<XtreamSeries> getSeriesCatalog(UserXtreamConfig config) {
+        return fanOut(getSeriesCategories(config), categoryId -> getSeriesByCategory(config, categoryId),
+                getSeries(config), XtreamSeries::seriesId);
+    }
+
+    /**
+     * get_live_streams
+     */
+    public Flux<XtreamLiveStream> getLiveStreams(UserXtreamConfig config) {
+        return getLiveStreams(config, false);
+    }
+
+    /**
+     * get_live_streams ; fresh : réponse du fournisseur, sans lecture du cache (synchronisation)
+     */
+    public Flux<XtreamLiveStream> getLiveStreams(UserXtreamConfig config, boolean fresh) {
+        return catalog(config, XtreamConfig.Actions.GET_LIVE_STREAMS, config.getLiveStreamsUrl(),
+                XtreamLiveStream.class, stream -> stream.streamId() != null, fresh);
+    }
+
+    /**
+     * get_vod_streams
+     */
+    public Flux<XtreamVod> getVodStreams(UserXtreamConfig config) {
+        return getVodStreams(config, false);
+    }
+
+    /**
+     * get_vod_streams ; fresh : réponse du fournisseur, sans lecture du cache (synchronisation)
+     */
+    public Flux<XtreamVod> getVodStreams(UserXtreamConfig config, boolean fresh) {
+        return catalog(config, XtreamConfig.Actions.GET_VOD_STREAMS, config.getVodStreamsUrl(),
+                XtreamVod.class, vod -> vod.streamId() != null, fresh);
+    }
+
+    /**
+     * get_series
+     */
+    public Flux<XtreamSeries> getSeries(UserXtreamConfig config) {
+        return getSeries(config, false);
+    }
+
+    /**
+     * get_series ; fresh : réponse du fournisseur, sans lecture du cache (synchronisation)
+     */
+    public Flux<XtreamSeries> getSeries(UserXtreamConfig config, boolean fresh) {
+        return catalog(config, XtreamConfig.Actions.GET_SERIES, config.getSeriesUrl(),
+                XtreamSeries.class, series -> series.seriesId() != null, fresh);
+    }
+
+    /**
+     * get_live_streams&category_id : live streams d'une seule catégorie
+     */
+    public Flux<XtreamLiveStream> getLiveStreamsByCategory(UserXtreamConfig config, Integer categoryId) {
+        return catalog(config, XtreamConfig.Actions.GET_LIVE_STREAMS,
+                config.getCategoryUrl(XtreamConfig.Actions.GET_LIVE_STREAMS, categoryId),
+                XtreamLiveStream.class, stream -> stream.streamId() != null, false);
+    }
+
+    /**
+     * get_vod_streams&category_id : VOD d'une seule catégorie
+     */
+    public Flux<XtreamVod> getVodStreamsByCategory(UserXtreamConfig config, Integer categoryId) {
+        return catalog(config, XtreamConfig.Actions.GET_VOD_STREAMS,
+                config.getCategoryUrl(XtreamConfig.Actions.GET_VOD_STREAMS, categoryId),
+                XtreamVod.class, vod -> vod.streamId() != null, false);
+    }
+
+    /**
+     * get_series&category_id : séries d'une seule catégorie
+     */
+    public Flux<XtreamSeries> getSeriesByCategory(UserXtreamConfig config, Integer categoryId) {
+        return catalog(config, XtreamConfig.Actions.GET_SERIES,
+                config.getCategoryUrl(XtreamConfig.Actions.GET_SERIES, categoryId),
+                XtreamSeries.class, series -> series.seriesId() != null, false);
+    }
+
+    /**
+     * get_live_categories
+     */
+    public Flux<XtreamCategory> getLiveCategories(UserXtreamConfig config) {
+        return categories(config, XtreamConfig.Actions.GET_LIVE_CATEGORIES);
+    }
+
+    /**
+     * get_vod_categories
+     */
+    public Flux<XtreamCategory> getVodCategories(UserXtreamConfig config) {
+        return categories(config, XtreamConfig.Actions.GET_VOD_CATEGORIES);
+    }
+
+    /**
+     * get_series_categories
+     */
+    public Flux<XtreamCategory> getSeriesCategories(UserXtreamConfig config) {
+        return categories(config, XtreamConfig.Actions.GET_SERIES_CATEGORIES);
+    }
+
+    /**
+     * get_short_epg : programmes à venir d'un stream ; fresh : sans lecture du cache (synchronisation)
+     */
+    public Flux<XtreamEpgListing> getShortEpg(UserXtreamConfig config, Integer streamId, boolean fresh) {
+        return epgListings(config, XtreamConfig.Actions.GET_SHORT_EPG, config.getEpgUrl(streamId), fresh);
+    }
+
+    /**
+     * get_simple_data_table : EPG complet (passé et à venir) d'un stream ; fresh : sans lecture du cache (synchronisation)
+     */
+    public Flux<XtreamEpgListing> getSimpleDataTable(UserXtreamConfig config, Integer streamId, boolean fresh) {
+        return epgListings(config, XtreamConfig.Actions.GET_SIMPLE_DATA_TABLE, config.getSimpleDataTableUrl(streamId), fresh);
+    }
+
+    /**
+     * get_epg : EPG de toutes les chaînes, décodé en flux
+     */
+    public Flux<XtreamEpgListing> getEpg(UserXtreamConfig config) {
+        String url = config.getFullEpgUrl();
+        return responseCache.cached(XtreamConfig.Actions.GET_EPG, cacheKey(config, url),
+                singleFlight.execute(url, () -> circuitBreaker.protect(config.getBaseUrl(), rateLimiter.acquire(url).thenMany(epgWebClient.get()
+                        .uri(url)
+                        .retrieve()
+                        .bodyToFlux(XtreamEpgListing.class)))),
+                XtreamClient::isListing);
+    }
+
+    /**
+     * Liste des catégories, puis une requête par catégorie avec au plus {@link #fanOutConcurrency}
+     * requêtes en vol ; les éléments sont émis dans l'ordre d'arrivée. Sans catégorie exploitable
+     * (liste vide, action non supportée par le panel), on revient à la requête unique.
+     */
+    private <T> Flux<T> fanOut(Flux<XtreamCategory> categories, Function<Integer, Flux<T>> byCategory,
+                               Flux<T> full, Function<T, Integer> idOf) {
+        if (!fanOutEnabled) {
+            return full;
+        }
+
+        return categories
+                .map(XtreamCategory::categoryId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collectList()
+                .onErrorResume(e -> !(e instanceof ProviderUnavailableException), e -> {
+                    System.err.println("⚠ Catégories indisponibles, requête unique: " + e.getMessage());
+                    return Mono.just(List.of());
+                })
+                .flatMapMany(categoryIds -> {
+                    if (categoryIds.isEmpty()) {
+                        return full;
+                    }
+                    // Un élément peut apparaître dans plusieurs catégories chez certains panels
+                    return Flux.fromIterable(categoryIds)
+                            .flatMap(byCategory, fanOutConcurrency)
+                            .distinct(item -> {
+                                Integer id = idOf.apply(item);
+                                return id != null ? (Object) id : item;
+                            });
+                });
+    }
+
+    /**
+     * Supprime du cache les réponses d'un compte (prochain appel servi par le fournisseur)
+     */
+    public void evictCache(UserXtreamConfig config) {
+        responseCache.evictByPrefix(accountKey(config));
+    }
+
+    private Flux<XtreamCategory> categories(UserXtreamConfig config, String action) {
+        return catalog(config, action, config.getPlayerApiUrl(action),
+                XtreamCategory.class, category -> category.categoryId() != null, false);
+    }
+
+    private <T> Flux<T> catalog(UserXtreamConfig config, String action, String url, Class<T> type, Predicate<T> valid,
+                                boolean fresh) {
+        return throughCache(action, cacheKey(config, url),
+                singleFlight.execute(url, () -> circuitBreaker.protect(config.getBaseUrl(), rateLimiter.acquire(url).thenMany(webClient.get()
+                        .uri(url)
+                        .retrieve()
+                        .bodyToFlux(type)))),
+                valid, fresh);
+    }
+
+    /**
+     * Lecture : servie par le cache si possible. Synchronisation (fresh) : toujours le fournisseur, cache rempli au passage
+     */
+    private <T> Flux<T> throughCache(String action, String key, Flux<T> upstream, Predicate<T> valid, boolean fresh) {
+        return fresh
+                ? responseCache.refreshed(action, key, upstream, valid)
+                : responseCache.cached(action, key, upstream, valid);
+    }
+
+    /**
+     * Les panels renvoient soit {"epg_listings": [...]}, soit directement le tableau
+     */
+    private Flux<XtreamEpgListing> epgListings(UserXtreamConfig config, String action, String url, boolean fresh) {
+        return throughCache(action, cacheKey(config, url),
+                singleFlight.execute(url, () -> circuitBreaker.protect(config.getBaseUrl(), rateLimiter.acquire(url).thenMany(epgWebClient.get()
+                        .uri(url)
+                        .retrieve()
+                        .bodyToMono(JsonNode.class)
+                        .flatMapMany(root -> {
+                            JsonNode listings = root.isArray() ? root : root.path("epg_listings");
+                            if (!listings.isArray()) {
+                                return Flux.empty();
+                            }
+                            return Flux.fromIterable(listings)
+                                    .map(node -> objectMapper.convertValue(node, XtreamEpgListing.class));
+                        })))),
+                XtreamClient::isListing, fresh);
+    }
+
+    private static boolean isListing(XtreamEpgListing listing) {
+        return listing.title() != null || listing.start() != null;
+    }
+
+    /**
+     * Clé de cache : fournisseur, compte, puis l'URL de l'action (action et paramètres)
+     */
+    private static String cacheKey(UserXtreamConfig config, String url) {
+        return accountKey(config) + url;
+    }
+
+    private static String accountKey(UserXtreamConfig config) {
+        return ProviderCircuitBreaker.normalize(config.getBaseUrl()) + "|" + config.getUsername() + "|";
+    }
+
+    /**
+     * Entrées, poids et taux de succès du cache de réponses
+     */
+    public Map<String, Object> getCacheStats() {
+        return responseCache.getStatistics();
+    }
+
+    /**
+     * Appels regroupés depuis le démarrage et appels amont en cours
+     */
+    public Map<String, Object> getSingleFlightStats() {
+        return Map.of(
+                "coalesced_calls", singleFlight.getCoalescedCount(),
+                "in_flight", singleFlight.getInFlightCount()
+        );
+    }
+}
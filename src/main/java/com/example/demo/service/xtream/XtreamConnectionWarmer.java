@@ -0,0 +1,76 @@
+package com.example.demo.service.xtream;
+
+import com.example.demo.config.UserXtreamConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Préchauffe les connexions vers un fournisseur Xtream.
+ *
+ * Quelques requêtes légères (player_api.php sans action) ouvrent en parallèle les connexions
+ * TCP/TLS et résolvent le DNS ; rendues au pool, elles sont réutilisées par la première
+ * synchronisation au lieu d'être ouvertes en rafale chez un panel qui limite les nouvelles connexions.
+ * Ces requêtes passent par le limiteur de débit et le circuit breaker du fournisseur, comme les autres appels.
+ */
+@Component
+public class XtreamConnectionWarmer {
+
+    private static final Duration WARMUP_TIMEOUT = Duration.ofSeconds(15);
+
+    private final WebClient webClient;
+    private final ProviderRateLimiter rateLimiter;
+    private final ProviderCircuitBreaker circuitBreaker;
+    private final int connections;
+
+    public XtreamConnectionWarmer(@Qualifier("webClient") WebClient webClient,
+                                  ProviderRateLimiter rateLimiter,
+                                  ProviderCircuitBreaker circuitBreaker,
+                                  @Value("${xtream.http.pool.prewarm-connections:2}") int connections) {
+        this.webClient = webClient;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.connections = connections;
+    }
+
+    /**
+     * Lance le préchauffage en arrière-plan ; les erreurs sont seulement journalisées
+     */
+    public void prewarm(String baseUrl, String username, String password) {
+        if (baseUrl == null || baseUrl.isBlank() || connections <= 0) {
+            return;
+        }
+
+        UserXtreamConfig config = UserXtreamConfig.builder()
+                .baseUrl(baseUrl)
+                .username(username)
+                .password(password)
+                .build();
+
+        String url = config.getAuthenticationUrl();
+
+        Flux.range(0, connections)
+                .flatMap(i -> circuitBreaker.protect(baseUrl, rateLimiter.acquire(url)
+                                .then(webClient.get()
+                                        .uri(url)
+                                        // Un 5xx compte comme un échec du fournisseur pour le circuit
+                                        .exchangeToMono(response -> response.statusCode().is5xxServerError()
+                                                ? response.<Void>createError()
+                                                : response.releaseBody()))
+                                .flux())
+                        .then()
+                        .timeout(WARMUP_TIMEOUT)
+                        .onErrorResume(e -> {
+                            System.err.println("⚠ Préchauffage des connexions vers " + baseUrl + " échoué: " + e.getMessage());
+                            return Mono.empty();
+                        }), connections)
+                .then()
+                .subscribe(null, null,
+                        () -> System.out.println("🔥 Connexions préchauffées vers " + baseUrl));
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.demo.service.xtream;
+
+import com.example.demo.config.XtreamConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Cache borné des réponses Xtream, par (fournisseur, compte, action).
+ *
+ * Chaque action a sa durée de vie (xtream.cache.ttl.&lt;action&gt;) ; la mémoire est bornée par
+ * poids, mesuré en octets de la réponse sérialisée (xtream.cache.max-weight-mb), avec éviction
+ * des entrées les moins récemment lues. Seules les réponses valides sont conservées : une erreur,
+ * un catalogue vide ou un objet d'erreur du panel repartent chez le fournisseur au prochain appel.
+ *
+ * Le cache ne sert que les lectures ({@link #cached}) : les synchronisations passent par
+ * {@link #refreshed}, qui interroge toujours le fournisseur et remplit le cache avec sa réponse.
+ */
+@Component
+public class XtreamResponseCache {
+
+    private static final Map<String, Duration> DEFAULT_TTLS = Map.of(
+            XtreamConfig.Actions.GET_LIVE_STREAMS, Duration.ofHours(1),
+            XtreamConfig.Actions.GET_VOD_STREAMS, Duration.ofHours(2),
+            XtreamConfig.Actions.GET_SERIES, Duration.ofHours(2),
+            XtreamConfig.Actions.GET_LIVE_CATEGORIES, Duration.ofHours(6),
+            XtreamConfig.Actions.GET_VOD_CATEGORIES, Duration.ofHours(6),
+            XtreamConfig.Actions.GET_SERIES_CATEGORIES, Duration.ofHours(6),
+            XtreamConfig.Actions.GET_SHORT_EPG, Duration.ofMinutes(15),
+            XtreamConfig.Actions.GET_SIMPLE_DATA_TABLE, Duration.ofHours(1),
+            XtreamConfig.Actions.GET_EPG, Duration.ofHours(1));
+
+    // Part de la durée de vie après laquelle une entrée lue est rechargée en arrière-plan
+    private static final double REFRESH_AHEAD_RATIO = 0.8;
+
+    private final Environment environment;
+    private final ObjectMapper objectMapper;
+    private final long maxWeight;
+    private final Map<String, Duration> ttls = new ConcurrentHashMap<>();
+
+    // Ordre d'accès : l'entrée la plus ancienne est la moins récemment lue
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    public XtreamResponseCache(Environment environment, ObjectMapper objectMapper) {
+        this.environment = environment;
+        this.objectMapper = objectMapper;
+        this.maxWeight = environment.getProperty("xtream.cache.max-weight-mb", Long.class, 256L) * 1024 * 1024;
+    }
+
+    /**
+     * Sert la réponse en cache, sinon s'abonne à l'appel amont et conserve ses éléments à la fin.
+     * Passé {@link #REFRESH_AHEAD_RATIO} de sa durée de vie, une entrée lue est encore servie mais
+     * rechargée en arrière-plan : les catalogues consultés restent chauds sans attente pour l'utilisateur.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> cached(String action, String key, Flux<T> upstream, Predicate<T> valid) {
+        Duration ttl = ttlOf(action);
+        if (ttl.isZero() || ttl.isNegative()) {
+            return upstream;
+        }
+
+        return Flux.defer(() -> {
+            Entry entry = get(key);
+            if (entry != null) {
+                hits.incrementAndGet();
+                if (entry.refreshAt <= System.currentTimeMillis() && refreshing.add(key)) {
+                    refreshInBackground(key, upstream, valid, ttl);
+                }
+                return Flux.fromIterable((List<T>) entry.value);
+            }
+
+            misses.incrementAndGet();
+            return fetchAndStore(key, upstream, valid, ttl);
+        });
+    }
+
+    /**
+     * Lecture toujours servie par le fournisseur (synchronisations) : le cache n'est pas consulté,
+     * mais la réponse reçue le remplit pour les lectures suivantes
+     */
+    public <T> Flux<T> refreshed(String action, String key, Flux<T> upstream, Predicate<T> valid) {
+        Duration ttl = ttlOf(action);
+        if (ttl.isZero() || ttl.isNegative()) {
+            return upstream;
+        }
+        return Flux.defer(() -> fetchAndStore(key, upstream, valid, ttl));
+    }
+
+    private <T> Flux<T> fetchAndStore(String key, Flux<T> upstream, Predicate<T> valid, Duration ttl) {
+        List<T> received = new ArrayList<>();
+        return upstream
+                .doOnNext(received::add)
+                .doOnComplete(() -> store(key, received, valid, ttl));
+    }
+
+    private <T> void refreshInBackground(String key, Flux<T> upstream, Predicate<T> valid, Duration ttl) {
+        upstream.collectList()
+                .doFinally(signal -> refreshing.remove(key))
+                .subscribe(
+                        received -> {
+                            refreshes.incrementAndGet();
+                            store(key, received, valid, ttl);
+                        },
+                        e -> System.err.println("⚠ Rafraîchissement en arrière-plan échoué: " + e.getMessage()));
+    }
+
+    private <T> void store(String key, List<T> received, Predicate<T> valid, Duration ttl) {
+        if (received.stream().anyMatch(valid)) {
+            // Sérialisation (pesée) hors de la boucle d'événements
+            Schedulers.boundedElastic().schedule(() -> put(key, received, ttl));
+        }
+    }
+
+    /**
+     * Supprime les réponses d'un compte (préfixe de clé : baseUrl et identifiants)
+     */
+    public void evictByPrefix(String prefix) {
+        synchronized (entries) {
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> entry = it.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    totalWeight -= entry.getValue().weight;
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        synchronized (entries) {
+            return Map.of(
+                    "entries", entries.size(),
+                    "weight_bytes", totalWeight,
+                    "max_weight_bytes", maxWeight,
+                    "hits", hits.get(),
+                    "misses", misses.get(),
+                    "evictions", evictions.get(),
+                    "background_refreshes", refreshes.get()
+            );
+        }
+    }
+
+    private Entry get(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(key);
+                totalWeight -= entry.weight;
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void put(String key, List<?> value, Duration ttl) {
+        // Pesée sans matérialiser la réponse sérialisée : seuls les octets sont comptés,
+        // et la sérialisation s'arrête dès que la réponse dépasse le poids maximal
+        CountingOutputStream counter = new CountingOutputStream(maxWeight);
+        try {
+            objectMapper.writeValue(counter, value);
+        } catch (IOException e) {
+            if (!counter.isOverLimit()) {
+                System.err.println("⚠ Réponse Xtream non mise en cache: " + e.getMessage());
+            }
+            return;
+        }
+        long weight = counter.getCount();
+
+        synchronized (entries) {
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                totalWeight -= previous.weight;
+            }
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (totalWeight + weight > maxWeight && eldest.hasNext()) {
+                totalWeight -= eldest.next().weight;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+
+            long now = System.currentTimeMillis();
+            entries.put(key, new Entry(value, weight,
+                    now + ttl.toMillis(), now + (long) (ttl.toMillis() * REFRESH_AHEAD_RATIO)));
+            totalWeight += weight;
+        }
+    }
+
+    private Duration ttlOf(String action) {
+        return ttls.computeIfAbsent(action, a -> environment.getProperty("xtream.cache.ttl." + a, Duration.class,
+                DEFAULT_TTLS.getOrDefault(a, Duration.ofMinutes(15))));
+    }
+
+    /**
+     * Compte les octets écrits sans les conserver ; échoue au-delà de la limite
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private final long limit;
+        private long count;
+
+        CountingOutputStream(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            add(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            add(len);
+        }
+
+        private void add(long bytes) throws IOException {
+            count += bytes;
+            if (count > limit) {
+                throw new IOException("réponse au-delà de " + limit + " octets");
+            }
+        }
+
+        long getCount() { return count; }
+
+        boolean isOverLimit() { return count > limit; }
+    }
+
+    private static class Entry {
+        final List<?> value;
+        final long weight;
+        final long expiresAt;
+        final long refreshAt;
+
+        Entry(List<?> value, long weight, long expiresAt, long refreshAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Différence entre le catalogue reçu et celui stocké : ajouts, modifications et suppressions.
+ * Seuls ces enregistrements ont besoin d'être écrits en base.
+ */
+public class CatalogDelta<T> {
+
+    private final List<T> added = new ArrayList<>();
+    private final List<T> changed = new ArrayList<>();
+    private final List<T> removed = new ArrayList<>();
+    private int unchangedCount;
+
+    /**
+     * Compare les enregistrements par clé puis par empreinte.
+     *
+     * @param incoming     enregistrements reçus (clés uniques)
+     * @param existing     enregistrements stockés (au minimum id, clé et empreinte)
+     * @param keyOf        clé métier (streamId, vodId...)
+     * @param fingerprintOf empreinte de l'enregistrement
+     * @param keepIdentity recopie l'identité de l'enregistrement stocké vers sa nouvelle version
+     */
+    public static <T, K> CatalogDelta<T> compute(Collection<T> incoming,
+                                                 Collection<T> existing,
+                                                 Function<T, K> keyOf,
+                                                 Function<T, Long> fingerprintOf,
+                                                 BiConsumer<T, T> keepIdentity) {
+        CatalogDelta<T> delta = new CatalogDelta<>();
+
+        Map<K, T> stored = new HashMap<>(existing.size() * 2);
+        for (T item : existing) {
+            // Doublons hérités des anciennes synchronisations : on n'en garde qu'un
+            if (stored.putIfAbsent(keyOf.apply(item), item) != null) {
+                delta.removed.add(item);
+            }
+        }
+
+        for (T item : incoming) {
+            T previous = stored.remove(keyOf.apply(item));
+            if (previous == null) {
+                delta.added.add(item);
+            } else if (!Objects.equals(fingerprintOf.apply(previous), fingerprintOf.apply(item))) {
+                keepIdentity.accept(previous, item);
+                delta.changed.add(item);
+            } else {
+                delta.unchangedCount++;
+            }
+        }
+
+        delta.removed.addAll(stored.values());
+        return delta;
+    }
+
+    public List<T> getAdded() { return added; }
+    public List<T> getChanged() { return changed; }
+    public List<T> getRemoved() { return removed; }
+    public int getUnchangedCount() { return unchangedCount; }
+
+    /**
+     * Enregistrements à écrire (ajouts puis modifications)
+     */
+    public List<T> getUpserts() {
+        List<T> upserts = new ArrayList<>(added.size() + changed.size());
+        upserts.addAll(added);
+        upserts.addAll(changed);
+        return upserts;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return added.size() + " ajoutés, " + changed.size() + " modifiés, "
+                + removed.size() + " supprimés, " + unchangedCount + " inchangés";
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.utils;
+
+import java.util.Collection;
+import java.util.function.ToLongFunction;
+
+/**
+ * Empreintes stables des contenus synchronisés.
+ *
+ * L'empreinte d'un enregistrement est un hash 64 bits (FNV-1a) de ses champs normalisés :
+ * elle ne change que si une valeur persistée change. L'empreinte d'un catalogue combine
+ * celles de ses enregistrements indépendamment de leur ordre.
+ */
+public final class FingerprintUtils {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Séparateur de champs, absent des valeurs normalisées
+    private static final char FIELD_SEPARATOR = '\u001f';
+
+    private FingerprintUtils() {
+    }
+
+    /**
+     * Empreinte d'un enregistrement : null, vide et espaces en bordure sont équivalents
+     */
+    public static long fingerprint(Object... fields) {
+        long hash = FNV_OFFSET;
+        for (Object field : fields) {
+            String value = normalize(field);
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= FNV_PRIME;
+            }
+            hash ^= FIELD_SEPARATOR;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Empreinte d'un catalogue complet, indépendante de l'ordre des enregistrements
+     */
+    public static <T> long catalogFingerprint(Collection<T> items, ToLongFunction<T> fingerprintOf) {
+        long sum = 0L;
+        for (T item : items) {
+            sum = accumulate(sum, fingerprintOf.applyAsLong(item));
+        }
+        return finish(sum, items.size());
+    }
+
+    /**
+     * Calcul incrémental de l'empreinte d'un catalogue reçu en flux : ajoute un enregistrement
+     */
+    public static long accumulate(long sum, long fingerprint) {
+        return sum + mix(fingerprint);
+    }
+
+    /**
+     * Calcul incrémental : empreinte finale à partir de la somme et du nombre d'enregistrements
+     */
+    public static long finish(long sum, long count) {
+        return mix(sum ^ count);
+    }
+
+    /**
+     * Représentation courte pour les logs
+     */
+    public static String toHex(long fingerprint) {
+        return String.format("%016x", fingerprint);
+    }
+
+    private static String normalize(Object field) {
+        if (field == null) return "";
+        return field.toString().trim();
+    }
+
+    /**
+     * Finaliseur SplitMix64 : répartit les bits avant la somme pour éviter les compensations
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
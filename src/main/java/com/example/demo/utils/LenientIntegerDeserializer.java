@@ -0,0 +1,55 @@
+package com.example.demo.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Désérialise un entier envoyé tantôt en nombre, tantôt en chaîne par les panels Xtream
+ * ("12", 12, 12.0, "", null). Les valeurs illisibles donnent null au lieu d'une erreur,
+ * pour qu'un champ mal formé n'interrompe pas le décodage du catalogue.
+ */
+public class LenientIntegerDeserializer extends StdDeserializer<Integer> {
+
+    public LenientIntegerDeserializer() {
+        super(Integer.class);
+    }
+
+    @Override
+    public Integer deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getValueAsInt();
+        }
+        if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return (int) parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return parse(parser.getText());
+        }
+        if (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT) {
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+    private static Integer parse(String text) {
+        String value = text.trim();
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            try {
+                return (int) Double.parseDouble(value);
+            } catch (NumberFormatException ignored) {
+                return null;
+            }
+        }
+    }
+}
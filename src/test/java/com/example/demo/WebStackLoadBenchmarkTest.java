@@ -0,0 +1,214 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compare la pile MVC actuelle et la pile WebFlux/Netty à 5000 connexions simultanées :
+ * débit et latence p99 d'un endpoint catalogue dont l'appel amont (Xtream) est simulé par un délai.
+ *
+ * Trois configurations : MVC avec appel bloquant (comportement historique), MVC renvoyant un Mono,
+ * et Netty renvoyant un Mono. Lancer avec : mvn test -Dtest=WebStackLoadBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class WebStackLoadBenchmarkTest {
+
+    private static final int CONCURRENCY = 5_000;
+    private static final int REQUESTS = 20_000;
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(50);
+    private static final int CATALOG_SIZE = 200;
+
+    @Test
+    void compareServletAndReactiveStacks() {
+        List<Result> results = List.of(
+                run("MVC bloquant", WebApplicationType.SERVLET, "/bench/catalog/blocking"),
+                run("MVC + Mono", WebApplicationType.SERVLET, "/bench/catalog"),
+                run("WebFlux/Netty + Mono", WebApplicationType.REACTIVE, "/bench/catalog"));
+
+        System.out.println("📊 " + REQUESTS + " requêtes, " + CONCURRENCY + " connexions simultanées, latence amont "
+                + UPSTREAM_LATENCY.toMillis() + "ms");
+        results.forEach(result -> System.out.println("   " + result));
+
+        for (Result result : results) {
+            assertTrue(result.successRate() >= 0.99, result.toString());
+        }
+    }
+
+    private Result run(String label, WebApplicationType type, String path) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BenchApplication.class)
+                .web(type)
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "spring.devtools.restart.enabled=false",
+                        "spring.mvc.async.request-timeout=120s",
+                        "server.tomcat.max-connections=10000",
+                        "server.tomcat.accept-count=10000")
+                .run();
+
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            load(port, path); // préchauffage
+            return load(port, path).withLabel(label);
+        } finally {
+            context.close();
+        }
+    }
+
+    private Result load(int port, String path) {
+        ConnectionProvider provider = ConnectionProvider.builder("bench")
+                .maxConnections(CONCURRENCY)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMinutes(2))
+                .build();
+        HttpClient client = HttpClient.create(provider)
+                .baseUrl("http://localhost:" + port)
+                .responseTimeout(Duration.ofMinutes(2));
+
+        AtomicLongArray latencies = new AtomicLongArray(REQUESTS);
+        AtomicInteger succeeded = new AtomicInteger();
+        long start = System.nanoTime();
+
+        try {
+            Flux.range(0, REQUESTS)
+                    .flatMap(i -> {
+                        long requestStart = System.nanoTime();
+                        return client.get()
+                                .uri(path)
+                                .responseSingle((response, body) -> body.asString()
+                                        .then(Mono.just(response.status().code())))
+                                .doOnNext(status -> {
+                                    latencies.set(i, System.nanoTime() - requestStart);
+                                    if (status == 200) succeeded.incrementAndGet();
+                                })
+                                .onErrorResume(e -> Mono.empty());
+                    }, CONCURRENCY)
+                    .blockLast(Duration.ofMinutes(10));
+        } finally {
+            provider.disposeLater().block();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        return new Result(latencies, succeeded.get(), elapsed);
+    }
+
+    /**
+     * Débit et percentiles d'une configuration
+     */
+    private static class Result {
+        private String label = "";
+        private final int succeeded;
+        private final double throughput;
+        private final double p50Ms;
+        private final double p99Ms;
+
+        Result(AtomicLongArray latencies, int succeeded, long elapsedNanos) {
+            long[] sorted = new long[latencies.length()];
+            for (int i = 0; i < sorted.length; i++) sorted[i] = latencies.get(i);
+            Arrays.sort(sorted);
+
+            this.succeeded = succeeded;
+            this.throughput = REQUESTS / (elapsedNanos / 1e9);
+            this.p50Ms = sorted[(int) (sorted.length * 0.50)] / 1e6;
+            this.p99Ms = sorted[(int) (sorted.length * 0.99)] / 1e6;
+        }
+
+        Result withLabel(String label) {
+            this.label = label;
+            return this;
+        }
+
+        double successRate() {
+            return (double) succeeded / REQUESTS;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-22s %8.0f req/s  p50=%7.1fms  p99=%7.1fms  succès=%.2f%%",
+                    label, throughput, p50Ms, p99Ms, successRate() * 100);
+        }
+    }
+
+    /**
+     * Application minimale : seulement la couche web, sans Mongo ni sécurité
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration(excludeName = {
+            "org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration",
+            "org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration",
+            "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration",
+            "org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration",
+            "org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration",
+            "org.springframework.boot.autoconfigure.security.reactive.ReactiveSecurityAutoConfiguration",
+            "org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration",
+            "org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration",
+            "org.springframework.boot.actuate.autoconfigure.security.reactive.ReactiveManagementWebSecurityAutoConfiguration"
+    })
+    @Import(BenchController.class)
+    static class BenchApplication {
+    }
+
+    @RestController
+    static class BenchController {
+
+        private final List<Map<String, Object>> catalog = generateCatalog();
+
+        /**
+         * Ancien modèle : le thread de requête attend la réponse amont
+         */
+        @GetMapping("/bench/catalog/blocking")
+        public List<Map<String, Object>> blockingCatalog() {
+            Mono.delay(UPSTREAM_LATENCY).block();
+            return catalog;
+        }
+
+        /**
+         * Modèle réactif : aucun thread n'est retenu pendant l'attente
+         */
+        @GetMapping("/bench/catalog")
+        public Mono<List<Map<String, Object>>> catalog() {
+            return Mono.delay(UPSTREAM_LATENCY).thenReturn(catalog);
+        }
+
+        private static List<Map<String, Object>> generateCatalog() {
+            List<Map<String, Object>> items = new ArrayList<>(CATALOG_SIZE);
+            for (int i = 0; i < CATALOG_SIZE; i++) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("stream_id", i);
+                item.put("name", "Chaîne " + i);
+                item.put("category_id", i % 20);
+                item.put("stream_url", "http://provider.example/live/user/pass/" + i + ".ts");
+                items.add(item);
+            }
+            return items;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.demo.repository;
+
+import com.example.demo.config.MongoIndexConfig;
+import com.example.demo.model.Epg;
+import com.example.demo.model.LiveStream;
+import com.example.demo.model.Series;
+import com.example.demo.model.Vod;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie que chaque requête des repositories catalogue et EPG s'appuie sur un index.
+ *
+ * Les repositories réels tournent contre un mongod local, dans une base temporaire dont les index sont
+ * créés par {@link MongoIndexConfig}. Le profiler est activé et le plan de chaque opération
+ * (planSummary) ne doit pas être un COLLSCAN. Chaque méthode déclarée d'un repository doit être exercée :
+ * une nouvelle requête sans cas ici fait échouer le test.
+ *
+ * Lancer avec : mvn test -Dtest=RepositoryQueryPlanTest -Dmongo.explain=true
+ * (mongod : -Dmongo.explain.uri, mongodb://localhost:27017 par défaut)
+ */
+@EnabledIfSystemProperty(named = "mongo.explain", matches = "true")
+class RepositoryQueryPlanTest {
+
+    private static final String OWNER = "owner-1";
+    private static final int CATALOG_SIZE = 200;
+
+    private static MongoClient client;
+    private static MongoDatabase database;
+    private static MongoRepositoryFactory repositories;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(System.getProperty("mongo.explain.uri", "mongodb://localhost:27017"));
+        String databaseName = "iptv_query_plans_" + System.currentTimeMillis();
+        database = client.getDatabase(databaseName);
+
+        MongoTemplate mongoTemplate = new MongoTemplate(client, databaseName);
+        new MongoIndexConfig(mongoTemplate).ensureIndexes();
+        seed(mongoTemplate);
+
+        repositories = new MongoRepositoryFactory(mongoTemplate);
+        database.runCommand(new Document("profile", 2));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (database != null) {
+            database.runCommand(new Document("profile", 0));
+            database.drop();
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    void liveStreamQueriesUseIndexes() {
+        LiveStreamRepository repository = repositories.getRepository(LiveStreamRepository.class);
+        Map<String, List<String>> plans = new LinkedHashMap<>();
+
+        plans.put("findByStreamId", plansOf(() -> repository.findByStreamId(1)));
+        plans.put("existsByStreamId", plansOf(() -> repository.existsByStreamId(1)));
+        plans.put("findByNameContainingIgnoreCase", plansOf(() -> repository.findByNameContainingIgnoreCase("chaîne 1")));
+        plans.put("findByCategoryName", plansOf(() -> repository.findByCategoryName("Catégorie 1")));
+        plans.put("findByOwnerId", plansOf(() -> repository.findByOwnerId(OWNER)));
+        plans.put("countByOwnerId", plansOf(() -> repository.countByOwnerId(OWNER)));
+        plans.put("findFingerprintsByOwnerId", plansOf(() -> repository.findFingerprintsByOwnerId(OWNER)));
+        plans.put("findEpgChannelsByOwnerId", plansOf(() -> repository.findEpgChannelsByOwnerId(OWNER)));
+        plans.put("deleteByStreamId", plansOf(() -> repository.deleteByStreamId(CATALOG_SIZE)));
+
+        assertIndexed(LiveStreamRepository.class, plans);
+    }
+
+    @Test
+    void vodQueriesUseIndexes() {
+        VodRepository repository = repositories.getRepository(VodRepository.class);
+        Map<String, List<String>> plans = new LinkedHashMap<>();
+
+        plans.put("findByVodId", plansOf(() -> repository.findByVodId(1)));
+        plans.put("existsByVodId", plansOf(() -> repository.existsByVodId(1)));
+        plans.put("findByNameContainingIgnoreCase", plansOf(() -> repository.findByNameContainingIgnoreCase("film 1")));
+        plans.put("findByCategoryName", plansOf(() -> repository.findByCategoryName("Catégorie 1")));
+        plans.put("findByOwnerId", plansOf(() -> repository.findByOwnerId(OWNER)));
+        plans.put("countByOwnerId", plansOf(() -> repository.countByOwnerId(OWNER)));
+        plans.put("findFingerprintsByOwnerId", plansOf(() -> repository.findFingerprintsByOwnerId(OWNER)));
+
+        assertIndexed(VodRepository.class, plans);
+    }
+
+    @Test
+    void seriesQueriesUseIndexes() {
+        SeriesRepository repository = repositories.getRepository(SeriesRepository.class);
+        Map<String, List<String>> plans = new LinkedHashMap<>();
+
+        plans.put("findBySeriesId", plansOf(() -> repository.findBySeriesId(1)));
+        plans.put("existsBySeriesId", plansOf(() -> repository.existsBySeriesId(1)));
+        plans.put("findByNameContainingIgnoreCase", plansOf(() -> repository.findByNameContainingIgnoreCase("série 1")));
+        plans.put("findByCategoryName", plansOf(() -> repository.findByCategoryName("Catégorie 1")));
+        plans.put("findByOwnerId", plansOf(() -> repository.findByOwnerId(OWNER)));
+        plans.put("countByOwnerId", plansOf(() -> repository.countByOwnerId(OWNER)));
+        plans.put("findFingerprintsByOwnerId", plansOf(() -> repository.findFingerprintsByOwnerId(OWNER)));
+
+        assertIndexed(SeriesRepository.class, plans);
+    }
+
+    @Test
+    void epgQueriesUseIndexes() {
+        EpgRepository repository = repositories.getRepository(EpgRepository.class);
+        Map<String, List<String>> plans = new LinkedHashMap<>();
+
+        plans.put("findByOwnerIdAndStreamIdAndStartAndTitle",
+                plansOf(() -> repository.findByOwnerIdAndStreamIdAndStartAndTitle(OWNER, 1, startOf(1), "Programme 1")));
+        plans.put("findByOwnerIdAndStreamId", plansOf(() -> repository.findByOwnerIdAndStreamId(OWNER, 1)));
+        plans.put("findFirstByOwnerIdAndStreamIdOrderByEndDesc",
+                plansOf(() -> repository.findFirstByOwnerIdAndStreamIdOrderByEndDesc(OWNER, 1)));
+        plans.put("deleteByOwnerIdAndStreamId", plansOf(() -> repository.deleteByOwnerIdAndStreamId(OWNER, CATALOG_SIZE)));
+        plans.put("deleteByOwnerIdAndStreamIdIn",
+                plansOf(() -> repository.deleteByOwnerIdAndStreamIdIn(OWNER, List.of(CATALOG_SIZE - 1, CATALOG_SIZE - 2))));
+
+        assertIndexed(EpgRepository.class, plans);
+    }
+
+    /**
+     * Plans (planSummary) des opérations profilées pendant l'exécution de la requête
+     */
+    private List<String> plansOf(Runnable query) {
+        MongoCollection<Document> profile = database.getCollection("system.profile");
+        long before = profile.countDocuments();
+        query.run();
+
+        List<String> plans = new ArrayList<>();
+        for (Document operation : profile.find().skip((int) before)) {
+            String namespace = operation.getString("ns");
+            String plan = operation.getString("planSummary");
+            if (plan != null && namespace != null && !namespace.endsWith(".system.profile")) {
+                plans.add(plan);
+            }
+        }
+        return plans;
+    }
+
+    private void assertIndexed(Class<?> repository, Map<String, List<String>> plans) {
+        System.out.println("📊 " + repository.getSimpleName());
+        plans.forEach((method, summaries) -> System.out.println("   " + method + " → " + summaries));
+
+        for (Method method : repository.getDeclaredMethods()) {
+            assertTrue(plans.containsKey(method.getName()),
+                    repository.getSimpleName() + "." + method.getName() + " n'est pas vérifiée");
+        }
+        plans.forEach((method, summaries) -> {
+            assertFalse(summaries.isEmpty(), method + ": aucune opération profilée");
+            assertTrue(summaries.stream().noneMatch(plan -> plan.contains("COLLSCAN")),
+                    repository.getSimpleName() + "." + method + " parcourt la collection: " + summaries);
+        });
+    }
+
+    private static void seed(MongoTemplate mongoTemplate) {
+        List<LiveStream> liveStreams = new ArrayList<>();
+        List<Vod> vods = new ArrayList<>();
+        List<Series> series = new ArrayList<>();
+        List<Epg> programmes = new ArrayList<>();
+
+        for (int i = 1; i <= CATALOG_SIZE; i++) {
+            int category = i % 10;
+            liveStreams.add(LiveStream.builder().streamId(i).name("Chaîne " + i).categoryId(category)
+                    .categoryName("Catégorie " + category).epgChannelId(i % 2 == 0 ? "ch" + i + ".fr" : null)
+                    .ownerId(OWNER).fingerprint((long) i).build());
+            vods.add(Vod.builder().vodId(i).name("Film " + i).categoryId(category)
+                    .categoryName("Catégorie " + category).ownerId(OWNER).fingerprint((long) i).build());
+            series.add(Series.builder().seriesId(i).name("Série " + i).categoryId(category)
+                    .categoryName("Catégorie " + category).ownerId(OWNER).fingerprint((long) i).build());
+            for (int p = 1; p <= 3; p++) {
+                programmes.add(Epg.builder().ownerId(OWNER).streamId(i).title("Programme " + p)
+                        .start(startOf(p)).end(startOf(p + 1)).description("").build());
+            }
+        }
+
+        mongoTemplate.insertAll(liveStreams);
+        mongoTemplate.insertAll(vods);
+        mongoTemplate.insertAll(series);
+        mongoTemplate.insertAll(programmes);
+    }
+
+    private static String startOf(int hour) {
+        return String.format("2026-01-01 %02d:00:00", hour);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.XtreamEpgListing;
+import com.example.demo.model.Epg;
+import com.example.demo.repository.EpgRepository;
+import com.example.demo.repository.LiveStreamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fusion EPG par clé (début, titre) : une synchronisation répétée n'écrit rien et ne crée pas de doublons
+ */
+class EpgServiceTest {
+
+    private static final String OWNER = "owner-1";
+    private static final int STREAM = 42;
+
+    private EpgRepository epgRepository;
+    private EpgService epgService;
+    private final List<Epg> stored = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        epgRepository = mock(EpgRepository.class);
+        when(epgRepository.findByOwnerIdAndStreamId(OWNER, STREAM)).thenAnswer(invocation -> new ArrayList<>(stored));
+        epgService = new EpgService(epgRepository, mock(LiveStreamRepository.class), null, null, null);
+    }
+
+    @Test
+    void unknownProgrammesAreInsertedForTheOwner() {
+        int received = epgService.mergeEpgForStream(OWNER, STREAM, List.of(
+                listing("Journal", "2026-01-01 20:00:00", "2026-01-01 20:30:00", "Infos"),
+                listing("Film", "2026-01-01 20:30:00", "2026-01-01 22:00:00", null)));
+
+        assertEquals(2, received);
+        List<Epg> saved = savedEpg();
+        assertEquals(2, saved.size());
+        saved.forEach(epg -> {
+            assertEquals(OWNER, epg.getOwnerId());
+            assertEquals(STREAM, epg.getStreamId());
+        });
+        verify(epgRepository, never()).deleteAll(any());
+    }
+
+    @Test
+    void sameGuideTwiceWritesNothing() {
+        stored.add(epg("1", "Journal", "2026-01-01 20:00:00", "2026-01-01 20:30:00", "Infos"));
+
+        epgService.saveEpgForStream(OWNER, STREAM, List.of(
+                Map.of("title", "Journal", "start", "2026-01-01 20:00:00", "end", "2026-01-01 20:30:00", "description", "Infos")));
+
+        verify(epgRepository, never()).saveAll(any());
+        verify(epgRepository, never()).deleteAll(any());
+    }
+
+    @Test
+    void changedDescriptionUpdatesTheExistingDocument() {
+        stored.add(epg("1", "Journal", "2026-01-01 20:00:00", "2026-01-01 20:30:00", "Infos"));
+
+        epgService.mergeEpgForStream(OWNER, STREAM, List.of(
+                listing("Journal", "2026-01-01 20:00:00", "2026-01-01 20:30:00", "Édition spéciale")));
+
+        List<Epg> saved = savedEpg();
+        assertEquals(1, saved.size());
+        assertEquals("1", saved.get(0).getId());
+        assertEquals("Édition spéciale", saved.get(0).getDescription());
+    }
+
+    @Test
+    void duplicatesAndVanishedProgrammesInRangeAreDeleted() {
+        stored.add(epg("1", "Journal", "2026-01-01 20:00:00", "2026-01-01 20:30:00", ""));
+        stored.add(epg("2", "Journal", "2026-01-01 20:00:00", "2026-01-01 20:30:00", ""));
+        stored.add(epg("3", "Annulé", "2026-01-01 20:30:00", "2026-01-01 21:00:00", ""));
+        stored.add(epg("4", "Hier", "2025-12-31 20:00:00", "2025-12-31 21:00:00", ""));
+
+        epgService.mergeEpgForStream(OWNER, STREAM, List.of(
+                listing("Journal", "2026-01-01 20:00:00", "2026-01-01 20:30:00", ""),
+                listing("Film", "2026-01-01 20:30:00", "2026-01-01 22:00:00", "")));
+
+        List<String> deleted = new ArrayList<>();
+        deletedEpg().forEach(epg -> deleted.add(epg.getId()));
+        assertEquals(List.of("2", "3"), deleted.stream().sorted().toList());
+    }
+
+    @Test
+    void listingsWithoutStartOrEndDoNotBreakTheMerge() {
+        int received = epgService.mergeEpgForStream(OWNER, STREAM, List.of(
+                listing("Sans début", null, "2026-01-01 20:30:00", ""),
+                listing("Sans fin", "2026-01-01 20:30:00", null, "")));
+
+        assertEquals(1, received);
+        assertEquals(1, savedEpg().size());
+    }
+
+    private XtreamEpgListing listing(String title, String start, String end, String description) {
+        return new XtreamEpgListing(title, start, end, description);
+    }
+
+    private Epg epg(String id, String title, String start, String end, String description) {
+        return Epg.builder().id(id).ownerId(OWNER).streamId(STREAM)
+                .title(title).start(start).end(end).description(description).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Epg> savedEpg() {
+        ArgumentCaptor<List<Epg>> captor = ArgumentCaptor.forClass(List.class);
+        verify(epgRepository).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Epg> deletedEpg() {
+        ArgumentCaptor<List<Epg>> captor = ArgumentCaptor.forClass(List.class);
+        verify(epgRepository).deleteAll(captor.capture());
+        return captor.getValue();
+    }
+}
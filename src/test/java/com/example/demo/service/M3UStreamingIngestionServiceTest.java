@@ -0,0 +1,134 @@
+package com.example.demo.service;
+
+import com.example.demo.config.UserXtreamConfig;
+import com.example.demo.model.LiveStream;
+import com.example.demo.model.Series;
+import com.example.demo.model.TypeContenu;
+import com.example.demo.model.Vod;
+import com.mongodb.bulk.BulkWriteResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ingestion M3U en flux : lots bornés, un bulk non ordonné par collection et par lot,
+ * empreintes enregistrées après toutes les écritures, annulation de la lecture sur erreur d'écriture
+ */
+class M3UStreamingIngestionServiceTest {
+
+    private static final String OWNER = "owner-1";
+
+    private M3UFallbackService m3uFallbackService;
+    private CatalogFingerprintService catalogFingerprintService;
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+    private ReactiveBulkOperations bulkOperations;
+    private M3UStreamingIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        m3uFallbackService = mock(M3UFallbackService.class);
+        catalogFingerprintService = mock(CatalogFingerprintService.class);
+        reactiveMongoTemplate = mock(ReactiveMongoTemplate.class);
+        bulkOperations = mock(ReactiveBulkOperations.class, RETURNS_SELF);
+        when(bulkOperations.execute()).thenReturn(Mono.just(mock(BulkWriteResult.class)));
+        when(reactiveMongoTemplate.bulkOps(any(BulkMode.class), any(Class.class))).thenReturn(bulkOperations);
+
+        UserContextService userContextService = mock(UserContextService.class);
+        when(userContextService.getUserXtreamConfigOrThrow(OWNER)).thenReturn(mock(UserXtreamConfig.class));
+
+        service = new M3UStreamingIngestionService(m3uFallbackService, userContextService,
+                catalogFingerprintService, reactiveMongoTemplate);
+    }
+
+    @Test
+    void eachBatchIsOneUnorderedBulkPerCollection() {
+        // 2 lots pleins et un lot partiel, chacun mêlant live streams et VOD
+        int entries = 2 * M3UStreamingIngestionService.BATCH_SIZE + 10;
+        when(m3uFallbackService.fetchM3UContent(any())).thenReturn(Flux.range(0, entries)
+                .map(i -> item(i, i % 2 == 0 ? M3UFallbackService.ContentType.LIVE_STREAM : M3UFallbackService.ContentType.VOD)));
+
+        StepVerifier.create(service.ingestForUser(OWNER))
+                .assertNext(result -> {
+                    assertEquals(3, result.getBatches());
+                    assertEquals(entries, result.getWritten());
+                    assertEquals(entries / 2, result.getLiveCount());
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+
+        verify(reactiveMongoTemplate, times(3)).bulkOps(BulkMode.UNORDERED, LiveStream.class);
+        verify(reactiveMongoTemplate, times(3)).bulkOps(BulkMode.UNORDERED, Vod.class);
+        verify(reactiveMongoTemplate, never()).bulkOps(BulkMode.UNORDERED, Series.class);
+        verify(reactiveMongoTemplate, never()).bulkOps(eq(BulkMode.ORDERED), any(Class.class));
+        verify(bulkOperations, times(entries)).upsert(any(Query.class), any(Update.class));
+        verify(bulkOperations, times(6)).execute();
+    }
+
+    @Test
+    void fingerprintsAreRecordedOnlyAfterAllWritesComplete() {
+        Sinks.One<BulkWriteResult> write = Sinks.one();
+        when(bulkOperations.execute()).thenReturn(write.asMono());
+        when(m3uFallbackService.fetchM3UContent(any())).thenReturn(Flux.range(0, 10)
+                .map(i -> item(i, M3UFallbackService.ContentType.LIVE_STREAM)));
+
+        StepVerifier.create(service.ingestForUser(OWNER))
+                .then(() -> {
+                    // Lot envoyé à Mongo, écriture pas encore acquittée
+                    verify(bulkOperations, timeout(5_000)).execute();
+                    verify(catalogFingerprintService, never()).record(any(), any(), anyLong(), anyInt());
+                    write.tryEmitValue(mock(BulkWriteResult.class));
+                })
+                .assertNext(result -> assertEquals(10, result.getWritten()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+
+        verify(catalogFingerprintService).record(eq(OWNER), eq(TypeContenu.CHAINE), anyLong(), eq(10));
+    }
+
+    @Test
+    void writeErrorCancelsTheUpstreamPlaylist() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(bulkOperations.execute()).thenReturn(Mono.error(new IllegalStateException("écriture refusée")));
+        when(m3uFallbackService.fetchM3UContent(any())).thenReturn(Flux.range(0, Integer.MAX_VALUE)
+                .map(i -> item(i, M3UFallbackService.ContentType.LIVE_STREAM))
+                .doOnCancel(() -> cancelled.set(true)));
+
+        StepVerifier.create(service.ingestForUser(OWNER))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(10));
+
+        assertTrue(cancelled.get(), "la lecture de la playlist doit être annulée");
+        verify(catalogFingerprintService, never()).record(any(), any(), anyLong(), anyInt());
+    }
+
+    private static M3UFallbackService.ContentItem item(int i, M3UFallbackService.ContentType type) {
+        return new M3UFallbackService.ContentItem("Entrée " + i, "http://panel.example.com/live/u/p/" + i + ".ts", type,
+                Map.of("group-title", "Groupe " + (i % 5)));
+    }
+}
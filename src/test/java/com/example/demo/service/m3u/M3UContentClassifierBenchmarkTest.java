@@ -0,0 +1,54 @@
+package com.example.demo.service.m3u;
+
+import com.example.demo.service.m3u.M3UContentClassifierTest.LegacyRules;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+
+/**
+ * Débit de classification avant/après en lignes par seconde (lancé avec -Dbenchmark=true)
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class M3UContentClassifierBenchmarkTest {
+
+    private static final int LINES = 20_000;
+    private static final int ROUNDS = 3;
+
+    @Test
+    void classifierIsFasterThanLegacyRules() {
+        List<String[]> corpus = M3UContentClassifierTest.generateCorpus(LINES);
+
+        long legacyNanos = Long.MAX_VALUE;
+        long classifierNanos = Long.MAX_VALUE;
+        int sink = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (String[] entry : corpus) {
+                sink += LegacyRules.determineContentType(entry[0], entry[1]).ordinal();
+                sink += LegacyRules.isLiveStream(entry[0]) ? 1 : 0;
+                sink += LegacyRules.isVodContent(entry[0]) ? 1 : 0;
+                sink += LegacyRules.isSeriesContent(entry[0]) ? 1 : 0;
+            }
+            legacyNanos = Math.min(legacyNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (String[] entry : corpus) {
+                long features = M3UContentClassifier.scan(entry[0]);
+                sink -= M3UContentClassifier.contentType(features, entry[1]).ordinal();
+                sink -= M3UContentClassifier.isLiveStream(features) ? 1 : 0;
+                sink -= M3UContentClassifier.isVod(features) ? 1 : 0;
+                sink -= M3UContentClassifier.isSeries(features) ? 1 : 0;
+            }
+            classifierNanos = Math.min(classifierNanos, System.nanoTime() - start);
+        }
+
+        System.out.printf("📊 Classification M3U (%d lignes) : avant %,.0f lignes/s, après %,.0f lignes/s (x%.1f, contrôle %d)%n",
+                LINES,
+                LINES / (legacyNanos / 1e9),
+                LINES / (classifierNanos / 1e9),
+                (double) legacyNanos / classifierNanos,
+                sink);
+    }
+}
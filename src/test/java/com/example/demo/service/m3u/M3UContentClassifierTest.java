@@ -0,0 +1,169 @@
+package com.example.demo.service.m3u;
+
+import com.example.demo.service.M3UFallbackService.ContentType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Vérifie que le classifieur précompilé donne les mêmes résultats que les anciennes règles (Pattern.compile par ligne)
+ */
+class M3UContentClassifierTest {
+
+    private static final int LINES = 20_000;
+
+    @Test
+    void classifierMatchesLegacyRules() {
+        List<String[]> corpus = generateCorpus(LINES);
+
+        // Équivalence ligne par ligne
+        for (String[] entry : corpus) {
+            String extinf = entry[0];
+            String url = entry[1];
+            long features = M3UContentClassifier.scan(extinf);
+
+            assertEquals(LegacyRules.determineContentType(extinf, url),
+                    M3UContentClassifier.contentType(features, url), extinf);
+            assertEquals(LegacyRules.isLiveStream(extinf), M3UContentClassifier.isLiveStream(features), extinf);
+            assertEquals(LegacyRules.isVodContent(extinf), M3UContentClassifier.isVod(features), extinf);
+            assertEquals(LegacyRules.isSeriesContent(extinf), M3UContentClassifier.isSeries(features), extinf);
+
+            byte[] utf8 = extinf.getBytes(StandardCharsets.UTF_8);
+            assertEquals(features, M3UContentClassifier.scan(utf8, 0, utf8.length), extinf);
+        }
+    }
+
+    static List<String[]> generateCorpus(int size) {
+        String[] groups = {
+                "Live", "TV", "News", "Sports", "Kids", "Movies", "VOD", "Films", "Cinema", "Movie",
+                "Series", "TV Shows", "Drama", "FR | Général", "Action", "Documentary", "Bollywood", "Séries"
+        };
+        String[] titles = {
+                "TF1 HD", "Canal+ Sport", "Inception (2010) 1080p", "The Office S03E12", "Breaking Bad s1e5",
+                "Dark S01E02 720p", "Le Bureau Saison 2 Épisode 4", "Narcos Temporada 3", "Avatar 4K BluRay",
+                "Friends Ep12", "CNN International", "La Casa de Papel Parte 2", "Película del Oeste",
+                "Movie Night WEB-DL", "Doctor Who Season 11 Episode 3", "BBC ONE", "Star Wars (1977) DVDRip",
+                "Show s12e104", "İSTANBUL TV", "KELVIN K TEST"
+        };
+        String[] urls = {
+                "http://host:8080/live/user/pass/123.ts", "http://host:8080/movie/user/pass/456.mkv",
+                "http://host:8080/series/user/pass/789.mp4", "http://host:8080/user/pass/101",
+                "http://host:8080/vod/abc", "http://host:8080/episode/x", "http://host/stream.m3u8",
+                "http://host/file.M2TS"
+        };
+
+        Random random = new Random(42);
+        List<String[]> corpus = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String group = groups[random.nextInt(groups.length)];
+            String title = titles[random.nextInt(titles.length)];
+            String extinf = "#EXTINF:-1 tvg-id=\"ch" + i + "\" tvg-name=\"" + title + "\" tvg-logo=\"http://logo/" + i
+                    + ".png\" group-title=\"" + (random.nextBoolean() ? group : group.toUpperCase()) + "\"," + title;
+            corpus.add(new String[]{extinf, urls[random.nextInt(urls.length)]});
+        }
+        return corpus;
+    }
+
+    /**
+     * Règles historiques de M3UFallbackService, VodService, SeriesService et LiveStreamService
+     */
+    static final class LegacyRules {
+
+        static ContentType determineContentType(String extinf, String url) {
+            String line = extinf.toLowerCase();
+            String urlLower = url.toLowerCase();
+
+            String[] liveGroups = {
+                    "group-title=\"live\"", "group-title=\"tv\"", "group-title=\"television\"",
+                    "group-title=\"news\"", "group-title=\"sport\"", "group-title=\"sports\"",
+                    "group-title=\"entertainment\"", "group-title=\"kids\"", "group-title=\"music\"",
+                    "group-title=\"documentary\"", "group-title=\"lifestyle\"", "group-title=\"adult\"",
+                    "group-title=\"general\"", "group-title=\"national\"", "group-title=\"local\""
+            };
+            String[] vodGroups = {
+                    "group-title=\"movies\"", "group-title=\"vod\"", "group-title=\"films\"",
+                    "group-title=\"cinema\"", "group-title=\"movie\"", "group-title=\"film\"",
+                    "group-title=\"hollywood\"", "group-title=\"bollywood\""
+            };
+            String[] seriesGroups = {
+                    "group-title=\"series\"", "group-title=\"tv shows\"", "group-title=\"shows\"",
+                    "group-title=\"serie\"", "group-title=\"tv series\"", "group-title=\"drama\""
+            };
+            for (String group : liveGroups) if (line.contains(group)) return ContentType.LIVE_STREAM;
+            for (String group : vodGroups) if (line.contains(group)) return ContentType.VOD;
+            for (String group : seriesGroups) if (line.contains(group)) return ContentType.SERIES;
+
+            String[] seriesPatterns = {
+                    "season", "episode", "s\\d{2}e\\d{2}", "s\\d{1}e\\d{1,2}",
+                    "saison", "épisode", "ep\\d+", "parte", "temporada"
+            };
+            String[] vodPatterns = {
+                    "720p", "1080p", "4k", "2160p", "bluray", "webrip", "dvdrip",
+                    "hdtv", "web-dl", "brrip", "\\(\\d{4}\\)", "movie", "película"
+            };
+            for (String pattern : seriesPatterns) {
+                if (Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(line).find()) return ContentType.SERIES;
+            }
+            for (String pattern : vodPatterns) {
+                if (Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(line).find()) return ContentType.VOD;
+            }
+
+            String[] videoExtensions = {
+                    ".mp4", ".mkv", ".avi", ".mov", ".wmv",
+                    ".flv", ".webm", ".m4v", ".3gp", ".m2ts"
+            };
+            for (String ext : videoExtensions) if (urlLower.endsWith(ext)) return ContentType.VOD;
+            if (urlLower.contains("/live/") || urlLower.contains(".ts") || urlLower.contains(".m3u8")) {
+                return ContentType.LIVE_STREAM;
+            }
+            if (urlLower.matches(".*series/.*") || urlLower.contains("/episode/")) return ContentType.SERIES;
+            if (urlLower.matches(".*movie/.*") || urlLower.contains("/vod/")) return ContentType.VOD;
+            return ContentType.LIVE_STREAM;
+        }
+
+        static boolean isLiveStream(String extinf) {
+            String line = extinf.toLowerCase();
+            String[] vodPatterns = {
+                    "group-title=\"movies\"", "group-title=\"vod\"",
+                    "group-title=\"series\"", "group-title=\"tv shows\"",
+                    "group-title=\"films\"", "group-title=\"cinema\"",
+                    "season", "episode", "s01e", "s02e",
+                    "720p", "1080p", "4k", "bluray", "webrip"
+            };
+            for (String pattern : vodPatterns) if (line.contains(pattern)) return false;
+            return true;
+        }
+
+        static boolean isVodContent(String extinf) {
+            String line = extinf.toLowerCase();
+            String[] vodPatterns = {
+                    "group-title=\"movies\"", "group-title=\"vod\"",
+                    "group-title=\"films\"", "group-title=\"cinema\"",
+                    "group-title=\"movie\"", "group-title=\"film\"",
+                    "720p", "1080p", "4k", "bluray", "webrip", "dvdrip",
+                    "hdtv", "web-dl", "brrip", "\\(\\d{4}\\)"
+            };
+            for (String pattern : vodPatterns) if (Pattern.compile(pattern).matcher(line).find()) return true;
+            return false;
+        }
+
+        static boolean isSeriesContent(String extinf) {
+            String line = extinf.toLowerCase();
+            String[] seriesPatterns = {
+                    "group-title=\"series\"", "group-title=\"tv shows\"",
+                    "group-title=\"shows\"", "group-title=\"serie\"",
+                    "group-title=\"tv series\"", "season", "episode",
+                    "s\\d{1,2}e\\d{1,3}", "s\\d{2}e\\d{2}",
+                    "saison", "épisode", "ep\\d+", "parte"
+            };
+            for (String pattern : seriesPatterns) if (Pattern.compile(pattern).matcher(line).find()) return true;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.service.m3u;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystemException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reprise d'un téléchargement : erreurs de transport et 5xx seulement
+ */
+class M3UFileDownloaderTest {
+
+    @Test
+    void transportErrorsAndServerErrorsAreResumed() {
+        assertTrue(M3UFileDownloader.isResumable(new WebClientRequestException(
+                new IOException("Connection reset"), HttpMethod.GET, URI.create("http://panel.example.com/get.php"), new HttpHeaders())));
+        assertTrue(M3UFileDownloader.isResumable(new TimeoutException()));
+        assertTrue(M3UFileDownloader.isResumable(WebClientResponseException.create(502, "Bad Gateway", null, null, null)));
+    }
+
+    @Test
+    void clientAndLocalErrorsAreNotResumed() {
+        assertFalse(M3UFileDownloader.isResumable(WebClientResponseException.create(404, "Not Found", null, null, null)));
+        assertFalse(M3UFileDownloader.isResumable(new FileSystemException("/tmp/iptv-m3u/m3u-1.m3u: No space left on device")));
+        assertFalse(M3UFileDownloader.isResumable(new DataBufferLimitException("limite dépassée")));
+        assertFalse(M3UFileDownloader.isResumable(new IllegalStateException("inattendu")));
+    }
+}
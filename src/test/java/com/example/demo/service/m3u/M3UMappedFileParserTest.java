@@ -0,0 +1,124 @@
+package com.example.demo.service.m3u;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Découpage parallèle d'un fichier M3U : frontières sur les débuts de ligne #EXTINF et même catalogue qu'un parse unique
+ */
+class M3UMappedFileParserTest {
+
+    private static final String HEADER = "#EXTM3U url-tvg=\"http://epg.example.com/guide.xml\"\r\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void boundaryInsideAnExtinfLineMovesToTheNextEntry() {
+        String playlist = HEADER
+                + "#EXTINF:-1 group-title=\"FR\",Télé 1\r\n"
+                + "http://panel.example.com/live/u/p/1.ts\r\n"
+                + "#EXTINF:-1 group-title=\"FR\",Télé 2\r\n"
+                + "http://panel.example.com/live/u/p/2.ts";
+        ByteBuffer buffer = buffer(playlist);
+        int second = byteIndex(playlist, "#EXTINF:-1 group-title=\"FR\",Télé 2");
+
+        int insideFirstExtinf = HEADER.length() + 5;
+        assertEquals(second, M3UMappedFileParser.nextEntryBoundary(buffer, insideFirstExtinf, buffer.limit()));
+        // Déjà sur un début de ligne #EXTINF : la frontière ne bouge pas
+        assertEquals(second, M3UMappedFileParser.nextEntryBoundary(buffer, second, buffer.limit()));
+        // Aucune entrée après : fin du morceau
+        assertEquals(buffer.limit(), M3UMappedFileParser.nextEntryBoundary(buffer, second + 1, buffer.limit()));
+    }
+
+    @Test
+    void headerIsNeverABoundary() {
+        ByteBuffer buffer = buffer(HEADER + "#EXTINF:-1,Télé 1\nhttp://panel.example.com/live/u/p/1.ts\n");
+
+        assertEquals(HEADER.length(), M3UMappedFileParser.nextEntryBoundary(buffer, 0, buffer.limit()));
+        assertEquals(HEADER.length(), M3UMappedFileParser.nextEntryBoundary(buffer, 3, buffer.limit()));
+    }
+
+    @Test
+    void everySplitPointGivesTheSameCatalogAsOneParse() {
+        byte[] bytes = playlist(12).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        M3UCatalog whole = M3UMappedFileParser.parseChunk(ByteBuffer.wrap(bytes));
+        assertTrue(whole.getTotalCount() > 0);
+
+        // Même découpage que ChunkTask.compute, depuis chaque position possible du milieu
+        for (int middle = 1; middle < bytes.length; middle++) {
+            int boundary = M3UMappedFileParser.nextEntryBoundary(buffer, middle, bytes.length);
+            if (boundary <= 0 || boundary >= bytes.length) continue;
+
+            M3UCatalog left = M3UMappedFileParser.parseChunk(buffer.slice(0, boundary));
+            M3UCatalog right = M3UMappedFileParser.parseChunk(buffer.slice(boundary, bytes.length - boundary));
+            assertEquals(whole.getLiveStreams(), concat(left.getLiveStreams(), right.getLiveStreams()), "coupe à " + middle);
+            assertEquals(whole.getVods(), concat(left.getVods(), right.getVods()), "coupe à " + middle);
+            assertEquals(whole.getSeries(), concat(left.getSeries(), right.getSeries()), "coupe à " + middle);
+        }
+    }
+
+    @Test
+    void smallChunksParseTheMappedFileLikeOneChunk() throws IOException {
+        byte[] bytes = playlist(200).getBytes(StandardCharsets.UTF_8);
+        Path file = Files.write(tempDir.resolve("playlist.m3u"), bytes);
+        M3UCatalog whole = M3UMappedFileParser.parseChunk(ByteBuffer.wrap(bytes));
+
+        M3UCatalog parsed = new M3UMappedFileParser(ForkJoinPool.commonPool(), 256).parse(file);
+
+        assertEquals(whole.getLiveStreams(), parsed.getLiveStreams());
+        assertEquals(whole.getVods(), parsed.getVods());
+        assertEquals(whole.getSeries(), parsed.getSeries());
+        assertTrue(parsed.getTotalCount() > 0);
+    }
+
+    /**
+     * Playlist mêlant live, VOD et séries, fins de ligne CRLF et LF, dernière entrée sans saut de ligne
+     */
+    private static String playlist(int entries) {
+        StringBuilder playlist = new StringBuilder(HEADER);
+        for (int i = 0; i < entries; i++) {
+            String eol = i % 2 == 0 ? "\r\n" : "\n";
+            switch (i % 3) {
+                case 0 -> playlist.append("#EXTINF:-1 tvg-id=\"ch").append(i).append(".fr\" group-title=\"FR | Généraliste\",Télé ").append(i).append(eol)
+                        .append("http://panel.example.com/live/u/p/").append(i).append(".ts");
+                case 1 -> playlist.append("#EXTINF:-1 group-title=\"Films\",Amélie ").append(i).append(" (2001)").append(eol)
+                        .append("http://panel.example.com/movie/u/p/").append(i).append(".mkv");
+                default -> playlist.append("#EXTINF:-1 group-title=\"Séries\",Série ").append(i).append(" S01 E01").append(eol)
+                        .append("http://panel.example.com/series/u/p/").append(i).append(".mp4");
+            }
+            if (i < entries - 1) {
+                playlist.append(eol);
+            }
+        }
+        return playlist.toString();
+    }
+
+    private static ByteBuffer buffer(String playlist) {
+        return ByteBuffer.wrap(playlist.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int byteIndex(String playlist, String line) {
+        return playlist.substring(0, playlist.indexOf(line)).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static List<Map<String, Object>> concat(List<Map<String, Object>> a, List<Map<String, Object>> b) {
+        List<Map<String, Object>> merged = new ArrayList<>(a);
+        merged.addAll(b);
+        return merged;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo.service.m3u;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tokenizer M3U : mêmes entrées et mêmes attributs quel que soit le découpage des octets reçus
+ */
+class M3UTokenizerTest {
+
+    private static final String PLAYLIST = "#EXTM3U\r\n"
+            + "#EXTINF:-1 tvg-id=\"tf1.fr\" tvg-name=\"Télé Française\" tvg-logo=\"http://logo.example.com/tf1.png\" group-title=\"FR | Généraliste\",Télé 1\r\n"
+            + "http://panel.example.com/live/u/p/1.ts\r\n"
+            + "#EXTINF:0 tvg-id=\"\" group-title=\"Films, Drame\",Amélie (2001)\n"
+            + "http://panel.example.com/movie/u/p/2.mkv\n"
+            + "http://panel.example.com/orphan/3.ts\n"
+            + "#EXTINF:-1 tvg-name=\"日本語チャンネル\" group-title=\"JP\",日本語 🎬\n"
+            + "http://panel.example.com/live/u/p/4.ts";
+
+    @Test
+    void sameEntriesWhateverTheChunkSize() {
+        byte[] bytes = PLAYLIST.getBytes(StandardCharsets.UTF_8);
+        List<Snapshot> whole = tokenize(bytes, bytes.length);
+
+        assertEquals(3, whole.size());
+        assertEquals(whole, tokenize(bytes, 1));
+        assertEquals(whole, tokenize(bytes, 7));
+    }
+
+    @Test
+    void utf8SequencesSplitAcrossChunksAreRebuilt() {
+        byte[] bytes = PLAYLIST.getBytes(StandardCharsets.UTF_8);
+
+        // Coupe au milieu du 'é' (2 octets) de "Télé"
+        int split = indexOf(bytes, "Télé 1".getBytes(StandardCharsets.UTF_8)) + 2;
+        List<Snapshot> entries = tokenizeAt(bytes, split);
+
+        assertEquals("Télé 1", entries.get(0).title());
+        assertEquals("Télé Française", entries.get(0).attributes().get(M3UAttribute.TVG_NAME));
+        assertEquals("日本語 🎬", entries.get(2).title());
+        assertEquals("日本語チャンネル", entries.get(2).attributes().get(M3UAttribute.TVG_NAME));
+    }
+
+    @Test
+    void lineAndAttributeSplitAcrossFeedCalls() {
+        byte[] bytes = PLAYLIST.getBytes(StandardCharsets.UTF_8);
+        List<Snapshot> whole = tokenize(bytes, bytes.length);
+
+        // Coupe entre le nom et la valeur de group-title, puis dans la valeur elle-même
+        int inKey = indexOf(bytes, "group-title=\"FR".getBytes(StandardCharsets.UTF_8)) + 6;
+        int inValue = indexOf(bytes, "Généraliste".getBytes(StandardCharsets.UTF_8)) + 2;
+
+        assertEquals(whole, tokenizeAt(bytes, inKey));
+        assertEquals(whole, tokenizeAt(bytes, inValue));
+        assertEquals("FR | Généraliste", tokenizeAt(bytes, inValue).get(0).attributes().get(M3UAttribute.GROUP_TITLE));
+    }
+
+    @Test
+    void crlfIsStrippedFromEntriesAndUrls() {
+        List<Snapshot> entries = tokenize(PLAYLIST.getBytes(StandardCharsets.UTF_8), 7);
+
+        Snapshot first = entries.get(0);
+        assertEquals("http://panel.example.com/live/u/p/1.ts", first.url());
+        assertEquals("Télé 1", first.title());
+        assertEquals("-1", first.duration());
+        assertEquals("tf1.fr", first.attributes().get(M3UAttribute.TVG_ID));
+        assertEquals("http://logo.example.com/tf1.png", first.attributes().get(M3UAttribute.TVG_LOGO));
+    }
+
+    @Test
+    void finalLineWithoutNewlineIsEmittedOnFinish() {
+        byte[] bytes = PLAYLIST.getBytes(StandardCharsets.UTF_8);
+        List<Snapshot> entries = new ArrayList<>();
+        M3UTokenizer tokenizer = new M3UTokenizer(entry -> entries.add(Snapshot.of(entry)));
+
+        tokenizer.feed(ByteBuffer.wrap(bytes));
+        assertEquals(2, entries.size());
+
+        tokenizer.finish();
+        assertEquals(3, entries.size());
+        assertEquals("http://panel.example.com/live/u/p/4.ts", entries.get(2).url());
+        assertEquals(1, tokenizer.getOrphanUrlCount());
+    }
+
+    @Test
+    void quotedCommasDoNotEndTheAttribute() {
+        Snapshot second = tokenize(PLAYLIST.getBytes(StandardCharsets.UTF_8), 1).get(1);
+
+        assertEquals("Films, Drame", second.attributes().get(M3UAttribute.GROUP_TITLE));
+        assertEquals("", second.attributes().get(M3UAttribute.TVG_ID));
+        assertEquals("Amélie (2001)", second.lastTitle());
+        assertNull(second.attributes().get(M3UAttribute.TVG_LOGO));
+    }
+
+    private static List<Snapshot> tokenize(byte[] bytes, int chunkSize) {
+        List<Snapshot> entries = new ArrayList<>();
+        M3UTokenizer tokenizer = new M3UTokenizer(entry -> entries.add(Snapshot.of(entry)));
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            tokenizer.feed(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+        }
+        tokenizer.finish();
+        return entries;
+    }
+
+    private static List<Snapshot> tokenizeAt(byte[] bytes, int split) {
+        List<Snapshot> entries = new ArrayList<>();
+        M3UTokenizer tokenizer = new M3UTokenizer(entry -> entries.add(Snapshot.of(entry)));
+        tokenizer.feed(ByteBuffer.wrap(bytes, 0, split));
+        // Buffer direct : passe par la copie intermédiaire du tokenizer
+        ByteBuffer rest = ByteBuffer.allocateDirect(bytes.length - split);
+        rest.put(bytes, split, bytes.length - split).flip();
+        tokenizer.feed(rest);
+        tokenizer.finish();
+        return entries;
+    }
+
+    private static int indexOf(byte[] bytes, byte[] needle) {
+        outer:
+        for (int i = 0; i <= bytes.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (bytes[i + j] != needle[j]) continue outer;
+            }
+            return i;
+        }
+        throw new IllegalArgumentException("motif absent de la playlist");
+    }
+
+    /**
+     * Copie des valeurs d'une entrée, l'instance du tokenizer étant réutilisée
+     */
+    private record Snapshot(String extinf, String url, String duration, String title, String lastTitle,
+                            Map<M3UAttribute, String> attributes) {
+
+        static Snapshot of(M3UEntry entry) {
+            Map<M3UAttribute, String> attributes = new EnumMap<>(M3UAttribute.class);
+            for (M3UAttribute attribute : M3UAttribute.values()) {
+                if (entry.hasAttribute(attribute)) {
+                    attributes.put(attribute, entry.getAttribute(attribute));
+                }
+            }
+            return new Snapshot(entry.getExtinf(), entry.getUrl(), entry.getDuration(),
+                    entry.getTitleAfterFirstComma(), entry.getTitleAfterLastComma(), attributes);
+        }
+    }
+}
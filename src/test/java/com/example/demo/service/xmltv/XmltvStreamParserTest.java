@@ -0,0 +1,114 @@
+package com.example.demo.service.xmltv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Parse XMLTV en flux : guide brut ou gzip, premier titre seulement, heures ramenées au fuseau du serveur
+ */
+class XmltvStreamParserTest {
+
+    private static final String GUIDE = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <tv generator-info-name="test">
+              <channel id="tf1.fr"><display-name>TF1</display-name></channel>
+              <programme channel="tf1.fr" start="20260101200000 +0100" stop="20260101203000 +0100">
+                <title lang="fr">Journal de 20h</title>
+                <title lang="en">Evening News</title>
+                <desc lang="fr">Présentation : Léa</desc>
+              </programme>
+              <programme channel="tf1.fr" start="20260101203000 +0000" stop="20260101220000 +0000">
+                <title>Film</title>
+              </programme>
+              <programme channel="tf1.fr" start="20260101220000 +0100" stop="20260101230000 +0100">
+                <title></title>
+              </programme>
+              <programme start="20260101230000 +0100" stop="20260101233000 +0100">
+                <title>Sans chaîne</title>
+              </programme>
+            </tv>
+            """;
+
+    @Test
+    void plainGuideEmitsProgrammesWithTheFirstTitleOnly() throws Exception {
+        List<XmltvProgramme> programmes = parse(GUIDE.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, programmes.size());
+        XmltvProgramme news = programmes.get(0);
+        assertEquals("tf1.fr", news.channel());
+        assertEquals("Journal de 20h", news.title());
+        assertEquals("Présentation : Léa", news.description());
+        assertEquals(serverTime(2026, 1, 1, 20, 0, ZoneOffset.ofHours(1)), news.start());
+        assertEquals(serverTime(2026, 1, 1, 20, 30, ZoneOffset.ofHours(1)), news.stop());
+
+        XmltvProgramme film = programmes.get(1);
+        assertEquals("Film", film.title());
+        assertNull(film.description());
+        assertEquals(serverTime(2026, 1, 1, 20, 30, ZoneOffset.UTC), film.start());
+    }
+
+    @Test
+    void gzippedGuideIsDetectedBySignature() throws Exception {
+        byte[] plain = GUIDE.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(parse(plain), parse(gzip(plain)));
+    }
+
+    @Test
+    void offsetIsConvertedToTheTargetZone() {
+        ZoneId paris = ZoneId.of("Europe/Paris");
+
+        assertEquals("2026-01-01 20:00:00", XmltvStreamParser.toEpgTime("20260101200000 +0100", paris));
+        assertEquals("2026-01-01 21:00:00", XmltvStreamParser.toEpgTime("20260101200000 +0000", paris));
+        assertEquals("2026-07-01 20:00:00", XmltvStreamParser.toEpgTime("20260701130000 -0500", paris));
+        // Passage à la veille
+        assertEquals("2025-12-31 23:30:00", XmltvStreamParser.toEpgTime("20260101003000 +0100", ZoneOffset.UTC));
+    }
+
+    @Test
+    void timeWithoutOffsetIsKeptAsIs() {
+        ZoneId paris = ZoneId.of("Europe/Paris");
+
+        assertEquals("2026-01-01 20:00:00", XmltvStreamParser.toEpgTime("20260101200000", paris));
+        assertEquals("2026-01-01 20:00:00", XmltvStreamParser.toEpgTime("202601012000", paris));
+        assertEquals("2026-01-01 20:00:00", XmltvStreamParser.toEpgTime("20260101200000 UTC+inconnu", paris));
+        assertNull(XmltvStreamParser.toEpgTime("2026", paris));
+        assertNull(XmltvStreamParser.toEpgTime("20261301200000 +0100", paris));
+        assertNull(XmltvStreamParser.toEpgTime(null, paris));
+    }
+
+    private static List<XmltvProgramme> parse(byte[] bytes) throws Exception {
+        List<XmltvProgramme> programmes = new ArrayList<>();
+        long count = XmltvStreamParser.parse(new ByteArrayInputStream(bytes), programmes::add);
+        assertEquals(programmes.size(), count);
+        return programmes;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static String serverTime(int year, int month, int day, int hour, int minute, ZoneOffset offset) {
+        return OffsetDateTime.of(year, month, day, hour, minute, 0, 0, offset)
+                .atZoneSameInstant(ZoneId.systemDefault())
+                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.service.xtream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Seules les erreurs du fournisseur sont réessayées et ouvrent le circuit
+ */
+class ProviderCircuitBreakerTest {
+
+    private static final String BASE_URL = "http://panel.example.com:8080";
+
+    @Test
+    void providerFailuresOpenTheCircuit() {
+        ProviderCircuitBreaker breaker = new ProviderCircuitBreaker();
+        AtomicInteger calls = new AtomicInteger();
+        Flux<String> failing = Flux.defer(() -> {
+            calls.incrementAndGet();
+            return Flux.error(new TimeoutException("timeout"));
+        });
+
+        // 1 essai + 3 nouveaux essais par appel : le seuil de 5 échecs est atteint au second appel
+        StepVerifier.withVirtualTime(() -> breaker.protect(BASE_URL, failing))
+                .thenAwait(Duration.ofMinutes(1))
+                .verifyError(TimeoutException.class);
+        StepVerifier.withVirtualTime(() -> breaker.protect(BASE_URL, failing))
+                .thenAwait(Duration.ofMinutes(1))
+                .verifyError(ProviderUnavailableException.class);
+        assertEquals("OPEN", circuit(breaker).get("state"));
+
+        int before = calls.get();
+        StepVerifier.create(breaker.protect(BASE_URL, failing)).verifyError(ProviderUnavailableException.class);
+        assertEquals(before, calls.get(), "circuit ouvert : le fournisseur ne doit pas être appelé");
+    }
+
+    @Test
+    void throttledCallsDoNotCountAsFailures() {
+        ProviderCircuitBreaker breaker = new ProviderCircuitBreaker();
+
+        for (int i = 0; i < 10; i++) {
+            StepVerifier.create(breaker.protect(BASE_URL,
+                            Flux.<String>error(new ProviderThrottledException("panel.example.com:8080", 5))))
+                    .verifyError(ProviderThrottledException.class);
+        }
+
+        assertEquals("CLOSED", circuit(breaker).get("state"));
+        assertEquals(0, circuit(breaker).get("consecutive_failures"));
+    }
+
+    @Test
+    void clientErrorsAreNeitherRetriedNorCounted() {
+        ProviderCircuitBreaker breaker = new ProviderCircuitBreaker();
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(breaker.protect(BASE_URL, Flux.<String>defer(() -> {
+                    calls.incrementAndGet();
+                    return Flux.error(WebClientResponseException.create(404, "Not Found", null, null, null));
+                })))
+                .verifyError(WebClientResponseException.class);
+
+        assertEquals(1, calls.get());
+        assertEquals(0, circuit(breaker).get("consecutive_failures"));
+    }
+
+    @Test
+    void callIsNotRetriedOnceItemsWereEmitted() {
+        ProviderCircuitBreaker breaker = new ProviderCircuitBreaker();
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(breaker.protect(BASE_URL, Flux.defer(() -> {
+                    calls.incrementAndGet();
+                    return Flux.just("a").concatWith(Flux.error(new TimeoutException("timeout")));
+                })))
+                .expectNext("a")
+                .verifyError(TimeoutException.class);
+
+        assertEquals(1, calls.get());
+    }
+
+    private static Map<String, Object> circuit(ProviderCircuitBreaker breaker) {
+        return breaker.snapshot(BASE_URL).stream().findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.service.xtream;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Seau par hôte : un jeton réservé puis non utilisé (appel refusé ou annulé) doit être rendu
+ */
+class ProviderRateLimiterTest {
+
+    private static final String URL = "http://panel.example.com:8080/player_api.php?action=get_live_streams";
+
+    @Test
+    void callWithinBurstStartsImmediately() {
+        ProviderRateLimiter limiter = new ProviderRateLimiter(10, 2, Duration.ofSeconds(1));
+
+        StepVerifier.create(limiter.acquire(URL)).verifyComplete();
+        StepVerifier.create(limiter.acquire(URL)).verifyComplete();
+
+        assertEquals(2L, bucket(limiter).get("granted"));
+    }
+
+    @Test
+    void rejectedCallGivesItsTokenBack() {
+        // 1 jeton/s : le deuxième appel devrait attendre ~1s, au-delà de l'attente maximale
+        ProviderRateLimiter limiter = new ProviderRateLimiter(1, 1, Duration.ofMillis(100));
+
+        StepVerifier.create(limiter.acquire(URL)).verifyComplete();
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(limiter.acquire(URL)).verifyError(ProviderThrottledException.class);
+        }
+
+        // Sans restitution, le seau serait à -5 et l'hôte bridé pendant plusieurs secondes
+        assertTrue(tokens(limiter) > -0.5, "jetons: " + tokens(limiter));
+        assertEquals(1L, bucket(limiter).get("granted"));
+    }
+
+    @Test
+    void throttlingIsNotTreatedAsAnApiFailure() {
+        ProviderRateLimiter limiter = new ProviderRateLimiter(1, 1, Duration.ofMillis(100));
+        limiter.acquire(URL).block();
+
+        StepVerifier.create(limiter.acquire(URL))
+                .expectErrorSatisfies(e -> assertTrue(e instanceof ProviderUnavailableException))
+                .verify();
+    }
+
+    @Test
+    void cancelledWaitGivesItsTokenBack() {
+        ProviderRateLimiter limiter = new ProviderRateLimiter(1, 1, Duration.ofSeconds(10));
+        limiter.acquire(URL).block();
+
+        Disposable waiting = limiter.acquire(URL).subscribe();
+        assertTrue(tokens(limiter) < 0, "l'appel en attente réserve un jeton");
+
+        waiting.dispose();
+        assertTrue(tokens(limiter) > -0.5, "jetons: " + tokens(limiter));
+    }
+
+    @Test
+    void hostsHaveIndependentBuckets() {
+        ProviderRateLimiter limiter = new ProviderRateLimiter(1, 1, Duration.ofMillis(100));
+
+        StepVerifier.create(limiter.acquire(URL)).verifyComplete();
+        StepVerifier.create(limiter.acquire("http://other.example.com/player_api.php")).verifyComplete();
+
+        // Chaque hôte ne voit que son propre seau
+        assertEquals("panel.example.com:8080", bucket(limiter).get("host"));
+        assertEquals(1L, bucket(limiter).get("granted"));
+    }
+
+    private static Map<String, Object> bucket(ProviderRateLimiter limiter) {
+        return limiter.snapshot(URL).stream().findFirst().orElseThrow();
+    }
+
+    private static double tokens(ProviderRateLimiter limiter) {
+        return (double) bucket(limiter).get("tokens");
+    }
+}
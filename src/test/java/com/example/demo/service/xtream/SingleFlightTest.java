@@ -0,0 +1,117 @@
+package com.example.demo.service.xtream;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Appels identiques regroupés : un seul appel amont par clé, résultat complet pour chaque abonné
+ */
+class SingleFlightTest {
+
+    private static final String KEY = "http://panel.example.com/player_api.php?action=get_live_streams";
+
+    @Test
+    void concurrentCallersShareOneUpstreamCall() {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.Many<Integer> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+        Flux<Integer> first = singleFlight.execute(KEY, () -> {
+            calls.incrementAndGet();
+            return upstream.asFlux();
+        });
+        Flux<Integer> second = singleFlight.execute(KEY, () -> {
+            calls.incrementAndGet();
+            return Flux.empty();
+        });
+
+        StepVerifier.create(first.collectList().zipWith(second.collectList()))
+                .then(() -> {
+                    upstream.tryEmitNext(1);
+                    upstream.tryEmitNext(2);
+                    upstream.tryEmitComplete();
+                })
+                .assertNext(results -> {
+                    assertEquals(List.of(1, 2), results.getT1());
+                    assertEquals(List.of(1, 2), results.getT2());
+                })
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    void lateSubscriberReceivesTheFullResult() {
+        SingleFlight singleFlight = new SingleFlight();
+        Sinks.Many<Integer> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.create(singleFlight.execute(KEY, upstream::asFlux))
+                .then(() -> upstream.tryEmitNext(1))
+                .then(() -> StepVerifier.create(singleFlight.execute(KEY, Flux::empty))
+                        .then(() -> {
+                            upstream.tryEmitNext(2);
+                            upstream.tryEmitComplete();
+                        })
+                        .expectNext(1, 2)
+                        .verifyComplete())
+                .expectNext(1, 2)
+                .verifyComplete();
+    }
+
+    @Test
+    void keyIsReleasedOnceTheCallCompletes() {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(singleFlight.execute(KEY, () -> {
+                calls.incrementAndGet();
+                return Flux.just("a");
+            })).expectNext("a").verifyComplete();
+        }
+
+        assertEquals(2, calls.get());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    void failedCallReleasesItsKey() {
+        SingleFlight singleFlight = new SingleFlight();
+
+        StepVerifier.create(singleFlight.execute(KEY, () -> Flux.<String>error(new IllegalStateException("boom"))))
+                .verifyError(IllegalStateException.class);
+
+        assertEquals(0, singleFlight.getInFlightCount());
+        StepVerifier.create(singleFlight.execute(KEY, () -> Flux.just("retry"))).expectNext("retry").verifyComplete();
+    }
+
+    @Test
+    void upstreamIsCancelledOnlyWhenEverySubscriberCancelled() {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<Object> never = Flux.never().doOnCancel(() -> cancelled.set(true));
+
+        Disposable first = singleFlight.execute(KEY, () -> never).subscribe();
+        Disposable second = singleFlight.execute(KEY, () -> never).subscribe();
+
+        first.dispose();
+        assertEquals(1, singleFlight.getInFlightCount());
+        assertFalse(cancelled.get(), "appel amont annulé alors qu'un abonné reste");
+
+        second.dispose();
+        assertTrue(cancelled.get());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.service.xtream;
+
+import com.example.demo.config.XtreamConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Réponses valides servies depuis le cache aux lectures, pesées en octets sérialisés ;
+ * les synchronisations interrogent le fournisseur et remplissent le cache
+ */
+class XtreamResponseCacheTest {
+
+    private static final String ACTION = XtreamConfig.Actions.GET_LIVE_STREAMS;
+    private static final String KEY = "http://panel.example.com|user|" + ACTION;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void validResponseIsServedFromCache() throws Exception {
+        XtreamResponseCache cache = new XtreamResponseCache(new MockEnvironment(), objectMapper);
+        AtomicInteger calls = new AtomicInteger();
+        Flux<String> upstream = Flux.defer(() -> {
+            calls.incrementAndGet();
+            return Flux.just("TF1", "M6");
+        });
+
+        StepVerifier.create(cache.cached(ACTION, KEY, upstream, item -> true)).expectNext("TF1", "M6").verifyComplete();
+        awaitEntries(cache, 1);
+        StepVerifier.create(cache.cached(ACTION, KEY, upstream, item -> true)).expectNext("TF1", "M6").verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals((long) objectMapper.writeValueAsBytes(List.of("TF1", "M6")).length,
+                cache.getStatistics().get("weight_bytes"));
+    }
+
+    @Test
+    void syncReadBypassesTheCacheAndRefillsIt() throws Exception {
+        XtreamResponseCache cache = new XtreamResponseCache(new MockEnvironment(), objectMapper);
+        AtomicInteger calls = new AtomicInteger();
+        Flux<String> before = Flux.defer(() -> {
+            calls.incrementAndGet();
+            return Flux.just("TF1");
+        });
+        Flux<String> after = Flux.defer(() -> {
+            calls.incrementAndGet();
+            return Flux.just("TF1", "M6");
+        });
+
+        StepVerifier.create(cache.cached(ACTION, KEY, before, item -> true)).expectNext("TF1").verifyComplete();
+        awaitEntries(cache, 1);
+
+        // La synchronisation voit le catalogue courant du fournisseur, pas l'entrée en cache
+        StepVerifier.create(cache.refreshed(ACTION, KEY, after, item -> true)).expectNext("TF1", "M6").verifyComplete();
+        assertEquals(2, calls.get());
+
+        // ... et les lectures suivantes sont servies avec ce catalogue
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!cache.getStatistics().get("weight_bytes").equals((long) objectMapper.writeValueAsBytes(List.of("TF1", "M6")).length)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        StepVerifier.create(cache.cached(ACTION, KEY, before, item -> true)).expectNext("TF1", "M6").verifyComplete();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void invalidResponseIsNotCached() {
+        XtreamResponseCache cache = new XtreamResponseCache(new MockEnvironment(), objectMapper);
+        AtomicInteger calls = new AtomicInteger();
+        Flux<String> upstream = Flux.defer(() -> {
+            calls.incrementAndGet();
+            return Flux.just("");
+        });
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(cache.cached(ACTION, KEY, upstream, item -> !item.isEmpty())).expectNext("").verifyComplete();
+        }
+
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.getStatistics().get("entries"));
+    }
+
+    @Test
+    void evictByPrefixForgetsTheAccount() throws Exception {
+        XtreamResponseCache cache = new XtreamResponseCache(new MockEnvironment(), objectMapper);
+
+        StepVerifier.create(cache.cached(ACTION, KEY, Flux.just("TF1"), item -> true)).expectNext("TF1").verifyComplete();
+        awaitEntries(cache, 1);
+        cache.evictByPrefix("http://panel.example.com|user|");
+
+        Map<String, Object> statistics = cache.getStatistics();
+        assertEquals(0, statistics.get("entries"));
+        assertEquals(0L, statistics.get("weight_bytes"));
+    }
+
+    /**
+     * La mise en cache (pesée) est faite en arrière-plan
+     */
+    private static void awaitEntries(XtreamResponseCache cache, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while ((int) cache.getStatistics().get("entries") != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue((int) cache.getStatistics().get("entries") == expected, "entrée non mise en cache");
+    }
+}
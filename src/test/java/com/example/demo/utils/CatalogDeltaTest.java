@@ -0,0 +1,96 @@
+package com.example.demo.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Seuls les enregistrements ajoutés, modifiés ou supprimés sont à écrire
+ */
+class CatalogDeltaTest {
+
+    @Test
+    void unchangedCatalogProducesNoWrites() {
+        CatalogDelta<Item> delta = compute(
+                List.of(item(1, "TF1"), item(2, "France 2")),
+                List.of(stored("a", 1, "TF1"), stored("b", 2, "France 2")));
+
+        assertTrue(delta.isEmpty());
+        assertTrue(delta.getUpserts().isEmpty());
+        assertEquals(2, delta.getUnchangedCount());
+    }
+
+    @Test
+    void oneChangedFieldProducesOneUpsertKeepingTheStoredId() {
+        CatalogDelta<Item> delta = compute(
+                List.of(item(1, "TF1 HD"), item(2, "France 2")),
+                List.of(stored("a", 1, "TF1"), stored("b", 2, "France 2")));
+
+        assertEquals(1, delta.getUpserts().size());
+        assertEquals(1, delta.getChanged().size());
+        assertEquals("a", delta.getChanged().get(0).id);
+        assertTrue(delta.getAdded().isEmpty());
+        assertTrue(delta.getRemoved().isEmpty());
+    }
+
+    @Test
+    void newItemIsAdded() {
+        CatalogDelta<Item> delta = compute(
+                List.of(item(1, "TF1"), item(3, "M6")),
+                List.of(stored("a", 1, "TF1")));
+
+        assertEquals(1, delta.getAdded().size());
+        assertEquals(3, delta.getAdded().get(0).key);
+        assertTrue(delta.getChanged().isEmpty());
+    }
+
+    @Test
+    void removedItemProducesOneDelete() {
+        CatalogDelta<Item> delta = compute(
+                List.of(item(1, "TF1")),
+                List.of(stored("a", 1, "TF1"), stored("b", 2, "France 2")));
+
+        assertEquals(1, delta.getRemoved().size());
+        assertEquals("b", delta.getRemoved().get(0).id);
+        assertTrue(delta.getUpserts().isEmpty());
+    }
+
+    @Test
+    void storedDuplicatesAreRemoved() {
+        CatalogDelta<Item> delta = compute(
+                List.of(item(1, "TF1")),
+                List.of(stored("a", 1, "TF1"), stored("b", 1, "TF1")));
+
+        assertEquals(1, delta.getRemoved().size());
+        assertEquals("b", delta.getRemoved().get(0).id);
+        assertEquals(1, delta.getUnchangedCount());
+    }
+
+    private static CatalogDelta<Item> compute(List<Item> incoming, List<Item> existing) {
+        return CatalogDelta.compute(incoming, existing,
+                item -> item.key,
+                item -> item.fingerprint,
+                (previous, updated) -> updated.id = previous.id);
+    }
+
+    private static Item item(int key, String name) {
+        return stored(null, key, name);
+    }
+
+    private static Item stored(String id, int key, String name) {
+        Item item = new Item();
+        item.id = id;
+        item.key = key;
+        item.fingerprint = FingerprintUtils.fingerprint(key, name);
+        return item;
+    }
+
+    private static class Item {
+        String id;
+        int key;
+        Long fingerprint;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Empreintes stables : mêmes valeurs persistées, même empreinte, quel que soit l'ordre du catalogue
+ */
+class FingerprintUtilsTest {
+
+    @Test
+    void catalogFingerprintDoesNotDependOnOrder() {
+        List<Long> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(FingerprintUtils.fingerprint(i, "Chaîne " + i));
+        }
+        long expected = FingerprintUtils.catalogFingerprint(items, Long::longValue);
+
+        Collections.shuffle(items);
+        assertEquals(expected, FingerprintUtils.catalogFingerprint(items, Long::longValue));
+
+        Collections.reverse(items);
+        assertEquals(expected, FingerprintUtils.catalogFingerprint(items, Long::longValue));
+    }
+
+    @Test
+    void incrementalFingerprintMatchesTheCatalogFingerprint() {
+        List<Long> items = List.of(FingerprintUtils.fingerprint(1, "TF1"), FingerprintUtils.fingerprint(2, "M6"));
+
+        long sum = 0L;
+        for (long item : items) {
+            sum = FingerprintUtils.accumulate(sum, item);
+        }
+
+        assertEquals(FingerprintUtils.catalogFingerprint(items, Long::longValue), FingerprintUtils.finish(sum, items.size()));
+    }
+
+    @Test
+    void catalogFingerprintChangesWhenOneItemChanges() {
+        long before = FingerprintUtils.catalogFingerprint(
+                List.of(FingerprintUtils.fingerprint(1, "TF1"), FingerprintUtils.fingerprint(2, "M6")), Long::longValue);
+        long after = FingerprintUtils.catalogFingerprint(
+                List.of(FingerprintUtils.fingerprint(1, "TF1 HD"), FingerprintUtils.fingerprint(2, "M6")), Long::longValue);
+
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    void nullEmptyAndSurroundingSpacesAreEquivalent() {
+        assertEquals(FingerprintUtils.fingerprint(1, null), FingerprintUtils.fingerprint(1, ""));
+        assertEquals(FingerprintUtils.fingerprint(1, "TF1"), FingerprintUtils.fingerprint(1, " TF1 "));
+    }
+
+    @Test
+    void fieldBoundariesMatter() {
+        assertNotEquals(FingerprintUtils.fingerprint("ab", "c"), FingerprintUtils.fingerprint("a", "bc"));
+    }
+}